@@ -0,0 +1,31 @@
+package fuzzysystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+
+/**
+ * Flight recorder event committed for every call of
+ * {@linkplain fuzzysystem.FuzzyUtility#defuzzify(fuzzysystem.FuzzyUtility.Defuzzification, fuzzysystem.AbstractFuzzySet...)}.
+ * The duration of the event is the time spent in defuzzification.
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see JfrEventHook
+ */
+@Name("fuzzysystem.Defuzzification")
+@Label("Defuzzification")
+@Category({ "Fuzzy System" })
+@Description("Defuzzification of a group of fuzzy sets")
+final class JfrDefuzzificationEvent extends jdk.jfr.Event {
+	
+	@Label("Method")
+	String method;
+	
+	@Label("Set Count")
+	@Description("Number of fuzzy sets defuzzified")
+	int setCount;
+	
+}
@@ -0,0 +1,38 @@
+package fuzzysystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+
+
+/**
+ * Periodic flight recorder event carrying the number of evaluations performed by the library while this event is
+ * enabled.
+ * The event is emitted once every second by default, the period can be changed through the recording settings.
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see JfrEventHook
+ */
+@Name("fuzzysystem.EvaluationStatistics")
+@Label("Fuzzy Evaluation Statistics")
+@Category({ "Fuzzy System" })
+@Description("Aggregate evaluation counts of the fuzzy system library")
+@Period("1 s")
+@StackTrace(false)
+final class JfrEvaluationStatisticsEvent extends jdk.jfr.Event {
+	
+	@Label("Defuzzifications")
+	long defuzzifications;
+	
+	@Label("Set Operations")
+	long setOperations;
+	
+	@Label("Set Operation Members")
+	@Description("Total number of members in the results of set operations")
+	long setOperationMembers;
+	
+}
@@ -0,0 +1,121 @@
+package fuzzysystem.monitoring;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+
+
+/**
+ * <p>
+ * JfrEventHook records the events of the library with Java Flight Recorder. It is loaded by name by
+ * {@linkplain FuzzyEvents}, so this source folder can be left out of builds for runtimes without the flight recorder.
+ * It requires Java 11 or later.
+ * </p>
+ * 
+ * <p>
+ * A recorder event is only created and started when its type is enabled, so the library does not time the work of
+ * disabled events. The evaluation counts are emitted periodically through {@linkplain JfrEvaluationStatisticsEvent}.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzyEvents
+ */
+final class JfrEventHook implements EventHook {
+	
+	private final EventType	defuzzification	= EventType.getEventType(JfrDefuzzificationEvent.class);
+	private final EventType	setOperation	= EventType.getEventType(JfrSetOperationEvent.class);
+	private final EventType	statistics		= EventType.getEventType(JfrEvaluationStatisticsEvent.class);
+	
+	
+	
+	JfrEventHook() {
+		
+		FlightRecorder.addPeriodicEvent(JfrEvaluationStatisticsEvent.class, JfrEventHook::emitStatistics);
+	}
+	
+	
+	
+	private static void emitStatistics() {
+		
+		JfrEvaluationStatisticsEvent event = new JfrEvaluationStatisticsEvent();
+		event.defuzzifications = FuzzyEvents.defuzzifications();
+		event.setOperations = FuzzyEvents.setOperations();
+		event.setOperationMembers = FuzzyEvents.setOperationMembers();
+		event.commit();
+	}
+	
+	
+	
+	@Override
+	public Object beginDefuzzification() {
+		
+		if (!defuzzification.isEnabled())
+			return null;
+		
+		JfrDefuzzificationEvent event = new JfrDefuzzificationEvent();
+		event.begin();
+		
+		return event;
+	}
+	
+	
+	
+	@Override
+	public void defuzzified(Object recorded, Enum<?> method, int setCount) {
+		
+		if (recorded == null)
+			return;
+		
+		JfrDefuzzificationEvent event = (JfrDefuzzificationEvent) recorded;
+		event.end();
+		
+		if (event.shouldCommit()) {
+			event.method = method.name();
+			event.setCount = setCount;
+			event.commit();
+		}
+	}
+	
+	
+	
+	@Override
+	public Object beginSetOperation() {
+		
+		if (!setOperation.isEnabled())
+			return null;
+		
+		JfrSetOperationEvent event = new JfrSetOperationEvent();
+		event.begin();
+		
+		return event;
+	}
+	
+	
+	
+	@Override
+	public void setOperation(Object recorded, String operation, int leftSize, int rightSize, int resultSize) {
+		
+		if (recorded == null)
+			return;
+		
+		JfrSetOperationEvent event = (JfrSetOperationEvent) recorded;
+		event.end();
+		
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.leftSize = leftSize;
+			event.rightSize = rightSize;
+			event.resultSize = resultSize;
+			event.commit();
+		}
+	}
+	
+	
+	
+	@Override
+	public boolean statisticsEnabled() {
+		
+		return statistics.isEnabled();
+	}
+	
+}
@@ -0,0 +1,39 @@
+package fuzzysystem.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+
+/**
+ * Flight recorder event committed for every set algebra operation of {@linkplain fuzzysystem.DiscreteFuzzySet}. The
+ * duration of the event is the time spent in the operation. Unary operations record -1 as the size of the right
+ * operand.
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see JfrEventHook
+ */
+@Name("fuzzysystem.SetOperation")
+@Label("Discrete Set Operation")
+@Category({ "Fuzzy System" })
+@Description("Set algebra operation on discrete fuzzy sets")
+final class JfrSetOperationEvent extends jdk.jfr.Event {
+	
+	@Label("Operation")
+	String operation;
+	
+	@Label("Left Size")
+	@Description("Number of members of this set")
+	int leftSize;
+	
+	@Label("Right Size")
+	@Description("Number of members of the other set, -1 for unary operations")
+	int rightSize;
+	
+	@Label("Result Size")
+	@Description("Number of members of the resulting set")
+	int resultSize;
+	
+}
@@ -41,6 +41,28 @@ public abstract class AbstractFuzzySet {
 	
 	
 	
+	/**
+	 * Calculates the membership values at the points xValues[from] to xValues[to - 1] and stores them into memberships
+	 * at the same indices. It gives the same values as {@link #getMembershipValue(double xValue)}. Subclasses may
+	 * override it with a loop that does not call a method per point.
+	 * 
+	 * @param xValues
+	 *            Points at which the membership values are to be calculated
+	 * @param memberships
+	 *            Array receiving the membership values
+	 * @param from
+	 *            Index of the first point (inclusive)
+	 * @param to
+	 *            Index of the last point (exclusive)
+	 */
+	public void getMembershipValues(double[] xValues, double[] memberships, int from, int to) {
+		
+		for (int i = from; i < to; i++)
+			memberships[i] = getMembershipValue(xValues[i]);
+	}
+	
+	
+	
 	/**
 	 * Returns the membership value of the element depending upon the implementation of this set. It gives the same
 	 * value
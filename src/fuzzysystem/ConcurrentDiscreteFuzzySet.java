@@ -0,0 +1,325 @@
+package fuzzysystem;
+
+import java.util.function.ObjDoubleConsumer;
+
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+
+
+
+/**
+ * <p>
+ * ConcurrentDiscreteFuzzySet is a discrete fuzzy set which can be modified by many threads at the same time. It is
+ * meant to collect the output of parallel fuzzifiers. Instead of adding members, the threads accumulate membership
+ * values: {@linkplain #accumulateMax(Element, double)} keeps the maximum of all the values given for an element, as in
+ * a union, {@linkplain #accumulateMin(Element, double)} keeps the minimum and
+ * {@linkplain #accumulateProbSum(Element, double)} combines them with the probabilistic sum <i>a + b - ab</i>. Each of
+ * these operations is commutative and associative, so the result does not depend on the order of the threads.
+ * </p>
+ * 
+ * <p>
+ * The members are divided into stripes by the hash of the element. Every stripe is a separate open addressing table,
+ * guarded by its own lock, so threads accumulating different elements rarely wait for each other and there is no lock
+ * over the whole set.
+ * </p>
+ * 
+ * <p>
+ * Reading operations are weakly consistent. {@linkplain #snapshot()}, {@linkplain #forEach(ObjDoubleConsumer)} and
+ * {@linkplain #size()} see every stripe in a consistent state, but the stripes are visited one after the other while
+ * other threads may continue to accumulate. Once all the producers have finished, they see the complete set.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet
+ */
+public final class ConcurrentDiscreteFuzzySet {
+	
+	/**
+	 * Stripes of the set. Each one is locked by synchronizing on it.
+	 */
+	private final ElementMembershipMap[] stripes;
+	
+	/**
+	 * Right shift selecting the stripe from the high bits of the hash. The tables of the stripes use the low bits.
+	 */
+	private final int shift;
+	
+	
+	
+	/**
+	 * Creates an empty set with four stripes per available processor.
+	 */
+	public ConcurrentDiscreteFuzzySet() {
+		this(20, Runtime.getRuntime().availableProcessors() * 4);
+	}
+	
+	
+	
+	/**
+	 * Creates an empty set.
+	 * 
+	 * @param capacity
+	 *            Expected number of members
+	 * @param concurrencyLevel
+	 *            Expected number of threads modifying the set at the same time. It is rounded up to a power of two to
+	 *            give the number of stripes.
+	 */
+	public ConcurrentDiscreteFuzzySet(int capacity, int concurrencyLevel) {
+		
+		if (concurrencyLevel < 1 || concurrencyLevel > 1 << 16)
+			throw new IllegalArgumentException("Concurrency level must be in [1, 65536] : " + concurrencyLevel);
+		
+		int stripeCount = Integer.highestOneBit(Math.max(concurrencyLevel, 2) - 1) << 1;
+		
+		stripes = new ElementMembershipMap[stripeCount];
+		shift = 32 - Integer.numberOfTrailingZeros(stripeCount);
+		
+		for (int i = 0; i < stripeCount; i++)
+			stripes[i] = new ElementMembershipMap(capacity / stripeCount + 1);
+	}
+	
+	
+	
+	private ElementMembershipMap stripe(Element element) {
+		
+		return stripes[ElementMembershipMap.hash(element) >>> shift];
+	}
+	
+	
+	
+	private static void check(double membership) throws MembershipOutOfRangeException {
+		
+		if (!(membership >= 0 && membership <= 1))
+			throw new MembershipOutOfRangeException("Membership value " + membership + " is beyond [0,1].");
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the element to the maximum of its present value and the given one. An element
+	 * which is not present is added with the given value.
+	 * 
+	 * @param element
+	 *            Element whose membership value is accumulated
+	 * @param membership
+	 *            Membership value to accumulate
+	 * @return Membership value of the element after the operation
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1]
+	 */
+	public double accumulateMax(Element element, double membership) throws MembershipOutOfRangeException {
+		
+		check(membership);
+		ElementMembershipMap stripe = stripe(element);
+		
+		synchronized (stripe) {
+			int entry = stripe.putIfAbsent(element, membership);
+			double present = stripe.valueAt(entry);
+			
+			if (present >= membership)
+				return present;
+			
+			stripe.setValueAt(entry, membership);
+			return membership;
+		}
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the element to the minimum of its present value and the given one. An element
+	 * which is not present is added with the given value.
+	 * 
+	 * @param element
+	 *            Element whose membership value is accumulated
+	 * @param membership
+	 *            Membership value to accumulate
+	 * @return Membership value of the element after the operation
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1]
+	 */
+	public double accumulateMin(Element element, double membership) throws MembershipOutOfRangeException {
+		
+		check(membership);
+		ElementMembershipMap stripe = stripe(element);
+		
+		synchronized (stripe) {
+			int entry = stripe.putIfAbsent(element, membership);
+			double present = stripe.valueAt(entry);
+			
+			if (present <= membership)
+				return present;
+			
+			stripe.setValueAt(entry, membership);
+			return membership;
+		}
+	}
+	
+	
+	
+	/**
+	 * Combines the membership value of the element with the given one using the probabilistic sum <i>a + b - ab</i>.
+	 * An element which is not present is added with the given value.
+	 * 
+	 * @param element
+	 *            Element whose membership value is accumulated
+	 * @param membership
+	 *            Membership value to accumulate
+	 * @return Membership value of the element after the operation
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1]
+	 */
+	public double accumulateProbSum(Element element, double membership) throws MembershipOutOfRangeException {
+		
+		check(membership);
+		ElementMembershipMap stripe = stripe(element);
+		
+		synchronized (stripe) {
+			int entry = stripe.indexOf(element);
+			
+			if (entry < 0) {
+				stripe.put(element, membership);
+				return membership;
+			}
+			
+			double present = stripe.valueAt(entry);
+			double sum = present + membership - present * membership;
+			stripe.setValueAt(entry, sum);
+			
+			return sum;
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the element, 0 if it is not present.
+	 */
+	public double getMembershipValue(Element element) {
+		
+		ElementMembershipMap stripe = stripe(element);
+		
+		synchronized (stripe) {
+			return stripe.get(element);
+		}
+	}
+	
+	
+	
+	/**
+	 * Determines whether the element is present in the set.
+	 */
+	public boolean contains(Element element) {
+		
+		ElementMembershipMap stripe = stripe(element);
+		
+		synchronized (stripe) {
+			return stripe.containsKey(element);
+		}
+	}
+	
+	
+	
+	/**
+	 * Removes the element from the set.
+	 * 
+	 * @return true - If the element was present</br>
+	 *         false - Otherwise
+	 */
+	public boolean remove(Element element) {
+		
+		ElementMembershipMap stripe = stripe(element);
+		
+		synchronized (stripe) {
+			return stripe.remove(element);
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the number of members. The stripes are counted one after the other, so the result is exact only if the
+	 * set is not being modified.
+	 */
+	public int size() {
+		
+		int size = 0;
+		
+		for (ElementMembershipMap stripe : stripes)
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		
+		return size;
+	}
+	
+	
+	
+	/**
+	 * Removes all the members. The stripes are cleared one after the other.
+	 */
+	public void clear() {
+		
+		for (ElementMembershipMap stripe : stripes)
+			synchronized (stripe) {
+				stripe.clear();
+			}
+	}
+	
+	
+	
+	/**
+	 * Performs the action for each member, supplying the element and its membership value. Every stripe is copied
+	 * under its lock and the action is performed on the copy, so the action never blocks the producers.
+	 * 
+	 * @param action
+	 *            Action to be performed for each member
+	 */
+	public void forEach(ObjDoubleConsumer<? super Element> action) {
+		
+		for (ElementMembershipMap stripe : stripes) {
+			Element[] elements;
+			double[] memberships;
+			
+			synchronized (stripe) {
+				elements = new Element[stripe.size()];
+				memberships = new double[stripe.size()];
+				System.arraycopy(stripe.keys, 0, elements, 0, elements.length);
+				System.arraycopy(stripe.values, 0, memberships, 0, memberships.length);
+			}
+			
+			for (int i = 0; i < elements.length; i++)
+				action.accept(elements[i], memberships[i]);
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns a new {@linkplain DiscreteFuzzySet} containing the members of this set. The stripes are copied one after
+	 * the other.
+	 * 
+	 * @return New set containing the members of this set
+	 */
+	public DiscreteFuzzySet snapshot() {
+		
+		DiscreteFuzzySet fuzzySet = new DiscreteFuzzySet(size());
+		ElementMembershipMap map = fuzzySet.map();
+		
+		for (ElementMembershipMap stripe : stripes)
+			synchronized (stripe) {
+				for (int i = 0; i < stripe.size(); i++)
+					map.put(stripe.keyAt(i), stripe.valueAt(i));
+			}
+		
+		return fuzzySet;
+	}
+	
+	
+	
+	@Override
+	public String toString() {
+		
+		return snapshot().toString();
+	}
+	
+}
@@ -0,0 +1,473 @@
+package fuzzysystem;
+
+import java.util.Arrays;
+
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+
+
+
+/**
+ * <p>
+ * DenseDiscreteFuzzySet is a discrete fuzzy set over a {@linkplain Universe}. Every element of the universe is a member
+ * of the set. The membership value of the element with id i is stored at index i of a primitive array, elements which
+ * were never given a membership value have 0 membership value.
+ * </p>
+ * 
+ * <p>
+ * Sets over the same universe share the same layout, so union, intersection, complement, product and power are plain
+ * loops over arrays and do not hash any element. This representation is preferred over {@linkplain DiscreteFuzzySet}
+ * when the sets cover a large part of a fixed universe. A set which was created before elements were added to the
+ * universe gives 0 membership value to the new elements.
+ * </p>
+ * 
+ * <p>
+ * Since every element of the universe is a member, the complement is taken over the whole universe. This is different
+ * from {@linkplain DiscreteFuzzySet#complement()}, which complements only the members present in the set.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see Universe
+ *      DiscreteFuzzySet
+ */
+public class DenseDiscreteFuzzySet {
+	
+	/**
+	 * Universe of this set.
+	 */
+	private final Universe universe;
+	
+	/**
+	 * Membership values indexed by element id. Ids beyond the length of this array have 0 membership value.
+	 */
+	private double[] memberships;
+	
+	
+	
+	/**
+	 * Creates a new set over the given universe in which every element has 0 membership value.
+	 */
+	public DenseDiscreteFuzzySet(Universe universe) {
+		this.universe = universe;
+		this.memberships = new double[universe.size()];
+	}
+	
+	
+	
+	/**
+	 * Creates a set using the given array of membership values. The array is not copied.
+	 */
+	DenseDiscreteFuzzySet(Universe universe, double[] memberships) {
+		this.universe = universe;
+		this.memberships = memberships;
+	}
+	
+	
+	
+	/**
+	 * Creates a new dense set having the same members and membership values as the given set. Members which do not
+	 * belong to the universe are added to it.
+	 * 
+	 * @param fuzzySet
+	 *            Set to convert
+	 * @param universe
+	 *            Universe of the new set
+	 * @return New dense set equal to fuzzySet
+	 */
+	public static DenseDiscreteFuzzySet from(DiscreteFuzzySet fuzzySet, Universe universe) {
+		
+		ElementMembershipMap map = fuzzySet.map();
+		int[] ids = new int[map.size()];
+		
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = universe.add(map.keyAt(i));
+		
+		DenseDiscreteFuzzySet denseSet = new DenseDiscreteFuzzySet(universe);
+		
+		for (int i = 0; i < ids.length; i++)
+			denseSet.memberships[ids[i]] = map.valueAt(i);
+		
+		return denseSet;
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of this set.
+	 * 
+	 * @return Universe of this set
+	 */
+	public Universe getUniverse() {
+		
+		return universe;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the element with the given id.
+	 * 
+	 * @param id
+	 *            Id of the element in the universe
+	 * @return Membership value of the element
+	 */
+	public double getMembershipValue(int id) {
+		
+		return (id < memberships.length) ? memberships[id] : 0.0;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the given element. Elements which do not belong to the universe have 0 membership
+	 * value.
+	 * 
+	 * @param element
+	 *            Element whose membership value is required
+	 * @return Membership value of the element
+	 */
+	public double getMembershipValue(Element element) {
+		
+		int id = universe.indexOf(element);
+		return (id < 0) ? 0.0 : getMembershipValue(id);
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the element with the given id.
+	 * 
+	 * @param id
+	 *            Id of the element in the universe
+	 * @param value
+	 *            Membership value of the element
+	 * @return The present set
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 */
+	public DenseDiscreteFuzzySet setMembershipValue(int id, double value) throws MembershipOutOfRangeException {
+		
+		if (value < 0 || value > 1)
+			throw new MembershipOutOfRangeException();
+		
+		if (id < 0 || id >= universe.size())
+			throw new IndexOutOfBoundsException("Id " + id + " is not in universe of size " + universe.size());
+		
+		if (id >= memberships.length)
+			memberships = Arrays.copyOf(memberships, universe.size());
+		
+		memberships[id] = value;
+		
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the given element. The element is added to the universe if it does not belong to
+	 * it.
+	 * 
+	 * @param element
+	 *            Element whose membership value is set
+	 * @param value
+	 *            Membership value of the element
+	 * @return The present set
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 */
+	public DenseDiscreteFuzzySet setMembershipValue(Element element, double value) throws MembershipOutOfRangeException {
+		
+		if (value < 0 || value > 1)
+			throw new MembershipOutOfRangeException();
+		
+		return setMembershipValue(universe.add(element), value);
+	}
+	
+	
+	
+	private void checkUniverse(DenseDiscreteFuzzySet fuzzySet) {
+		
+		if (fuzzySet.universe != universe)
+			throw new IllegalArgumentException("Dense fuzzy sets must belong to the same universe.");
+	}
+	
+	
+	
+	/**
+	 * Performs union of this set with the given set. The membership value of every element in the union is the maximum
+	 * of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom union is to be performed. It must belong to the same universe.
+	 * @return New set containing union of both sets
+	 */
+	public DenseDiscreteFuzzySet union(DenseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		double[] a = memberships, b = fuzzySet.memberships;
+		double[] result = new double[Math.max(a.length, b.length)];
+		int common = Math.min(a.length, b.length);
+		
+		for (int i = 0; i < common; i++)
+			result[i] = Math.max(a[i], b[i]);
+		
+		double[] longer = (a.length > b.length) ? a : b;
+		System.arraycopy(longer, common, result, common, result.length - common);
+		
+		return new DenseDiscreteFuzzySet(universe, result);
+	}
+	
+	
+	
+	/**
+	 * Performs intersection of this set with the given set. The membership value of every element in the intersection
+	 * is the minimum of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom intersection is to be performed. It must belong to the same universe.
+	 * @return New set containing intersection of both sets
+	 */
+	public DenseDiscreteFuzzySet intersection(DenseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		double[] a = memberships, b = fuzzySet.memberships;
+		double[] result = new double[Math.min(a.length, b.length)];
+		
+		for (int i = 0; i < result.length; i++)
+			result[i] = Math.min(a[i], b[i]);
+		
+		return new DenseDiscreteFuzzySet(universe, result);
+	}
+	
+	
+	
+	/**
+	 * Performs complement of this set over the whole universe. The membership value of every element in the complement
+	 * is 1 - its membership value in this set.
+	 * 
+	 * @return New set containing complement of this set
+	 */
+	public DenseDiscreteFuzzySet complement() {
+		
+		double[] a = memberships;
+		double[] result = new double[universe.size()];
+		
+		for (int i = 0; i < a.length; i++)
+			result[i] = 1 - a[i];
+		
+		Arrays.fill(result, a.length, result.length, 1.0);
+		
+		return new DenseDiscreteFuzzySet(universe, result);
+	}
+	
+	
+	
+	/**
+	 * Performs product of this set with the given set. The membership value of every element in the product is the
+	 * product of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom product is to be performed. It must belong to the same universe.
+	 * @return New set containing product of both sets
+	 */
+	public DenseDiscreteFuzzySet product(DenseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		double[] a = memberships, b = fuzzySet.memberships;
+		double[] result = new double[Math.min(a.length, b.length)];
+		
+		for (int i = 0; i < result.length; i++)
+			result[i] = a[i] * b[i];
+		
+		return new DenseDiscreteFuzzySet(universe, result);
+	}
+	
+	
+	
+	/**
+	 * Performs the multiplication of the set with a numerical value.
+	 * 
+	 * @param scaler
+	 *            Multiplication factor
+	 * @return New set with membership values multiplied by the scaler.
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value of any element goes beyond [0,1] inclusive.
+	 */
+	public DenseDiscreteFuzzySet product(double scaler) throws MembershipOutOfRangeException {
+		
+		double[] a = memberships;
+		double[] result = new double[a.length];
+		
+		for (int i = 0; i < a.length; i++) {
+			double value = scaler * a[i];
+			
+			if (value < 0 || value > 1)
+				throw new MembershipOutOfRangeException();
+			
+			result[i] = value;
+		}
+		
+		return new DenseDiscreteFuzzySet(universe, result);
+	}
+	
+	
+	
+	/**
+	 * Performs the power of the set with a numerical value. The membership value of every element is raised to the
+	 * given power.
+	 * 
+	 * @param power
+	 *            Power factor
+	 * @return New set with membership values raised to the power.
+	 */
+	public DenseDiscreteFuzzySet power(float power) {
+		
+		double[] a = memberships;
+		double[] result = new double[a.length];
+		
+		if (power == 2) {
+			for (int i = 0; i < a.length; i++)
+				result[i] = a[i] * a[i];
+		}
+		else {
+			for (int i = 0; i < a.length; i++)
+				result[i] = Math.pow(a[i], power);
+		}
+		
+		return new DenseDiscreteFuzzySet(universe, result);
+	}
+	
+	
+	
+	/**
+	 * Returns the sum of membership values of all the elements.
+	 * 
+	 * @return Cardinal value of this set
+	 */
+	public double cardinalValue() {
+		
+		double sum = 0;
+		
+		for (double membership : memberships)
+			sum += membership;
+		
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Returns the element having maximum membership value.
+	 * 
+	 * @return Element with maximum membership value or null if every element has 0 membership value
+	 */
+	public Element height() {
+		
+		double maxMembership = 0;
+		int maxId = -1;
+		
+		for (int i = 0; i < memberships.length; i++) {
+			if (memberships[i] > maxMembership) {
+				maxMembership = memberships[i];
+				maxId = i;
+			}
+		}
+		
+		return (maxId < 0) ? null : universe.get(maxId);
+	}
+	
+	
+	
+	/**
+	 * Determines whether both sets give the same membership value to every element of the universe.
+	 * 
+	 * @param fuzzySet
+	 *            Set to compare. It must belong to the same universe.
+	 * @return true - If both sets are equal</br>
+	 *         false - Otherwise
+	 */
+	public boolean equalsFuzzySet(DenseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		double[] a = memberships, b = fuzzySet.memberships;
+		int common = Math.min(a.length, b.length);
+		
+		for (int i = 0; i < common; i++)
+			if (a[i] != b[i])
+				return false;
+		
+		double[] longer = (a.length > b.length) ? a : b;
+		
+		for (int i = common; i < longer.length; i++)
+			if (longer[i] != 0)
+				return false;
+		
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Creates a {@linkplain DiscreteFuzzySet} containing the elements of this set which have a membership value greater
+	 * than 0.
+	 * 
+	 * @return New discrete fuzzy set equal to this set
+	 */
+	public DiscreteFuzzySet toDiscreteFuzzySet() {
+		
+		int count = 0;
+		
+		for (double membership : memberships)
+			if (membership > 0)
+				++count;
+		
+		DiscreteFuzzySet fuzzySet = new DiscreteFuzzySet(count);
+		ElementMembershipMap map = fuzzySet.map();
+		Element[] elements = universe.elements();
+		
+		for (int i = 0; i < memberships.length; i++)
+			if (memberships[i] > 0)
+				map.put(elements[i], memberships[i]);
+		
+		return fuzzySet;
+	}
+	
+	
+	
+	/**
+	 * Returns a copy of the membership values indexed by element id. The length of the array is the size of the
+	 * universe.
+	 * 
+	 * @return Membership values of all the elements
+	 */
+	public double[] toArray() {
+		
+		return Arrays.copyOf(memberships, universe.size());
+	}
+	
+	
+	
+	/**
+	 * Returns the array of membership values. Ids beyond its length have 0 membership value. The array is shared.
+	 */
+	double[] memberships() {
+		
+		return memberships;
+	}
+	
+	
+	
+	/**
+	 * Returns the string representation of the set in the same format as {@linkplain DiscreteFuzzySet#toString()}. Only
+	 * the elements having membership value greater than 0 are included.
+	 */
+	@Override
+	public String toString() {
+		
+		return toDiscreteFuzzySet().toString();
+	}
+	
+}
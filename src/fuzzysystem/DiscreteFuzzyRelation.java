@@ -0,0 +1,624 @@
+package fuzzysystem;
+
+import java.util.Arrays;
+
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+import fuzzysystem.monitoring.FuzzyEvents;
+import fuzzysystem.monitoring.SetOperationEvent;
+
+
+
+/**
+ * <p>
+ * DiscreteFuzzyRelation is a fuzzy relation between the elements of two {@linkplain Universe} instances. It gives a
+ * membership value to every pair (x, y), where x is an element of the row universe and y an element of the column
+ * universe. The membership values are stored densely as a matrix in a primitive array, row by row, so the relation
+ * uses 8 bytes for every pair. Relations which are mostly zero should use {@linkplain SparseFuzzyRelation}.
+ * </p>
+ * 
+ * <p>
+ * The number of rows and columns is fixed when the relation is created and is the size of the universes at that time.
+ * Elements added to the universes later do not belong to the relation.
+ * </p>
+ * 
+ * <p>
+ * The composition of relations is computed like a matrix multiplication in which the sum is replaced by the maximum
+ * and the product by the minimum (max-min composition) or by the product (max-product composition). It is divided into
+ * blocks which fit in the processor caches and the rows are processed in parallel on the common
+ * {@linkplain java.util.concurrent.ForkJoinPool} when the relations are large.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see Universe
+ *      DenseDiscreteFuzzySet
+ */
+public final class DiscreteFuzzyRelation {
+	
+	/**
+	 * Rows of the result computed by a single task of the composition.
+	 */
+	private static final int BLOCK_ROWS = 32;
+	
+	/**
+	 * Rows of the right relation read by the composition before moving to the next columns. Together with
+	 * {@linkplain #BLOCK_COLUMNS} it keeps the block of the right relation in the processor caches.
+	 */
+	private static final int BLOCK_INNER = 128;
+	
+	/**
+	 * Columns of the result computed at a time. A block row of 2048 membership values takes 16 KB.
+	 */
+	private static final int BLOCK_COLUMNS = 2048;
+	
+	private final Universe rowUniverse;
+	
+	private final Universe columnUniverse;
+	
+	private final int rows;
+	
+	private final int columns;
+	
+	/**
+	 * Membership value of the pair (row, column) at index row * columns + column.
+	 */
+	private final double[] memberships;
+	
+	
+	
+	/**
+	 * Creates a relation between the elements of the given universes in which every pair has 0 membership value.
+	 * 
+	 * @param rowUniverse
+	 *            Universe of the first element of the pairs
+	 * @param columnUniverse
+	 *            Universe of the second element of the pairs
+	 * @throws IllegalArgumentException
+	 *             If the relation has too many pairs to be stored in an array
+	 */
+	public DiscreteFuzzyRelation(Universe rowUniverse, Universe columnUniverse) {
+		this(rowUniverse, columnUniverse, new double[pairCount(rowUniverse.size(), columnUniverse.size())]);
+	}
+	
+	
+	
+	private DiscreteFuzzyRelation(Universe rowUniverse, Universe columnUniverse, double[] memberships) {
+		this.rowUniverse = rowUniverse;
+		this.columnUniverse = columnUniverse;
+		this.rows = rowUniverse.size();
+		this.columns = columnUniverse.size();
+		this.memberships = memberships;
+	}
+	
+	
+	
+	private static int pairCount(int rows, int columns) {
+		
+		long pairs = (long) rows * columns;
+		
+		if (pairs > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Relation of " + rows + " x " + columns + " pairs is too large to be stored densely, use SparseFuzzyRelation.");
+		
+		return (int) pairs;
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of the rows.
+	 */
+	public Universe getRowUniverse() {
+		
+		return rowUniverse;
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of the columns.
+	 */
+	public Universe getColumnUniverse() {
+		
+		return columnUniverse;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of rows, the size of the row universe when the relation was created.
+	 */
+	public int rowCount() {
+		
+		return rows;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of columns, the size of the column universe when the relation was created.
+	 */
+	public int columnCount() {
+		
+		return columns;
+	}
+	
+	
+	
+	private void checkPair(int row, int column) {
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new IndexOutOfBoundsException("Pair (" + row + ", " + column + ") is not in relation of " + rows + " x " + columns);
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the pair of elements with the given ids.
+	 * 
+	 * @param row
+	 *            Id of the element in the row universe
+	 * @param column
+	 *            Id of the element in the column universe
+	 * @return Membership value of the pair
+	 */
+	public double getMembershipValue(int row, int column) {
+		
+		checkPair(row, column);
+		return memberships[row * columns + column];
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the pair of elements. Pairs whose elements do not belong to the relation have 0
+	 * membership value.
+	 * 
+	 * @param x
+	 *            Element of the row universe
+	 * @param y
+	 *            Element of the column universe
+	 * @return Membership value of the pair
+	 */
+	public double getMembershipValue(Element x, Element y) {
+		
+		int row = rowUniverse.indexOf(x), column = columnUniverse.indexOf(y);
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			return 0.0;
+		
+		return memberships[row * columns + column];
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the pair of elements with the given ids.
+	 * 
+	 * @param row
+	 *            Id of the element in the row universe
+	 * @param column
+	 *            Id of the element in the column universe
+	 * @param value
+	 *            Membership value of the pair
+	 * @return The present relation
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 */
+	public DiscreteFuzzyRelation setMembershipValue(int row, int column, double value) throws MembershipOutOfRangeException {
+		
+		if (value < 0 || value > 1)
+			throw new MembershipOutOfRangeException();
+		
+		checkPair(row, column);
+		memberships[row * columns + column] = value;
+		
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the pair of elements.
+	 * 
+	 * @param x
+	 *            Element of the row universe
+	 * @param y
+	 *            Element of the column universe
+	 * @param value
+	 *            Membership value of the pair
+	 * @return The present relation
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 * @throws IllegalArgumentException
+	 *             If an element does not belong to the relation
+	 */
+	public DiscreteFuzzyRelation setMembershipValue(Element x, Element y, double value) throws MembershipOutOfRangeException {
+		
+		int row = rowUniverse.indexOf(x), column = columnUniverse.indexOf(y);
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new IllegalArgumentException("Pair (" + x + ", " + y + ") does not belong to the relation.");
+		
+		return setMembershipValue(row, column, value);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-min composition of this relation with the given one. If this relation relates X to Y and the
+	 * given one relates Y to Z, the result relates X to Z with</br>
+	 * </br>
+	 * membership value of (x, z) = maximum over y of the minimum of membership values of (x, y) and (y, z)
+	 * 
+	 * @param relation
+	 *            Relation whose row universe is the column universe of this relation
+	 * @return New relation between the rows of this relation and the columns of the given one
+	 * @throws IllegalArgumentException
+	 *             If the universes do not match
+	 */
+	public DiscreteFuzzyRelation compose(DiscreteFuzzyRelation relation) {
+		
+		return compose(relation, false);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-product composition of this relation with the given one. It is the same as
+	 * {@linkplain #compose(DiscreteFuzzyRelation)} except that the membership values of (x, y) and (y, z) are
+	 * multiplied instead of taking their minimum.
+	 * 
+	 * @param relation
+	 *            Relation whose row universe is the column universe of this relation
+	 * @return New relation between the rows of this relation and the columns of the given one
+	 * @throws IllegalArgumentException
+	 *             If the universes do not match
+	 */
+	public DiscreteFuzzyRelation composeMaxProduct(DiscreteFuzzyRelation relation) {
+		
+		return compose(relation, true);
+	}
+	
+	
+	
+	private DiscreteFuzzyRelation compose(DiscreteFuzzyRelation relation, boolean product) {
+		
+		if (relation.rowUniverse != columnUniverse || relation.rows != columns)
+			throw new IllegalArgumentException("Row universe of the relation must be the column universe of this relation.");
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		double[] left = memberships, right = relation.memberships;
+		int inner = columns, resultColumns = relation.columns;
+		double[] result = new double[pairCount(rows, resultColumns)];
+		
+		if (rows > BLOCK_ROWS && ParallelChunks.parallel((int) Math.min((long) rows * inner * resultColumns / BLOCK_INNER, Integer.MAX_VALUE)))
+			ParallelChunks.forEachChunk(rows, BLOCK_ROWS, (chunk, from, to) -> multiply(left, right, result, inner, resultColumns, from, to, product));
+		else
+			multiply(left, right, result, inner, resultColumns, 0, rows, product);
+		
+		FuzzyEvents.setOperation(event, product ? "maxProductComposition" : "maxMinComposition", rows, resultColumns, result.length);
+		
+		return new DiscreteFuzzyRelation(rowUniverse, relation.columnUniverse, result);
+	}
+	
+	
+	
+	/**
+	 * Computes the rows from (inclusive) to (exclusive) of the composition of left and right into result. The loops
+	 * are blocked so that the part of right which is used repeatedly stays in cache, and the innermost loop runs along
+	 * a row of right and of the result.
+	 */
+	private static void multiply(double[] left, double[] right, double[] result, int inner, int columns, int from, int to, boolean product) {
+		
+		for (int k0 = 0; k0 < inner; k0 += BLOCK_INNER) {
+			int k1 = Math.min(k0 + BLOCK_INNER, inner);
+			
+			for (int j0 = 0; j0 < columns; j0 += BLOCK_COLUMNS) {
+				int j1 = Math.min(j0 + BLOCK_COLUMNS, columns);
+				
+				for (int i = from; i < to; i++) {
+					int leftRow = i * inner, resultRow = i * columns;
+					
+					for (int k = k0; k < k1; k++) {
+						double a = left[leftRow + k];
+						
+						// a pair with 0 membership value cannot raise the maximum
+						if (a == 0)
+							continue;
+						
+						int rightRow = k * columns - resultRow;
+						
+						if (product) {
+							for (int j = resultRow + j0; j < resultRow + j1; j++) {
+								double value = a * right[rightRow + j];
+								
+								if (value > result[j])
+									result[j] = value;
+							}
+						}
+						else {
+							for (int j = resultRow + j0; j < resultRow + j1; j++) {
+								double b = right[rightRow + j];
+								double value = (a < b) ? a : b;
+								
+								if (value > result[j])
+									result[j] = value;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	
+	
+	/**
+	 * Performs the max-min composition of a set with this relation. If the set is over X and this relation relates X
+	 * to Y, the result is a set over Y with</br>
+	 * </br>
+	 * membership value of y = maximum over x of the minimum of membership values of x and (x, y)
+	 * </br>
+	 * It is the compositional rule of inference.
+	 * 
+	 * @param fuzzySet
+	 *            Set over the row universe of this relation
+	 * @return New set over the column universe of this relation
+	 * @throws IllegalArgumentException
+	 *             If the set is not over the row universe
+	 */
+	public DenseDiscreteFuzzySet compose(DenseDiscreteFuzzySet fuzzySet) {
+		
+		if (fuzzySet.getUniverse() != rowUniverse)
+			throw new IllegalArgumentException("Set must belong to the row universe of the relation.");
+		
+		return composeSet(fuzzySet.memberships(), false);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-product composition of a set with this relation. It is the same as
+	 * {@linkplain #compose(DenseDiscreteFuzzySet)} except that the membership values are multiplied instead of taking
+	 * their minimum.
+	 * 
+	 * @param fuzzySet
+	 *            Set over the row universe of this relation
+	 * @return New set over the column universe of this relation
+	 * @throws IllegalArgumentException
+	 *             If the set is not over the row universe
+	 */
+	public DenseDiscreteFuzzySet composeMaxProduct(DenseDiscreteFuzzySet fuzzySet) {
+		
+		if (fuzzySet.getUniverse() != rowUniverse)
+			throw new IllegalArgumentException("Set must belong to the row universe of the relation.");
+		
+		return composeSet(fuzzySet.memberships(), true);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-min composition of a set with this relation. Members of the set which do not belong to the row
+	 * universe are ignored, as they are not related to any element.
+	 * 
+	 * @param fuzzySet
+	 *            Set of elements of the row universe
+	 * @return New set over the column universe of this relation
+	 * @see #compose(DenseDiscreteFuzzySet)
+	 */
+	public DenseDiscreteFuzzySet compose(DiscreteFuzzySet fuzzySet) {
+		
+		return composeSet(rowVector(fuzzySet), false);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-product composition of a set with this relation. Members of the set which do not belong to the
+	 * row universe are ignored, as they are not related to any element.
+	 * 
+	 * @param fuzzySet
+	 *            Set of elements of the row universe
+	 * @return New set over the column universe of this relation
+	 * @see #composeMaxProduct(DenseDiscreteFuzzySet)
+	 */
+	public DenseDiscreteFuzzySet composeMaxProduct(DiscreteFuzzySet fuzzySet) {
+		
+		return composeSet(rowVector(fuzzySet), true);
+	}
+	
+	
+	
+	/**
+	 * Returns the membership values of the set indexed by the row ids.
+	 */
+	private double[] rowVector(DiscreteFuzzySet fuzzySet) {
+		
+		double[] vector = new double[rows];
+		ElementMembershipMap map = fuzzySet.map();
+		
+		for (int i = 0; i < map.size(); i++) {
+			int row = rowUniverse.indexOf(map.keyAt(i));
+			
+			if (row >= 0 && row < rows)
+				vector[row] = map.valueAt(i);
+		}
+		
+		return vector;
+	}
+	
+	
+	
+	private DenseDiscreteFuzzySet composeSet(double[] vector, boolean product) {
+		
+		double[] result = new double[columns];
+		int length = Math.min(vector.length, rows);
+		
+		if (ParallelChunks.parallel((int) Math.min((long) length * columns / BLOCK_ROWS, Integer.MAX_VALUE)))
+			ParallelChunks.forEachChunk(columns, BLOCK_COLUMNS, (chunk, from, to) -> multiplyVector(vector, length, result, from, to, product));
+		else
+			multiplyVector(vector, length, result, 0, columns, product);
+		
+		return new DenseDiscreteFuzzySet(columnUniverse, result);
+	}
+	
+	
+	
+	/**
+	 * Computes the columns from (inclusive) to (exclusive) of the composition of the vector with this relation.
+	 */
+	private void multiplyVector(double[] vector, int length, double[] result, int from, int to, boolean product) {
+		
+		for (int i = 0; i < length; i++) {
+			double a = vector[i];
+			
+			if (a == 0)
+				continue;
+			
+			int row = i * columns;
+			
+			for (int j = from; j < to; j++) {
+				double b = memberships[row + j];
+				double value = product ? a * b : (a < b) ? a : b;
+				
+				if (value > result[j])
+					result[j] = value;
+			}
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the projection of this relation on the row universe. The membership value of x is the maximum membership
+	 * value of the pairs (x, y) over all y.
+	 * 
+	 * @return New set over the row universe
+	 */
+	public DenseDiscreteFuzzySet projectRows() {
+		
+		double[] projection = new double[rows];
+		
+		for (int i = 0; i < rows; i++) {
+			double max = 0;
+			
+			for (int j = i * columns; j < (i + 1) * columns; j++)
+				if (memberships[j] > max)
+					max = memberships[j];
+			
+			projection[i] = max;
+		}
+		
+		return new DenseDiscreteFuzzySet(rowUniverse, projection);
+	}
+	
+	
+	
+	/**
+	 * Returns the projection of this relation on the column universe. The membership value of y is the maximum
+	 * membership value of the pairs (x, y) over all x.
+	 * 
+	 * @return New set over the column universe
+	 */
+	public DenseDiscreteFuzzySet projectColumns() {
+		
+		double[] projection = new double[columns];
+		
+		for (int i = 0; i < rows; i++)
+			for (int j = 0, pair = i * columns; j < columns; j++, pair++)
+				if (memberships[pair] > projection[j])
+					projection[j] = memberships[pair];
+		
+		return new DenseDiscreteFuzzySet(columnUniverse, projection);
+	}
+	
+	
+	
+	/**
+	 * Returns the cylindrical extension of a set over the rows. Every pair (x, y) has the membership value of x in the
+	 * set.
+	 * 
+	 * @param fuzzySet
+	 *            Set over the row universe
+	 * @param columnUniverse
+	 *            Universe of the columns
+	 * @return New relation between the universe of the set and the column universe
+	 */
+	public static DiscreteFuzzyRelation extendRows(DenseDiscreteFuzzySet fuzzySet, Universe columnUniverse) {
+		
+		DiscreteFuzzyRelation relation = new DiscreteFuzzyRelation(fuzzySet.getUniverse(), columnUniverse);
+		int columns = relation.columns;
+		
+		for (int i = 0; i < relation.rows; i++)
+			Arrays.fill(relation.memberships, i * columns, (i + 1) * columns, fuzzySet.getMembershipValue(i));
+		
+		return relation;
+	}
+	
+	
+	
+	/**
+	 * Returns the cylindrical extension of a set over the columns. Every pair (x, y) has the membership value of y in
+	 * the set.
+	 * 
+	 * @param rowUniverse
+	 *            Universe of the rows
+	 * @param fuzzySet
+	 *            Set over the column universe
+	 * @return New relation between the row universe and the universe of the set
+	 */
+	public static DiscreteFuzzyRelation extendColumns(Universe rowUniverse, DenseDiscreteFuzzySet fuzzySet) {
+		
+		DiscreteFuzzyRelation relation = new DiscreteFuzzyRelation(rowUniverse, fuzzySet.getUniverse());
+		int columns = relation.columns;
+		double[] row = new double[columns];
+		
+		for (int j = 0; j < columns; j++)
+			row[j] = fuzzySet.getMembershipValue(j);
+		
+		for (int i = 0; i < relation.rows; i++)
+			System.arraycopy(row, 0, relation.memberships, i * columns, columns);
+		
+		return relation;
+	}
+	
+	
+	
+	/**
+	 * Returns the array of membership values, row by row. The array is shared.
+	 */
+	double[] memberships() {
+		
+		return memberships;
+	}
+	
+	
+	
+	/**
+	 * Returns the string representation of the relation. Each pair having membership value greater than 0 is
+	 * represented by <code>((x, y), membershipValue)</code>.
+	 */
+	@Override
+	public String toString() {
+		
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("[ ");
+		
+		for (int i = 0, pair = 0; i < rows; i++)
+			for (int j = 0; j < columns; j++, pair++) {
+				if (memberships[pair] == 0)
+					continue;
+				
+				buffer.append((buffer.length() == 2) ? "((" : ",((");
+				buffer.append(rowUniverse.get(i)).append(',').append(columnUniverse.get(j));
+				buffer.append("),").append(memberships[pair]).append(')');
+			}
+		
+		buffer.append(" ]");
+		
+		return buffer.toString();
+	}
+	
+}
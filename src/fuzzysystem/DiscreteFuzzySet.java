@@ -1,14 +1,22 @@
 package fuzzysystem;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ObjDoubleConsumer;
 import java.util.function.Predicate;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.logging.Level;
-
-import com.sun.istack.internal.logging.Logger;
+import java.util.logging.Logger;
 
 import fuzzysystem.exceptions.MembershipOutOfRangeException;
+import fuzzysystem.monitoring.FuzzyEvents;
+import fuzzysystem.monitoring.SetOperationEvent;
 
 
 
@@ -33,10 +41,10 @@ import fuzzysystem.exceptions.MembershipOutOfRangeException;
  * </p>
  * 
  * <p>
- * This class is implemented using {@linkplain HashMap}. Each member of the set is represented by instance of
- * {@linkplain Element}.
- * The membership value is a {@linkplain Double}. Each member can independently can be represented by
- * {@linkplain Singleton} instance,
+ * This class is implemented using {@linkplain ElementMembershipMap}, an open addressing table which keeps the members
+ * in parallel arrays. Each member of the set is represented by instance of {@linkplain Element}.
+ * The membership value is a primitive <i>double</i> and is never boxed. Each member can independently can be
+ * represented by {@linkplain Singleton} instance,
  * but it should be avoided. Discrete fuzzy set is implemented using primitive <i>double</i> so there will be some loss
  * in precision.
  * </p>
@@ -47,6 +55,9 @@ import fuzzysystem.exceptions.MembershipOutOfRangeException;
  * a <i>universal set</i>. Then create discrete fuzzy sets using any of the given constructor and add the members to it
  * from <i>universal set</i>.Then you will be able to perform any operation
  * on the sets using the provided methods. You can also add membership values using continuous membership functions.
+ * The universal set can be represented by {@linkplain Universe}. When the sets cover a large part of a fixed universe,
+ * {@linkplain DenseDiscreteFuzzySet} stores them as arrays indexed by element id and performs the operations without
+ * hashing.
  * </p>
  * 
  * <p>
@@ -59,7 +70,7 @@ import fuzzysystem.exceptions.MembershipOutOfRangeException;
  * 
  * @author Aniket Kumar Tripathi
  * @version 1.0
- *
+ * 
  * @see
  * 		Set</br>
  *      AbstractFuzzySet
@@ -67,11 +78,23 @@ import fuzzysystem.exceptions.MembershipOutOfRangeException;
 
 public class DiscreteFuzzySet {
 	
+	private static final Logger LOGGER = Logger.getLogger(DiscreteFuzzySet.class.getName());
+	
+	/**
+	 * Number of initial intervals of the adaptive sampling of a membership function.
+	 */
+	public static final int DISCRETIZATION_INTERVALS = 32;
+	
+	/**
+	 * Maximum number of times an interval of the adaptive sampling of a membership function is split in halves.
+	 */
+	public static final int DISCRETIZATION_DEPTH = 24;
+	
 	/**
 	 * The discrete fuzzy set is implemented through a map. The keys are the {@linkplain Element} elements and the value
 	 * to the keys are the membership value.
 	 */
-	private final HashMap<Element, Double> map;
+	private final ElementMembershipMap map;
 	
 	/**
 	 * It sets whether the fuzzy set will be cleaned after the operations which modifies the set. Refer to the class
@@ -80,13 +103,28 @@ public class DiscreteFuzzySet {
 	 */
 	private boolean autoClean;
 	
+	/**
+	 * Index of the members ordered by membership value, or null if it is not enabled.
+	 */
+	private MembershipIndex index;
+	
+	/**
+	 * Cached result of {@linkplain #fingerprint()}. It is valid if {@linkplain #fingerprinted} is true and
+	 * {@linkplain ElementMembershipMap#modifications} has not changed since it was computed.
+	 */
+	private long fingerprint;
+	
+	private int fingerprintModifications;
+	
+	private boolean fingerprinted;
+	
 	
 	
 	/**
 	 * Create a discrete fuzzy set instance specifying the capacity.
 	 */
 	public DiscreteFuzzySet(int capacity) {
-		map = new HashMap<Element, Double>(capacity);
+		map = new ElementMembershipMap(capacity);
 		autoClean = false;
 	}
 	
@@ -96,7 +134,7 @@ public class DiscreteFuzzySet {
 	 * Create a discrete fuzzy set with default capacity of 20 members.
 	 */
 	public DiscreteFuzzySet() {
-		map = new HashMap<Element, Double>(20); // default capacity 20
+		map = new ElementMembershipMap(20); // default capacity 20
 		autoClean = false;
 	}
 	
@@ -108,7 +146,7 @@ public class DiscreteFuzzySet {
 	 * it.
 	 */
 	public DiscreteFuzzySet(int capacity, boolean autoClean) {
-		map = new HashMap<Element, Double>(capacity);
+		map = new ElementMembershipMap(capacity);
 		this.autoClean = autoClean;
 	}
 	
@@ -120,12 +158,262 @@ public class DiscreteFuzzySet {
 	 * it.
 	 */
 	public DiscreteFuzzySet(boolean autoClean) {
-		map = new HashMap<Element, Double>(20);
+		map = new ElementMembershipMap(20);
 		this.autoClean = autoClean;
 	}
 	
 	
 	
+	/**
+	 * Create a discrete fuzzy set using the given storage.
+	 */
+	private DiscreteFuzzySet(ElementMembershipMap map) {
+		this.map = map;
+		autoClean = false;
+	}
+	
+	
+	
+	/**
+	 * Creates a discrete fuzzy set containing every element of the universe with the membership value calculated by
+	 * the given membership function. It gives the same set as adding every element with
+	 * {@linkplain #add(Element, AbstractFuzzySet)}, but the membership values are calculated in bulk with
+	 * {@linkplain AbstractFuzzySet#getMembershipValues(double[], double[], int, int)}, in parallel for a large
+	 * universe, and the storage is created at its final size without hashing the elements.
+	 * 
+	 * @param universe
+	 *            Elements of the new set
+	 * @param membershipFunction
+	 *            Membership function evaluated at the value of every element. It may be called from many threads.
+	 * @return New fuzzy set
+	 */
+	public static DiscreteFuzzySet fromFunction(Universe universe, AbstractFuzzySet membershipFunction) {
+		
+		return fromFunctions(universe, membershipFunction)[0];
+	}
+	
+	
+	
+	/**
+	 * Creates a discrete fuzzy set for each of the given membership functions, as by
+	 * {@linkplain #fromFunction(Universe, AbstractFuzzySet)}. The universe is traversed once for all the functions, so
+	 * the terms of a linguistic variable can be fuzzified together.
+	 * 
+	 * @param universe
+	 *            Elements of the new sets
+	 * @param membershipFunctions
+	 *            Membership functions evaluated at the value of every element. They may be called from many threads.
+	 * @return New fuzzy sets, the set at index i being the one of the membership function at index i
+	 */
+	public static DiscreteFuzzySet[] fromFunctions(Universe universe, AbstractFuzzySet... membershipFunctions) {
+		
+		int size = universe.size();
+		double[] xValues = universe.values();
+		double[][] memberships = new double[membershipFunctions.length][xValues.length];
+		
+		ParallelChunks.ChunkAction action = (chunk, from, to) -> {
+			for (int i = 0; i < membershipFunctions.length; i++)
+				membershipFunctions[i].getMembershipValues(xValues, memberships[i], from, to);
+		};
+		
+		if (ParallelChunks.parallel((int) Math.min((long) size * membershipFunctions.length, Integer.MAX_VALUE)))
+			ParallelChunks.forEachChunk(size, action);
+		else
+			action.apply(0, 0, size);
+		
+		DiscreteFuzzySet[] fuzzySets = new DiscreteFuzzySet[membershipFunctions.length];
+		
+		for (int i = 0; i < fuzzySets.length; i++)
+			fuzzySets[i] = new DiscreteFuzzySet(universe.membershipMap(memberships[i]));
+		
+		return fuzzySets;
+	}
+	
+	
+	
+	/**
+	 * Creates a discrete fuzzy set containing the given elements with the membership value calculated by the given
+	 * membership function. If an element is given more than once it is added once. The membership values are
+	 * calculated in bulk, in parallel for a large array, and the set is created with the capacity for all the elements.
+	 * 
+	 * @param elements
+	 *            Elements of the new set
+	 * @param membershipFunction
+	 *            Membership function evaluated at the value of every element. It may be called from many threads.
+	 * @return New fuzzy set
+	 */
+	public static DiscreteFuzzySet fromFunction(Element[] elements, AbstractFuzzySet membershipFunction) {
+		
+		int size = elements.length;
+		double[] xValues = new double[size], memberships = new double[size];
+		
+		ParallelChunks.ChunkAction action = (chunk, from, to) -> {
+			for (int i = from; i < to; i++)
+				xValues[i] = elements[i].getValue();
+			
+			membershipFunction.getMembershipValues(xValues, memberships, from, to);
+		};
+		
+		if (ParallelChunks.parallel(size))
+			ParallelChunks.forEachChunk(size, action);
+		else
+			action.apply(0, 0, size);
+		
+		DiscreteFuzzySet fuzzySet = new DiscreteFuzzySet(size);
+		
+		for (int i = 0; i < size; i++)
+			fuzzySet.map.put(elements[i], memberships[i]);
+		
+		return fuzzySet;
+	}
+	
+	
+	
+	/**
+	 * Creates a discrete fuzzy set sampling the membership function between xLower and xUpper, with the samples placed
+	 * adaptively. Calls {@linkplain #fromFunction(AbstractFuzzySet, double, double, double, int)} with
+	 * {@linkplain #DISCRETIZATION_INTERVALS} initial intervals.
+	 */
+	public static DiscreteFuzzySet fromFunction(AbstractFuzzySet membershipFunction, double xLower, double xUpper, double maxError) {
+		
+		return fromFunction(membershipFunction, xLower, xUpper, maxError, DISCRETIZATION_INTERVALS);
+	}
+	
+	
+	
+	/**
+	 * <p>
+	 * Creates a discrete fuzzy set sampling the membership function between xLower and xUpper, with the samples placed
+	 * adaptively. Every sample is a member whose element is a new {@linkplain Element} having the sample point as value,
+	 * and the members are added in increasing order of the point.
+	 * </p>
+	 * 
+	 * <p>
+	 * The range is first divided into the given number of equal intervals. An interval is accepted when the membership
+	 * values at its quarter, middle and three quarter points differ from the straight line between its ends by at most
+	 * maxError, otherwise it is split in halves. Flat or straight parts of the function, like the plateau of a
+	 * trapezoid or the tails of a gaussian, therefore get few samples and curved parts get many. An interval is not
+	 * split more than {@linkplain #DISCRETIZATION_DEPTH} times, which bounds the samples at a discontinuity. A feature
+	 * narrower than a quarter of an initial interval may be missed, so more initial intervals should be given for
+	 * narrow shapes.
+	 * </p>
+	 * 
+	 * @param membershipFunction
+	 *            Function to sample
+	 * @param xLower
+	 *            First sample point
+	 * @param xUpper
+	 *            Last sample point
+	 * @param maxError
+	 *            Maximum difference between the function and the linear interpolation of the samples at the checked
+	 *            points
+	 * @param intervals
+	 *            Number of initial intervals
+	 * @return New fuzzy set
+	 * @throws IllegalArgumentException
+	 *             If the range is not finite or xLower > xUpper, maxError is not positive or intervals is less than 1
+	 */
+	public static DiscreteFuzzySet fromFunction(AbstractFuzzySet membershipFunction, double xLower, double xUpper, double maxError, int intervals) {
+		
+		if (!(xLower <= xUpper) || Double.isInfinite(xLower) || Double.isInfinite(xUpper))
+			throw new IllegalArgumentException("Invalid range : [" + xLower + ", " + xUpper + "]");
+		
+		if (!(maxError > 0))
+			throw new IllegalArgumentException("Maximum error must be positive : " + maxError);
+		
+		if (intervals < 1)
+			throw new IllegalArgumentException("Number of intervals must be at least 1 : " + intervals);
+		
+		if (xLower == xUpper)
+			intervals = 1;
+		
+		double[] points = new double[intervals * 2 + 1], memberships = new double[points.length];
+		int count = 0;
+		
+		// Pending intervals, the leftmost on top. An interval is stored with its middle point as it was evaluated by
+		// the check of its parent.
+		int capacity = intervals + DISCRETIZATION_DEPTH + 1;
+		double[] lower = new double[capacity], upper = new double[capacity], middle = new double[capacity];
+		double[] lowerValue = new double[capacity], upperValue = new double[capacity], middleValue = new double[capacity];
+		int[] depth = new int[capacity];
+		int top = 0;
+		
+		double width = (xUpper - xLower) / intervals;
+		double upperEnd = membershipFunction.getMembershipValue(xUpper);
+		double next = xUpper, nextValue = upperEnd;
+		
+		for (int i = intervals - 1; i >= 0; i--) {
+			double x = (i == 0) ? xLower : xLower + i * width;
+			double xMiddle = xLower + (i + 0.5) * width;
+			
+			lower[top] = x;
+			lowerValue[top] = membershipFunction.getMembershipValue(x);
+			upper[top] = next;
+			upperValue[top] = nextValue;
+			middle[top] = xMiddle;
+			middleValue[top] = membershipFunction.getMembershipValue(xMiddle);
+			depth[top++] = 0;
+			next = x;
+			nextValue = lowerValue[top - 1];
+		}
+		
+		while (top > 0) {
+			top--;
+			double a = lower[top], b = upper[top], m = middle[top];
+			double fa = lowerValue[top], fb = upperValue[top], fm = middleValue[top];
+			double q1 = (a + m) * 0.5, q3 = (m + b) * 0.5;
+			double fq1 = membershipFunction.getMembershipValue(q1), fq3 = membershipFunction.getMembershipValue(q3);
+			
+			boolean accepted = depth[top] >= DISCRETIZATION_DEPTH || q1 <= a || q3 >= b
+					|| (Math.abs(fm - (fa + fb) * 0.5) <= maxError
+							&& Math.abs(fq1 - (0.75 * fa + 0.25 * fb)) <= maxError
+							&& Math.abs(fq3 - (0.25 * fa + 0.75 * fb)) <= maxError);
+			
+			if (accepted) {
+				if (count + 1 >= points.length) {
+					points = Arrays.copyOf(points, points.length * 2);
+					memberships = Arrays.copyOf(memberships, points.length);
+				}
+				
+				points[count] = a;
+				memberships[count++] = fa;
+				continue;
+			}
+			
+			int childDepth = depth[top] + 1;
+			
+			lower[top] = m;
+			lowerValue[top] = fm;
+			upper[top] = b;
+			upperValue[top] = fb;
+			middle[top] = q3;
+			middleValue[top] = fq3;
+			depth[top++] = childDepth;
+			
+			lower[top] = a;
+			lowerValue[top] = fa;
+			upper[top] = m;
+			upperValue[top] = fm;
+			middle[top] = q1;
+			middleValue[top] = fq1;
+			depth[top++] = childDepth;
+		}
+		
+		if (xUpper > xLower) {
+			points[count] = xUpper;
+			memberships[count++] = upperEnd;
+		}
+		
+		DiscreteFuzzySet fuzzySet = new DiscreteFuzzySet(count);
+		
+		for (int i = 0; i < count; i++)
+			fuzzySet.map.put(new Element(points[i]), memberships[i]);
+		
+		return fuzzySet;
+	}
+	
+	
+	
 	/**
 	 * This method adds a member to the fuzzy set having a valid membership value.
 	 * 
@@ -188,6 +476,49 @@ public class DiscreteFuzzySet {
 	
 	
 	
+	/**
+	 * Adds count members at once. All the membership values are validated before any member is added, so the set is
+	 * left unchanged if one of them is invalid. Later members replace earlier ones having the same element.
+	 * 
+	 * @param elements
+	 *            Elements of the members
+	 * @param values
+	 *            Membership values of the members, at the same index as their element
+	 * @param count
+	 *            Number of members to add from the start of the arrays
+	 * @return The present set.
+	 * @throws MembershipOutOfRangeException
+	 *             If a membership value is beyond [0,1] inclusive or is NaN. Its
+	 *             {@linkplain MembershipOutOfRangeException#getIndex() index} is that of the first invalid value.
+	 */
+	public DiscreteFuzzySet addAll(Element[] elements, double[] values, int count) throws MembershipOutOfRangeException {
+		
+		double min = 0, max = 0;
+		
+		for (int i = 0; i < count; i++) {
+			min = Math.min(min, values[i]);
+			max = Math.max(max, values[i]);
+		}
+		
+		if (!(min >= 0 && max <= 1)) {
+			int invalid = 0;
+			
+			while (values[invalid] >= 0 && values[invalid] <= 1)
+				++invalid;
+			
+			throw new MembershipOutOfRangeException("Membership value " + values[invalid] + " of member " + invalid + " is beyond [0,1].", invalid);
+		}
+		
+		map.ensureCapacity(map.size() + count);
+		
+		for (int i = 0; i < count; i++)
+			map.put(elements[i], values[i]);
+		
+		return this;
+	}
+	
+	
+	
 	/**
 	 * Removes a member from this set if it is present.
 	 * 
@@ -243,7 +574,7 @@ public class DiscreteFuzzySet {
 	 */
 	public boolean belongs(Element element) {
 		
-		return (contains(element) && map.get(element) > 0);
+		return map.get(element) > 0;
 	}
 	
 	
@@ -252,7 +583,7 @@ public class DiscreteFuzzySet {
 	 * This methods returns the membership value of the specified element. If the set contains the element then the its
 	 * membership value is returned which is stored in the set. Otherwise 0 is return. All the elements which are not
 	 * present
-	 * in the fuzzy set are assumed to have 0 membership value.
+	 * in the fuzzy set are assumed to have 0 membership value. The lookup probes the storage only once.
 	 * 
 	 * @param element
 	 *            Element whose membership value is to b
@@ -260,19 +591,125 @@ public class DiscreteFuzzySet {
 	 */
 	public double getMembershipValue(Element element) {
 		
-		return (contains(element)) ? map.get(element) : 0.0;
+		return map.get(element);
 	}
 	
 	
 	
 	/**
-	 * Returns the iterator associated with the set.
+	 * Returns the iterator associated with the set. The iterator supports removal of the current member.
 	 * 
 	 * @return Iterator instance associated with the set.
 	 */
 	public Iterator<Element> iterator() {
 		
-		return map.keySet().iterator();
+		return new Iterator<Element>() {
+			
+			private int next = 0;
+			
+			private boolean removable = false;
+			
+			
+			
+			@Override
+			public boolean hasNext() {
+				
+				return next < map.size();
+			}
+			
+			
+			
+			@Override
+			public Element next() {
+				
+				if (next >= map.size())
+					throw new NoSuchElementException();
+				
+				removable = true;
+				return map.keyAt(next++);
+			}
+			
+			
+			
+			@Override
+			public void remove() {
+				
+				if (!removable)
+					throw new IllegalStateException();
+				
+				// the last member is moved to the removed entry, so it is visited next
+				map.removeAt(--next);
+				removable = false;
+			}
+		};
+	}
+	
+	
+	
+	/**
+	 * Performs the given action for each member of this set, supplying the element and its membership value. Nothing is
+	 * allocated and the membership value is not looked up. The set must not be modified by the action.
+	 * 
+	 * @param action
+	 *            Action to be performed for each member
+	 */
+	public void forEach(ObjDoubleConsumer<? super Element> action) {
+		
+		for (int i = 0; i < map.size(); i++)
+			action.accept(map.keyAt(i), map.valueAt(i));
+	}
+	
+	
+	
+	/**
+	 * Returns a cursor positioned before the first member of this set. A cursor can be rewound or moved to another set,
+	 * so a single instance can be used for any number of traversals.
+	 * 
+	 * @return New cursor over the members of this set
+	 */
+	public MemberCursor cursor() {
+		
+		return new MemberCursor(this);
+	}
+	
+	
+	
+	/**
+	 * Returns a spliterator over the members of this set. Besides the elements, it can supply each element together
+	 * with its membership value, without creating a {@linkplain Singleton} or looking up the value again. It is sized
+	 * exactly and splits evenly. The set must not be modified while it is in use.
+	 * 
+	 * @return Spliterator over the members of this set
+	 */
+	public MemberSpliterator spliterator() {
+		
+		return new MemberSpliterator(map, 0, map.size());
+	}
+	
+	
+	
+	/**
+	 * Returns a sequential stream of the elements of this set. Call {@linkplain Stream#parallel()} on it to process the
+	 * members in parallel.
+	 * 
+	 * @return Stream of the elements of this set
+	 */
+	public Stream<Element> stream() {
+		
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	
+	
+	/**
+	 * Returns a sequential stream of the membership values of the members of this set. The values are read directly
+	 * from the storage of this set and are never boxed.
+	 * 
+	 * @return Stream of the membership values of this set
+	 */
+	public DoubleStream membershipStream() {
+		
+		return StreamSupport.doubleStream(new MemberSpliterator.OfMembership(map.values, 0, map.size()), false);
 	}
 	
 	
@@ -286,19 +723,7 @@ public class DiscreteFuzzySet {
 	 */
 	public int clean() {
 		
-		int count = 0;
-		Iterator<Element> iterator = iterator();
-		Element element;
-		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			
-			if (contains(element) && map.get(element) < 0.00000001) {
-				iterator.remove();
-				++count;
-			}
-		}
-		return count;
+		return map.removeIf(entry -> map.valueAt(entry) < 0.00000001);
 	}
 	
 	
@@ -318,130 +743,463 @@ public class DiscreteFuzzySet {
 	 */
 	public DiscreteFuzzySet union(DiscreteFuzzySet fuzzySet) {
 		
-		DiscreteFuzzySet unionSet = new DiscreteFuzzySet(size() + fuzzySet.size());
+		return union(fuzzySet, new DiscreteFuzzySet(size() + fuzzySet.size()));
+	}
+	
+	
+	
+	/**
+	 * Performs union of this set with the given set and stores it in the destination set. The previous members of the
+	 * destination are removed but its storage is reused, so repeating operations into the same destination does not
+	 * allocate. If the destination is this set, it is the same as {@linkplain #unionInPlace(DiscreteFuzzySet)}.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom union is to be performed.
+	 * @param destination
+	 *            Set receiving the union. It must not be fuzzySet.
+	 * @return destination
+	 */
+	public DiscreteFuzzySet union(DiscreteFuzzySet fuzzySet, DiscreteFuzzySet destination) {
 		
-		Iterator<Element> iterator = iterator();
-		Element element;
+		if (destination == this)
+			return unionInPlace(fuzzySet);
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			unionSet.map.put(element, Math.max(map.get(element), fuzzySet.getMembershipValue(element)));
-		}
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
 		
-		iterator = fuzzySet.iterator();
+		ElementMembershipMap unionMap = prepareDestination(fuzzySet, destination, size() + fuzzySet.size());
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			
-			if (!unionSet.contains(element)) unionSet.map.put(element, fuzzySet.getMembershipValue(element));
+		for (int i = 0; i < map.size(); i++) {
+			Element element = map.keyAt(i);
+			unionMap.put(element, Math.max(map.valueAt(i), fuzzySet.map.get(element)));
 		}
 		
+		for (int i = 0; i < fuzzySet.map.size(); i++)
+			unionMap.putIfAbsent(fuzzySet.map.keyAt(i), fuzzySet.map.valueAt(i));
+		
 		if (autoClean)
-			unionSet.clean();
+			destination.clean();
 		
-		return unionSet;
+		FuzzyEvents.setOperation(event, "union", size(), fuzzySet.size(), destination.size());
+		
+		return destination;
 	}
 	
 	
 	
 	/**
-	 * Performs intersection of this set with the given set. The intersection operation for the fuzzy set can be defined
-	 * as follows</br>
-	 * </br>
-	 * membership value of element <u>X</u> in <u>A <b>Intersection</b> B </u> = minimum of membership value of <u>X</u>
-	 * in <u>A</u> and <u>B</u>
-	 * </br>
-	 * for every <u>X</u> in <u>A</u> and <u>B</u>
+	 * Performs union of this set with the given set and stores it in this set. No new set is created.
 	 * 
 	 * @param fuzzySet
-	 *            Set with whom intersection is to be performed.
-	 * @return new set containing union of set <u>A</u> and <u>B</u>
+	 *            Set with whom union is to be performed.
+	 * @return The present set, now containing the union.
+	 * @see #union(DiscreteFuzzySet)
 	 */
-	public DiscreteFuzzySet intersection(DiscreteFuzzySet fuzzySet) {
+	public DiscreteFuzzySet unionInPlace(DiscreteFuzzySet fuzzySet) {
 		
-		DiscreteFuzzySet intersectionSet = new DiscreteFuzzySet(Math.max(size(), fuzzySet.size()));
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
 		
-		Iterator<Element> iterator = iterator();
-		Element element;
+		int leftSize = size();
+		ElementMembershipMap other = fuzzySet.map;
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			
-			if (fuzzySet.contains(element))
-				intersectionSet.map.put(element, Math.min(map.get(element), fuzzySet.getMembershipValue(element)));
+		for (int i = 0; i < other.size(); i++) {
+			double membership = other.valueAt(i);
+			int entry = map.putIfAbsent(other.keyAt(i), membership);
 			
+			if (map.valueAt(entry) < membership)
+				map.setValueAt(entry, membership);
 		}
 		
 		if (autoClean)
-			intersectionSet.clean();
+			clean();
 		
-		return intersectionSet;
+		FuzzyEvents.setOperation(event, "unionInPlace", leftSize, fuzzySet.size(), size());
+		
+		return this;
 	}
 	
 	
 	
 	/**
-	 * Performs complement of this set with the given set. The complement operation for the fuzzy set can be defined as
-	 * follows</br>
-	 * </br>
-	 * membership value of element <u>X</u> in <u>A <b>Complement</b> </u> = 1 - membership value of <u>X</u> in
-	 * <u>A</u>
-	 * </br>
-	 * for every <u>X</u> in <u>A</u>.
+	 * Performs union of this set with the given set in parallel on the common {@linkplain ForkJoinPool}. The storage of
+	 * the sets is divided into chunks which are processed by separate tasks. The result is the same as that of
+	 * {@linkplain #union(DiscreteFuzzySet)}, which is used when the sets are too small to benefit from parallelism.
+	 * Neither set may be modified during the operation.
 	 * 
+	 * @param fuzzySet
+	 *            Set with whom union is to be performed.
 	 * @return new set containing union of set <u>A</u> and <u>B</u>
 	 */
-	public DiscreteFuzzySet complement() {
+	public DiscreteFuzzySet parallelUnion(DiscreteFuzzySet fuzzySet) {
 		
-		DiscreteFuzzySet complementSet = new DiscreteFuzzySet(size());
+		if (!ParallelChunks.parallel(size() + fuzzySet.size()))
+			return union(fuzzySet);
 		
-		Iterator<Element> iterator = iterator();
-		Element element;
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			complementSet.map.put(element, 1 - map.get(element));
-		}
+		ElementMembershipMap unionMap = new ElementMembershipMap(map);
+		ElementMembershipMap other = fuzzySet.map;
+		
+		ParallelChunks.forEachChunk(unionMap.size(), (chunk, from, to) -> {
+			for (int i = from; i < to; i++)
+				unionMap.setValueAt(i, Math.max(unionMap.valueAt(i), other.get(unionMap.keyAt(i))));
+		});
+		
+		// the members of fuzzySet missing from this set are found in parallel, but added in order
+		boolean[] missing = new boolean[other.size()];
+		
+		ParallelChunks.forEachChunk(other.size(), (chunk, from, to) -> {
+			for (int i = from; i < to; i++)
+				missing[i] = !map.containsKey(other.keyAt(i));
+		});
+		
+		for (int i = 0; i < missing.length; i++)
+			if (missing[i])
+				unionMap.put(other.keyAt(i), other.valueAt(i));
+		
+		DiscreteFuzzySet unionSet = new DiscreteFuzzySet(unionMap);
 		
 		if (autoClean)
-			complementSet.clean();
+			unionSet.clean();
 		
-		return complementSet;
+		FuzzyEvents.setOperation(event, "parallelUnion", size(), fuzzySet.size(), unionSet.size());
 		
+		return unionSet;
 	}
 	
 	
 	
 	/**
-	 * Performs product of this set with the given set. The product operation for the fuzzy set can be defined as
-	 * follows</br>
+	 * Performs intersection of this set with the given set. The intersection operation for the fuzzy set can be defined
+	 * as follows</br>
 	 * </br>
-	 * membership value of element <u>X</u> in <u>A <b>X</b> B </u> = product of membership value of <u>X</u> in
-	 * <u>A</u> and <u>B</u>
+	 * membership value of element <u>X</u> in <u>A <b>Intersection</b> B </u> = minimum of membership value of <u>X</u>
+	 * in <u>A</u> and <u>B</u>
 	 * </br>
 	 * for every <u>X</u> in <u>A</u> and <u>B</u>
 	 * 
 	 * @param fuzzySet
-	 *            Set with whom product is to be performed.
+	 *            Set with whom intersection is to be performed.
 	 * @return new set containing union of set <u>A</u> and <u>B</u>
 	 */
-	public DiscreteFuzzySet product(DiscreteFuzzySet fuzzySet) {
+	public DiscreteFuzzySet intersection(DiscreteFuzzySet fuzzySet) {
 		
-		DiscreteFuzzySet productSet = new DiscreteFuzzySet(Math.max(size(), fuzzySet.size()));
+		return intersection(fuzzySet, new DiscreteFuzzySet(Math.max(size(), fuzzySet.size())));
+	}
+	
+	
+	
+	/**
+	 * Performs intersection of this set with the given set and stores it in the destination set. The previous members of
+	 * the destination are removed but its storage is reused. If the destination is this set, it is the same as
+	 * {@linkplain #intersectWith(DiscreteFuzzySet)}.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom intersection is to be performed.
+	 * @param destination
+	 *            Set receiving the intersection. It must not be fuzzySet.
+	 * @return destination
+	 */
+	public DiscreteFuzzySet intersection(DiscreteFuzzySet fuzzySet, DiscreteFuzzySet destination) {
 		
-		Iterator<Element> iterator = iterator();
-		Element element;
+		if (destination == this)
+			return intersectWith(fuzzySet);
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			productSet.map.put(element, map.get(element) * fuzzySet.getMembershipValue(element));
+		ElementMembershipMap intersectionMap = prepareDestination(fuzzySet, destination, Math.min(size(), fuzzySet.size()));
+		
+		for (int i = 0; i < map.size(); i++) {
+			Element element = map.keyAt(i);
+			int entry = fuzzySet.map.indexOf(element);
 			
+			if (entry >= 0) // element is present in fuzzySet
+				intersectionMap.put(element, Math.min(map.valueAt(i), fuzzySet.map.valueAt(entry)));
 		}
 		
 		if (autoClean)
-			productSet.clean();
+			destination.clean();
 		
-		return productSet;
+		FuzzyEvents.setOperation(event, "intersection", size(), fuzzySet.size(), destination.size());
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Performs intersection of this set with the given set and stores it in this set. Members of this set which are not
+	 * present in the given set are removed. No new set is created.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom intersection is to be performed.
+	 * @return The present set, now containing the intersection.
+	 * @see #intersection(DiscreteFuzzySet)
+	 */
+	public DiscreteFuzzySet intersectWith(DiscreteFuzzySet fuzzySet) {
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		int leftSize = size();
+		boolean[] missing = null;
+		
+		for (int i = 0; i < map.size(); i++) {
+			int entry = fuzzySet.map.indexOf(map.keyAt(i));
+			
+			// members missing from fuzzySet are marked and removed at once
+			if (entry >= 0)
+				map.setValueAt(i, Math.min(map.valueAt(i), fuzzySet.map.valueAt(entry)));
+			
+			else {
+				if (missing == null)
+					missing = new boolean[map.size()];
+				
+				missing[i] = true;
+			}
+		}
+		
+		if (missing != null) {
+			boolean[] removed = missing;
+			map.removeIf(entry -> removed[entry]);
+		}
+		
+		if (autoClean)
+			clean();
+		
+		FuzzyEvents.setOperation(event, "intersectWith", leftSize, fuzzySet.size(), size());
+		
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Performs intersection of this set with the given set in parallel on the common {@linkplain ForkJoinPool}. The
+	 * result is the same as that of {@linkplain #intersection(DiscreteFuzzySet)}, which is used when the sets are too
+	 * small to benefit from parallelism. Neither set may be modified during the operation.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom intersection is to be performed.
+	 * @return new set containing intersection of set <u>A</u> and <u>B</u>
+	 */
+	public DiscreteFuzzySet parallelIntersection(DiscreteFuzzySet fuzzySet) {
+		
+		if (!ParallelChunks.parallel(size()))
+			return intersection(fuzzySet);
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		ElementMembershipMap intersectionMap = new ElementMembershipMap(map);
+		ElementMembershipMap other = fuzzySet.map;
+		
+		boolean[] missing = new boolean[intersectionMap.size()];
+		
+		// members missing from fuzzySet are marked and removed at once
+		ParallelChunks.forEachChunk(intersectionMap.size(), (chunk, from, to) -> {
+			for (int i = from; i < to; i++) {
+				int entry = other.indexOf(intersectionMap.keyAt(i));
+				
+				if (entry >= 0)
+					intersectionMap.setValueAt(i, Math.min(intersectionMap.valueAt(i), other.valueAt(entry)));
+				else
+					missing[i] = true;
+			}
+		});
+		
+		intersectionMap.removeIf(entry -> missing[entry]);
+		
+		DiscreteFuzzySet intersectionSet = new DiscreteFuzzySet(intersectionMap);
+		
+		if (autoClean)
+			intersectionSet.clean();
+		
+		FuzzyEvents.setOperation(event, "parallelIntersection", size(), fuzzySet.size(), intersectionSet.size());
+		
+		return intersectionSet;
+	}
+	
+	
+	
+	/**
+	 * Performs complement of this set with the given set. The complement operation for the fuzzy set can be defined as
+	 * follows</br>
+	 * </br>
+	 * membership value of element <u>X</u> in <u>A <b>Complement</b> </u> = 1 - membership value of <u>X</u> in
+	 * <u>A</u>
+	 * </br>
+	 * for every <u>X</u> in <u>A</u>.
+	 * 
+	 * @return new set containing union of set <u>A</u> and <u>B</u>
+	 */
+	public DiscreteFuzzySet complement() {
+		
+		return complement(new DiscreteFuzzySet(size()));
+	}
+	
+	
+	
+	/**
+	 * Performs complement of this set and stores it in the destination set. The previous members of the destination are
+	 * removed but its storage is reused. If the destination is this set, it is the same as
+	 * {@linkplain #complementInPlace()}.
+	 * 
+	 * @param destination
+	 *            Set receiving the complement.
+	 * @return destination
+	 */
+	public DiscreteFuzzySet complement(DiscreteFuzzySet destination) {
+		
+		if (destination == this)
+			return complementInPlace();
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		ElementMembershipMap complementMap = prepareDestination(null, destination, size());
+		
+		for (int i = 0; i < map.size(); i++)
+			complementMap.put(map.keyAt(i), 1 - map.valueAt(i));
+		
+		if (autoClean)
+			destination.clean();
+		
+		FuzzyEvents.setOperation(event, "complement", size(), -1, destination.size());
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Replaces the membership value of every member of this set with its complement. No new set is created.
+	 * 
+	 * @return The present set, now containing the complement.
+	 * @see #complement()
+	 */
+	public DiscreteFuzzySet complementInPlace() {
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		int leftSize = size();
+		
+		for (int i = 0; i < map.size(); i++)
+			map.setValueAt(i, 1 - map.valueAt(i));
+		
+		if (autoClean)
+			clean();
+		
+		FuzzyEvents.setOperation(event, "complementInPlace", leftSize, -1, size());
+		
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Performs product of this set with the given set. The product operation for the fuzzy set can be defined as
+	 * follows</br>
+	 * </br>
+	 * membership value of element <u>X</u> in <u>A <b>X</b> B </u> = product of membership value of <u>X</u> in
+	 * <u>A</u> and <u>B</u>
+	 * </br>
+	 * for every <u>X</u> in <u>A</u> and <u>B</u>
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom product is to be performed.
+	 * @return new set containing union of set <u>A</u> and <u>B</u>
+	 */
+	public DiscreteFuzzySet product(DiscreteFuzzySet fuzzySet) {
+		
+		return product(fuzzySet, new DiscreteFuzzySet(Math.max(size(), fuzzySet.size())));
+	}
+	
+	
+	
+	/**
+	 * Performs product of this set with the given set and stores it in the destination set. The previous members of the
+	 * destination are removed but its storage is reused. If the destination is this set, it is the same as
+	 * {@linkplain #productInPlace(DiscreteFuzzySet)}.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom product is to be performed.
+	 * @param destination
+	 *            Set receiving the product. It must not be fuzzySet.
+	 * @return destination
+	 */
+	public DiscreteFuzzySet product(DiscreteFuzzySet fuzzySet, DiscreteFuzzySet destination) {
+		
+		if (destination == this)
+			return productInPlace(fuzzySet);
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		ElementMembershipMap productMap = prepareDestination(fuzzySet, destination, size());
+		
+		for (int i = 0; i < map.size(); i++) {
+			Element element = map.keyAt(i);
+			productMap.put(element, map.valueAt(i) * fuzzySet.map.get(element));
+		}
+		
+		if (autoClean)
+			destination.clean();
+		
+		FuzzyEvents.setOperation(event, "product", size(), fuzzySet.size(), destination.size());
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Performs product of this set with the given set and stores it in this set. No new set is created.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom product is to be performed.
+	 * @return The present set, now containing the product.
+	 * @see #product(DiscreteFuzzySet)
+	 */
+	public DiscreteFuzzySet productInPlace(DiscreteFuzzySet fuzzySet) {
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		int leftSize = size();
+		
+		for (int i = 0; i < map.size(); i++)
+			map.setValueAt(i, map.valueAt(i) * fuzzySet.map.get(map.keyAt(i)));
+		
+		if (autoClean)
+			clean();
+		
+		FuzzyEvents.setOperation(event, "productInPlace", leftSize, fuzzySet.size(), size());
+		
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Clears the destination of an operation and makes room for the given number of members.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the destination is the other operand of the operation.
+	 */
+	private static ElementMembershipMap prepareDestination(DiscreteFuzzySet operand, DiscreteFuzzySet destination, int capacity) {
+		
+		if (destination == operand)
+			throw new IllegalArgumentException("Destination set must not be the other operand of the operation.");
+		
+		destination.map.clear();
+		destination.map.ensureCapacity(capacity);
+		
+		return destination.map;
 	}
 	
 	
@@ -452,6 +1210,10 @@ public class DiscreteFuzzySet {
 	 * between two sets </br>
 	 * </br>
 	 * <u>A</u> equals <u>B</u> if <u>A</u> is subset of <u>B</u> and <u>B</u> is subset of <u>A</u>.
+	 * </br>
+	 * </br>
+	 * The comparison stops at the first difference found. If both sets have a cached {@linkplain #fingerprint()}
+	 * which differ, false is returned without comparing the members.
 	 * 
 	 * @param fuzzySet
 	 *            Set with whom equality is to be tested with with this set.
@@ -460,30 +1222,181 @@ public class DiscreteFuzzySet {
 	 */
 	public boolean equalsFuzzySet(DiscreteFuzzySet fuzzySet) {
 		
-		boolean isEqual = true;
+		if (fingerprintsDiffer(fuzzySet))
+			return false;
 		
-		Iterator<Element> iterator = iterator();
-		Element element;
+		for (int i = 0; i < map.size(); i++)
+			if (map.valueAt(i) != fuzzySet.map.get(map.keyAt(i)))
+				return false;
+		
+		for (int i = 0; i < fuzzySet.map.size(); i++)
+			if (fuzzySet.map.valueAt(i) != map.get(fuzzySet.map.keyAt(i)))
+				return false;
+		
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Determines whether two discrete fuzzy sets are equal within the given tolerance. They are equal if the membership
+	 * values of every element differ by at most tolerance, an element missing from a set having the membership value
+	 * 0. The comparison stops at the first difference found.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom equality is to be tested with this set.
+	 * @param tolerance
+	 *            Maximum difference between the membership values of an element
+	 * @return true - If this set is equal to fuzzyset within the tolerance</br>
+	 *         false - Otherwise
+	 * @throws IllegalArgumentException
+	 *             If tolerance is negative or NaN
+	 */
+	public boolean equalsFuzzySet(DiscreteFuzzySet fuzzySet, double tolerance) {
+		
+		if (!(tolerance >= 0))
+			throw new IllegalArgumentException("Tolerance must not be negative : " + tolerance);
+		
+		if (tolerance == 0)
+			return equalsFuzzySet(fuzzySet);
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
+		ElementMembershipMap other = fuzzySet.map;
+		
+		for (int i = 0; i < map.size(); i++)
+			if (!(Math.abs(map.valueAt(i) - other.get(map.keyAt(i))) <= tolerance))
+				return false;
+		
+		// the members of fuzzySet which are also in this set have already been compared
+		for (int i = 0; i < other.size(); i++)
+			if (!map.containsKey(other.keyAt(i)) && !(Math.abs(other.valueAt(i)) <= tolerance))
+				return false;
+		
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Returns a hash of the members of this set which does not depend on their order. Members with the membership value
+	 * 0 are ignored, like in {@linkplain #equalsFuzzySet(DiscreteFuzzySet)}, so sets which are equal have the same
+	 * fingerprint. Sets having different fingerprints are not equal, while sets having the same fingerprint are equal
+	 * with a very high probability only.
+	 * 
+	 * <p>
+	 * The fingerprint is computed in a single pass, in parallel for a large set, and cached until this set is modified.
+	 * Once both sets have a cached fingerprint, {@linkplain #equalsFuzzySet(DiscreteFuzzySet)} rejects unequal sets
+	 * having different fingerprints in constant time.
+	 * </p>
+	 * 
+	 * @return Fingerprint of the members
+	 */
+	public long fingerprint() {
+		
+		if (fingerprinted && fingerprintModifications == map.modifications)
+			return fingerprint;
+		
+		int size = map.size();
+		long sum;
+		
+		if (!ParallelChunks.parallel(size))
+			sum = fingerprint(map, 0, size);
+		
+		else {
+			long[] partials = new long[ParallelChunks.chunkCount(size)];
+			
+			ParallelChunks.forEachChunk(size, (chunk, from, to) -> partials[chunk] = fingerprint(map, from, to));
 			
-			if (map.get(element) != fuzzySet.getMembershipValue(element))
-				isEqual = false;
+			sum = 0;
 			
+			for (long partial : partials)
+				sum += partial;
 		}
 		
-		iterator = fuzzySet.iterator();
+		fingerprint = sum;
+		fingerprintModifications = map.modifications;
+		fingerprinted = true;
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			
-			if (fuzzySet.getMembershipValue(element) != getMembershipValue(element))
-				isEqual = false;
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Returns the sum of the hashes of the members at the entry indices from (inclusive) to (exclusive). The sum wraps
+	 * around, so it does not depend on the order of the members.
+	 */
+	private static long fingerprint(ElementMembershipMap map, int from, int to) {
+		
+		long sum = 0;
+		
+		for (int i = from; i < to; i++) {
+			double membership = map.valueAt(i);
 			
+			if (membership != 0)
+				sum += mix(map.keyAt(i).hashCode() * 0x9E37_79B9_7F4A_7C15L + mix(Double.doubleToLongBits(membership)));
 		}
 		
-		return isEqual;
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Finalizer of the 64 bit MurmurHash3, spreading every bit of the input over the whole result.
+	 */
+	private static long mix(long hash) {
+		
+		hash = (hash ^ (hash >>> 33)) * 0xFF51_AFD7_ED55_8CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CE_B9FE_1A85_EC53L;
+		return hash ^ (hash >>> 33);
+	}
+	
+	
+	
+	/**
+	 * Returns whether both sets have a valid cached fingerprint and the fingerprints are different, in which case the
+	 * sets are not equal.
+	 */
+	private boolean fingerprintsDiffer(DiscreteFuzzySet fuzzySet) {
+		
+		return fingerprinted && fingerprintModifications == map.modifications && fuzzySet.fingerprinted
+				&& fuzzySet.fingerprintModifications == fuzzySet.map.modifications && fingerprint != fuzzySet.fingerprint;
+	}
+	
+	
+	
+	/**
+	 * Determines in parallel whether two discrete fuzzy set are equal or not. The result is the same as that of
+	 * {@linkplain #equalsFuzzySet(DiscreteFuzzySet)}, which is used when the sets are too small to benefit from
+	 * parallelism. The remaining chunks are skipped as soon as a difference is found.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom equality is to be tested with with this set.
+	 * @return true - If this set is equal to fuzzyset</br>
+	 *         false - Otherwise
+	 */
+	public boolean parallelEqualsFuzzySet(DiscreteFuzzySet fuzzySet) {
+		
+		int total = size() + fuzzySet.size();
+		
+		if (!ParallelChunks.parallel(total) || fingerprintsDiffer(fuzzySet))
+			return equalsFuzzySet(fuzzySet);
+		
+		ElementMembershipMap other = fuzzySet.map;
+		AtomicBoolean different = new AtomicBoolean();
+		
+		// the entries of this set are followed by the entries of fuzzySet
+		ParallelChunks.forEachChunk(total, (chunk, from, to) -> {
+			for (int i = from; i < to && !different.get(); i++) {
+				boolean equal = (i < map.size()) ? map.valueAt(i) == other.get(map.keyAt(i))
+						: other.valueAt(i - map.size()) == map.get(other.keyAt(i - map.size()));
+				
+				if (!equal)
+					different.set(true);
+			}
+		});
+		
+		return !different.get();
 	}
 	
 	
@@ -501,23 +1414,61 @@ public class DiscreteFuzzySet {
 	 */
 	public DiscreteFuzzySet product(double scaler) throws MembershipOutOfRangeException {
 		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
 		DiscreteFuzzySet productSet = new DiscreteFuzzySet(size());
-		Iterator<Element> iterator = iterator();
-		Element element;
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			productSet.add(element, scaler * map.get(element));
-		}
+		for (int i = 0; i < map.size(); i++)
+			productSet.add(map.keyAt(i), scaler * map.valueAt(i));
 		
 		if (autoClean)
 			productSet.clean();
 		
+		FuzzyEvents.setOperation(event, "scalarProduct", size(), -1, productSet.size());
+		
 		return productSet;
 	}
 	
 	
 	
+	/**
+	 * Performs the multiplication of this set with a numerical value and stores it in this set. The set is modified only
+	 * if every resulting membership value is valid.
+	 * 
+	 * @param scaler
+	 *            Multiplication factor
+	 * @return The present set, now containing the product.
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value of any element goes beyond [0,1] inclusive.
+	 */
+	public DiscreteFuzzySet productInPlace(double scaler) throws MembershipOutOfRangeException {
+		
+		for (int i = 0; i < map.size(); i++) {
+			double membership = scaler * map.valueAt(i);
+			
+			if (membership < 0 || membership > 1)
+				throw new MembershipOutOfRangeException();
+		}
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		int leftSize = size();
+		
+		for (int i = 0; i < map.size(); i++)
+			map.setValueAt(i, scaler * map.valueAt(i));
+		
+		if (autoClean)
+			clean();
+		
+		FuzzyEvents.setOperation(event, "scalarProductInPlace", leftSize, -1, size());
+		
+		return this;
+	}
+	
+	
+	
 	/**
 	 * Performs the power of the set with a numerical value. The membership value of each element of this set is raised
 	 * to the power
@@ -529,19 +1480,69 @@ public class DiscreteFuzzySet {
 	 */
 	public DiscreteFuzzySet power(float power) {
 		
-		DiscreteFuzzySet powerSet = new DiscreteFuzzySet(size());
-		Iterator<Element> iterator = iterator();
-		Element element;
+		return power(power, new DiscreteFuzzySet(size()));
+	}
+	
+	
+	
+	/**
+	 * Performs the power of the set with a numerical value and stores it in the destination set. The previous members of
+	 * the destination are removed but its storage is reused. If the destination is this set, it is the same as
+	 * {@linkplain #powerInPlace(float)}.
+	 * 
+	 * @param power
+	 *            Power factor
+	 * @param destination
+	 *            Set receiving the result.
+	 * @return destination
+	 */
+	public DiscreteFuzzySet power(float power, DiscreteFuzzySet destination) {
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			powerSet.map.put(element, Math.pow(map.get(element), power));
-		}
+		if (destination == this)
+			return powerInPlace(power);
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		ElementMembershipMap powerMap = prepareDestination(null, destination, size());
+		
+		for (int i = 0; i < map.size(); i++)
+			powerMap.put(map.keyAt(i), Math.pow(map.valueAt(i), power));
+		
+		if (autoClean)
+			destination.clean();
+		
+		FuzzyEvents.setOperation(event, "power", size(), -1, destination.size());
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Raises the membership value of every member of this set to the given power. No new set is created.
+	 * 
+	 * @param power
+	 *            Power factor
+	 * @return The present set, now containing the result.
+	 * @see #power(float)
+	 */
+	public DiscreteFuzzySet powerInPlace(float power) {
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		int leftSize = size();
+		
+		for (int i = 0; i < map.size(); i++)
+			map.setValueAt(i, Math.pow(map.valueAt(i), power));
 		
 		if (autoClean)
-			powerSet.clean();
+			clean();
+		
+		FuzzyEvents.setOperation(event, "powerInPlace", leftSize, -1, size());
 		
-		return powerSet;
+		return this;
 	}
 	
 	
@@ -549,27 +1550,25 @@ public class DiscreteFuzzySet {
 	/**
 	 * Returns a {@linkplain HashSet} containing all the singleton members of the set. The singleton members
 	 * encapsulates both element and its membership value.
-	 * The set returned is a crisp set and not a fuzzy set.
+	 * The set returned is a crisp set and not a fuzzy set. It creates an object per member, use
+	 * {@linkplain #forEach(ObjDoubleConsumer)} or {@linkplain #cursor()} to visit the members without allocation.
 	 * 
 	 * @return Crisp set encapsulating elements with its membership values.
 	 */
 	public HashSet<Singleton> getSingletonSet() {
 		
-		HashSet<Singleton> singletonSet = new HashSet<Singleton>(map.size());
-		Iterator<Element> iterator = iterator();
+		HashSet<Singleton> singletonSet = new HashSet<Singleton>(map.size() * 4 / 3 + 1);
 		Element element;
 		
-		Logger logger = Logger.getLogger(getClass());
-		
-		while (iterator.hasNext()) {
-			element = iterator.next();
+		for (int i = 0; i < map.size(); i++) {
+			element = map.keyAt(i);
 			try {
-				singletonSet.add(new Singleton(element, map.get(element)));
+				singletonSet.add(new Singleton(element, map.valueAt(i)));
 			}
 			catch (MembershipOutOfRangeException e) {
 				// Although it is made sure that this will never happen
-				if (logger.isLoggable(Level.SEVERE))
-					logger.log(Level.SEVERE, "Membership value beyond [0,1] present in set for element: " + element);
+				if (LOGGER.isLoggable(Level.SEVERE))
+					LOGGER.log(Level.SEVERE, "Membership value beyond [0,1] present in set for element: " + element);
 			}
 		}
 		
@@ -590,24 +1589,12 @@ public class DiscreteFuzzySet {
 		
 		StringBuilder buffer = new StringBuilder(map.size() * 25);
 		buffer.append("[ ");
-		Iterator<Element> iterator = iterator();
-		Element element;
 		
-		if (iterator.hasNext()) {
-			buffer.append('(');
-			element = iterator.next();
-			buffer.append(element.toString());
+		for (int i = 0; i < map.size(); i++) {
+			buffer.append((i == 0) ? "(" : ",(");
+			buffer.append(map.keyAt(i).toString());
 			buffer.append(',');
-			buffer.append(map.get(element).toString());
-			buffer.append(')');
-		}
-		
-		while (iterator.hasNext()) {
-			buffer.append(",(");
-			element = iterator.next();
-			buffer.append(element.toString());
-			buffer.append(',');
-			buffer.append(map.get(element).toString());
+			buffer.append(map.valueAt(i));
 			buffer.append(')');
 		}
 		
@@ -643,6 +1630,16 @@ public class DiscreteFuzzySet {
 	
 	
 	
+	/**
+	 * Returns the storage of this set. It is used by the other representations of discrete fuzzy sets in this package.
+	 */
+	ElementMembershipMap map() {
+		
+		return map;
+	}
+	
+	
+	
 	/**
 	 * The cardinal value of fuzzy set is different from that of crisp set. It is the sum of membership values of
 	 * all the members of this set.
@@ -651,11 +1648,46 @@ public class DiscreteFuzzySet {
 	 */
 	public double cardinalValue() {
 		
+		if (map.aggregates != null)
+			return map.aggregates.sum();
+		
 		double sum = 0;
-		Iterator<Element> iterator = iterator();
 		
-		while (iterator.hasNext())
-			sum += map.get(iterator.next());
+		for (int i = 0; i < map.size(); i++)
+			sum += map.valueAt(i);
+		
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Computes the cardinal value of this set in parallel. The partial sums of the chunks are added in order, so the
+	 * result does not depend on the scheduling of the tasks, but it may differ from {@linkplain #cardinalValue()} in the
+	 * last digits due to rounding.
+	 * 
+	 * @return Sum of membership values of all elements of this set.
+	 */
+	public double parallelCardinalValue() {
+		
+		if (!ParallelChunks.parallel(size()))
+			return cardinalValue();
+		
+		double[] sums = new double[ParallelChunks.chunkCount(size())];
+		
+		ParallelChunks.forEachChunk(size(), (chunk, from, to) -> {
+			double sum = 0;
+			
+			for (int i = from; i < to; i++)
+				sum += map.valueAt(i);
+			
+			sums[chunk] = sum;
+		});
+		
+		double sum = 0;
+		
+		for (double chunkSum : sums)
+			sum += chunkSum;
 		
 		return sum;
 	}
@@ -675,11 +1707,10 @@ public class DiscreteFuzzySet {
 	public HashSet<Element> getCrispIf(Predicate<Element> condition) {
 		
 		HashSet<Element> crisp = new HashSet<Element>(size());
-		Iterator<Element> iterator = iterator();
 		Element element;
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
+		for (int i = 0; i < map.size(); i++) {
+			element = map.keyAt(i);
 			
 			if (condition.test(element))
 				crisp.add(element);
@@ -716,7 +1747,7 @@ public class DiscreteFuzzySet {
 		
 		final double CORE_VALUE = 0.999999999;
 		
-		return getCrispIf(element -> element.getValue() >= CORE_VALUE);
+		return alphaCut(CORE_VALUE);
 	}
 	
 	
@@ -733,7 +1764,228 @@ public class DiscreteFuzzySet {
 	 */
 	public HashSet<Element> getSupport() {
 		
-		return getCrispIf(element -> element.getValue() > 0.00000001);
+		return strongAlphaCut(0.00000001);
+	}
+	
+	
+	
+	/**
+	 * Returns the alpha-cut of this set, the crisp set of the elements whose membership value is greater than or equal
+	 * to alpha. If the membership index is enabled, only the elements of the result are visited.
+	 * 
+	 * @param alpha
+	 *            Lowest membership value of the elements
+	 * @return {@linkplain HashSet} of the elements having membership value at least alpha
+	 * @see #setMembershipIndex(boolean)
+	 */
+	public HashSet<Element> alphaCut(double alpha) {
+		
+		if (index != null)
+			return index.update().first(index.countAbove(alpha, false));
+		
+		HashSet<Element> crisp = new HashSet<Element>();
+		
+		for (int i = 0; i < map.size(); i++)
+			if (map.valueAt(i) >= alpha)
+				crisp.add(map.keyAt(i));
+		
+		return crisp;
+	}
+	
+	
+	
+	/**
+	 * Returns the strong alpha-cut of this set, the crisp set of the elements whose membership value is greater than
+	 * alpha. If the membership index is enabled, only the elements of the result are visited.
+	 * 
+	 * @param alpha
+	 *            Membership value which the elements must exceed
+	 * @return {@linkplain HashSet} of the elements having membership value greater than alpha
+	 * @see #setMembershipIndex(boolean)
+	 */
+	public HashSet<Element> strongAlphaCut(double alpha) {
+		
+		if (index != null)
+			return index.update().first(index.countAbove(alpha, true));
+		
+		HashSet<Element> crisp = new HashSet<Element>();
+		
+		for (int i = 0; i < map.size(); i++)
+			if (map.valueAt(i) > alpha)
+				crisp.add(map.keyAt(i));
+		
+		return crisp;
+	}
+	
+	
+	
+	/**
+	 * Returns the k elements of this set having the highest membership values, ordered by decreasing membership value.
+	 * Elements having the same membership value are in the order of the iterator. Without the membership index the
+	 * members are sorted on every call.
+	 * 
+	 * @param k
+	 *            Number of elements required
+	 * @return Array of the min(k, size()) elements with the highest membership values
+	 * @throws IllegalArgumentException
+	 *             If k is negative
+	 */
+	public Element[] topK(int k) {
+		
+		if (k < 0)
+			throw new IllegalArgumentException("Number of elements cannot be negative : " + k);
+		
+		MembershipIndex sorted = (index != null) ? index.update() : new MembershipIndex(map);
+		Element[] elements = new Element[Math.min(k, sorted.size())];
+		sorted.first(elements, elements.length);
+		
+		return elements;
+	}
+	
+	
+	
+	/**
+	 * Enables or disables the index of the members ordered by membership value. With the index,
+	 * {@linkplain #alphaCut(double)}, {@linkplain #strongAlphaCut(double)}, {@linkplain #getCore()},
+	 * {@linkplain #getSupport()}, {@linkplain #topK(int)} and {@linkplain #height()} take O(log n + output size) time.
+	 * Adding, removing or changing a single member moves it within the index in O(log n) comparisons and a shift of at
+	 * most n entries. Operations changing many members in place, like the in place algebra or
+	 * {@linkplain #clean()}, make the first following query rebuild the index in O(n log n) time.
+	 * 
+	 * @param enabled
+	 *            Whether the index is maintained
+	 */
+	public void setMembershipIndex(boolean enabled) {
+		
+		if (!enabled)
+			index = null;
+		else if (index == null)
+			index = new MembershipIndex(map);
+		
+		map.index = index;
+	}
+	
+	
+	
+	/**
+	 * Returns whether the index of the members ordered by membership value is enabled.
+	 * 
+	 * @see #setMembershipIndex(boolean)
+	 */
+	public boolean membershipIndexEnabled() {
+		
+		return index != null;
+	}
+	
+	
+	
+	/**
+	 * Enables the statistics of the membership values which are maintained while this set is modified. Adding,
+	 * removing or changing a single member updates them in O(1) time, and the maximum in O(log n) time. Operations
+	 * changing many members at once, like cleaning, recompute them in O(n) time. With the statistics,
+	 * {@linkplain #cardinalValue()}, {@linkplain #sumOfSquares()}, {@linkplain #entropy()}, {@linkplain #height()} and
+	 * {@linkplain #countAbove(double)} for the given threshold take O(1) time.
+	 * 
+	 * @param countThreshold
+	 *            Membership value above which the members are counted by {@linkplain #countAbove(double)}
+	 */
+	public void enableAggregates(double countThreshold) {
+		
+		map.aggregates = new MembershipAggregates(map, countThreshold);
+	}
+	
+	
+	
+	/**
+	 * Disables the statistics maintained while this set is modified.
+	 * 
+	 * @see #enableAggregates(double)
+	 */
+	public void disableAggregates() {
+		
+		map.aggregates = null;
+	}
+	
+	
+	
+	/**
+	 * Returns whether the statistics maintained while this set is modified are enabled.
+	 * 
+	 * @see #enableAggregates(double)
+	 */
+	public boolean aggregatesEnabled() {
+		
+		return map.aggregates != null;
+	}
+	
+	
+	
+	/**
+	 * Returns the sum of the squares of the membership values of all the members of this set.
+	 * 
+	 * @return Sum of squared membership values
+	 */
+	public double sumOfSquares() {
+		
+		if (map.aggregates != null)
+			return map.aggregates.sumOfSquares();
+		
+		double sum = 0;
+		
+		for (int i = 0; i < map.size(); i++)
+			sum += map.valueAt(i) * map.valueAt(i);
+		
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of members whose membership value is greater than the threshold. It takes O(1) time if the
+	 * threshold is the one given to {@linkplain #enableAggregates(double)} and O(log n) time if the membership index is
+	 * enabled.
+	 * 
+	 * @param threshold
+	 *            Membership value which the members must exceed
+	 * @return Number of members having membership value greater than threshold
+	 */
+	public int countAbove(double threshold) {
+		
+		if (map.aggregates != null && map.aggregates.threshold() == threshold)
+			return map.aggregates.countAbove();
+		
+		if (index != null)
+			return index.update().countAbove(threshold, true);
+		
+		int count = 0;
+		
+		for (int i = 0; i < map.size(); i++)
+			if (map.valueAt(i) > threshold)
+				++count;
+		
+		return count;
+	}
+	
+	
+	
+	/**
+	 * Returns the fuzziness entropy of this set as defined by De Luca and Termini, normalized to [0,1]. It is the sum of
+	 * -(u ln u + (1 - u) ln (1 - u)) over the membership values u of the members divided by n ln 2, where n is the
+	 * number of members. It is 0 if every membership value is 0 or 1 and 1 if every membership value is 0.5.
+	 * 
+	 * @return Normalized entropy of this set, 0 if it is empty
+	 */
+	public double entropy() {
+		
+		if (map.aggregates != null)
+			return map.aggregates.entropy();
+		
+		double entropy = 0;
+		
+		for (int i = 0; i < map.size(); i++)
+			entropy += MembershipAggregates.entropy(map.valueAt(i));
+		
+		return MembershipAggregates.normalizedEntropy(entropy, map.size());
 	}
 	
 	
@@ -746,17 +1998,22 @@ public class DiscreteFuzzySet {
 	 */
 	public Element height() {
 		
+		if (map.aggregates != null) {
+			int maxEntry = map.aggregates.maxEntry();
+			return (maxEntry >= 0 && map.valueAt(maxEntry) > 0) ? map.keyAt(maxEntry) : null;
+		}
+		
+		if (index != null)
+			return (index.update().highestMembership() > 0) ? index.highest() : null;
+		
 		double maxMembership = 0;
-		Iterator<Element> iterator = iterator();
-		Element element,
-				maxElement = null;
+		Element maxElement = null;
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
-			double membership = map.get(element);
+		for (int i = 0; i < map.size(); i++) {
+			double membership = map.valueAt(i);
 			
 			if (membership > maxMembership) {
-				maxElement = element;
+				maxElement = map.keyAt(i);
 				maxMembership = membership;
 			}
 		}
@@ -766,6 +2023,44 @@ public class DiscreteFuzzySet {
 	
 	
 	
+	/**
+	 * Finds the height of this set in parallel. The result is the same as that of {@linkplain #height()}: if several
+	 * members have the maximum membership value, the one found first by the iterator is returned.
+	 * 
+	 * @return Element with maximum membership value
+	 */
+	public Element parallelHeight() {
+		
+		if (!ParallelChunks.parallel(size()))
+			return height();
+		
+		int[] maxEntries = new int[ParallelChunks.chunkCount(size())];
+		
+		ParallelChunks.forEachChunk(size(), (chunk, from, to) -> {
+			int maxEntry = -1;
+			double maxMembership = 0;
+			
+			for (int i = from; i < to; i++) {
+				if (map.valueAt(i) > maxMembership) {
+					maxEntry = i;
+					maxMembership = map.valueAt(i);
+				}
+			}
+			
+			maxEntries[chunk] = maxEntry;
+		});
+		
+		int maxEntry = -1;
+		
+		for (int entry : maxEntries)
+			if (entry >= 0 && (maxEntry < 0 || map.valueAt(entry) > map.valueAt(maxEntry)))
+				maxEntry = entry;
+		
+		return (maxEntry < 0) ? null : map.keyAt(maxEntry);
+	}
+	
+	
+	
 	/**
 	 * This method creates a new <i>Discrete Fuzzy Set</i> instance which contains the members of this set along with
 	 * their membership value only if
@@ -782,14 +2077,13 @@ public class DiscreteFuzzySet {
 	public DiscreteFuzzySet retainIf(Predicate<Element> condition) {
 		
 		DiscreteFuzzySet fuzzySet = new DiscreteFuzzySet(size());
-		Iterator<Element> iterator = iterator();
 		Element element;
 		
-		while (iterator.hasNext()) {
-			element = iterator.next();
+		for (int i = 0; i < map.size(); i++) {
+			element = map.keyAt(i);
 			
 			if (condition.test(element))
-				fuzzySet.map.put(element, map.get(element));
+				fuzzySet.map.put(element, map.valueAt(i));
 			
 		}
 		
@@ -0,0 +1,502 @@
+package fuzzysystem;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+
+
+/**
+ * <p>
+ * ElementMembershipMap is the storage of {@linkplain DiscreteFuzzySet}. It maps {@linkplain Element} instances to
+ * primitive <i>double</i> membership values without boxing them and without creating an entry object per member.
+ * </p>
+ * 
+ * <p>
+ * The members are stored densely in two parallel arrays, {@linkplain #keys} and {@linkplain #values}, at the entry
+ * indices 0 to size - 1. An open addressing table of <i>int</i> with linear probing maps the hash of an element to its
+ * entry index. A lookup therefore probes the table once and reads the value from the parallel array. When a member is
+ * removed the last entry is moved into its place, so the entries always stay dense and can be iterated, split or copied
+ * as plain arrays.
+ * </p>
+ * 
+ * <p>
+ * Elements are compared the same way as in a {@linkplain java.util.HashMap}, using
+ * {@linkplain Element#hashCode()} and {@linkplain Element#equals(Object)}. This class is not thread safe.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet
+ */
+final class ElementMembershipMap {
+	
+	/**
+	 * Minimum number of entries allocated.
+	 */
+	private static final int MIN_CAPACITY = 4;
+	
+	/**
+	 * Open addressing table. A slot contains the entry index + 1 of the element hashed to it or 0 if it is empty. Its
+	 * length is a power of two and it is kept at most half full.
+	 */
+	private int[] table;
+	
+	private int mask;
+	
+	/**
+	 * Members of the map at entry indices 0 to size - 1.
+	 */
+	Element[] keys;
+	
+	/**
+	 * Membership value of the member at the same entry index in {@linkplain #keys}.
+	 */
+	double[] values;
+	
+	private int size;
+	
+	/**
+	 * Number of modifications of the members or their membership values. Structures derived from the map compare it
+	 * to find out whether they are still valid.
+	 */
+	int modifications;
+	
+	/**
+	 * Statistics informed of every change of the members, or null.
+	 */
+	MembershipAggregates aggregates;
+	
+	/**
+	 * Index of the members ordered by membership value informed of every change of the members, or null.
+	 */
+	MembershipIndex index;
+	
+	
+	
+	/**
+	 * Creates an empty map which can hold the given number of members without resizing.
+	 */
+	ElementMembershipMap(int capacity) {
+		
+		capacity = Math.max(capacity, MIN_CAPACITY);
+		keys = new Element[capacity];
+		values = new double[capacity];
+		allocateTable(tableCapacity(capacity));
+	}
+	
+	
+	
+	/**
+	 * Creates a copy of the given map.
+	 */
+	ElementMembershipMap(ElementMembershipMap map) {
+		
+		this(map, map.values.clone());
+	}
+	
+	
+	
+	/**
+	 * Creates a map with the members of the given map and the given membership values at their entry indices. The
+	 * table is copied, so no member is hashed again. The array is used as {@linkplain #values} and its length must be
+	 * the length of the values of the given map.
+	 */
+	ElementMembershipMap(ElementMembershipMap map, double[] values) {
+		
+		table = map.table.clone();
+		mask = map.mask;
+		keys = map.keys.clone();
+		this.values = values;
+		size = map.size;
+	}
+	
+	
+	
+	/**
+	 * Returns the power of two table length which keeps the table at most half full for the given number of entries.
+	 */
+	private static int tableCapacity(int entries) {
+		
+		return Integer.highestOneBit(Math.max(entries, MIN_CAPACITY) - 1) << 2;
+	}
+	
+	
+	
+	private void allocateTable(int capacity) {
+		
+		table = new int[capacity];
+		mask = capacity - 1;
+	}
+	
+	
+	
+	static int hash(Element element) {
+		
+		int h = element.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	
+	
+	/**
+	 * Returns the number of members.
+	 */
+	int size() {
+		
+		return size;
+	}
+	
+	
+	
+	/**
+	 * Returns the element at the given entry index.
+	 */
+	Element keyAt(int entry) {
+		
+		return keys[entry];
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value at the given entry index.
+	 */
+	double valueAt(int entry) {
+		
+		return values[entry];
+	}
+	
+	
+	
+	/**
+	 * Replaces the membership value at the given entry index.
+	 */
+	void setValueAt(int entry, double value) {
+		
+		double previous = values[entry];
+		values[entry] = value;
+		++modifications;
+		
+		if (aggregates != null)
+			aggregates.changed(entry, previous, value);
+		
+		if (index != null)
+			index.changed(entry, previous, value);
+	}
+	
+	
+	
+	/**
+	 * Returns the table slot referring to the given element, or the empty slot where it would be inserted.
+	 */
+	private int slotOf(Element element) {
+		
+		int slot = hash(element) & mask, entry;
+		
+		while ((entry = table[slot]) != 0) {
+			Element key = keys[entry - 1];
+			
+			if (key == element || key.equals(element))
+				break;
+			
+			slot = (slot + 1) & mask;
+		}
+		
+		return slot;
+	}
+	
+	
+	
+	/**
+	 * Returns the entry index of the given element.
+	 * 
+	 * @return Entry index or -1 if the element is not present
+	 */
+	int indexOf(Element element) {
+		
+		return table[slotOf(element)] - 1;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the given element or the absent value if it is not present. This is a single
+	 * probe of the table.
+	 */
+	double get(Element element, double absent) {
+		
+		int entry = table[slotOf(element)];
+		return (entry == 0) ? absent : values[entry - 1];
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the given element or 0.0 if it is not present.
+	 */
+	double get(Element element) {
+		
+		return get(element, 0.0);
+	}
+	
+	
+	
+	boolean containsKey(Element element) {
+		
+		return table[slotOf(element)] != 0;
+	}
+	
+	
+	
+	/**
+	 * Associates the membership value with the element.
+	 * 
+	 * @return Entry index of the element
+	 */
+	int put(Element element, double value) {
+		
+		int slot = slotOf(element), entry = table[slot];
+		
+		if (entry != 0) {
+			setValueAt(entry - 1, value);
+			return entry - 1;
+		}
+		
+		return insert(slot, element, value);
+	}
+	
+	
+	
+	/**
+	 * Adds the element with the membership value if it is not present. The value of a present element is not changed.
+	 * 
+	 * @return Entry index of the element
+	 */
+	int putIfAbsent(Element element, double value) {
+		
+		int slot = slotOf(element), entry = table[slot];
+		
+		return (entry != 0) ? entry - 1 : insert(slot, element, value);
+	}
+	
+	
+	
+	private int insert(int slot, Element element, double value) {
+		
+		if (size == keys.length) {
+			int capacity = keys.length + (keys.length >> 1) + 1;
+			keys = Arrays.copyOf(keys, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		
+		int entry = size++;
+		++modifications;
+		keys[entry] = element;
+		values[entry] = value;
+		
+		if (size * 2 > table.length)
+			rehash(table.length * 2);
+		else
+			table[slot] = entry + 1;
+		
+		if (aggregates != null)
+			aggregates.added(entry, value);
+		
+		if (index != null)
+			index.added(entry, value);
+		
+		return entry;
+	}
+	
+	
+	
+	/**
+	 * Makes sure that the given number of members can be held without resizing. The entries grow at least by half
+	 * like on insertion, so that repeated calls for small batches stay linear.
+	 */
+	void ensureCapacity(int capacity) {
+		
+		if (capacity > keys.length) {
+			int grown = Math.max(capacity, keys.length + (keys.length >> 1) + 1);
+			keys = Arrays.copyOf(keys, grown);
+			values = Arrays.copyOf(values, grown);
+		}
+		
+		if (capacity * 2 > table.length)
+			rehash(tableCapacity(capacity));
+	}
+	
+	
+	
+	/**
+	 * Rebuilds the table from the entries.
+	 */
+	private void rehash(int capacity) {
+		
+		if (capacity != table.length)
+			allocateTable(capacity);
+		else
+			Arrays.fill(table, 0);
+		
+		for (int entry = 0; entry < size; entry++) {
+			int slot = hash(keys[entry]) & mask;
+			
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			
+			table[slot] = entry + 1;
+		}
+	}
+	
+	
+	
+	/**
+	 * Removes the element if it is present.
+	 * 
+	 * @return true - If the element was present</br>
+	 *         false - Otherwise
+	 */
+	boolean remove(Element element) {
+		
+		int slot = slotOf(element);
+		
+		if (table[slot] == 0)
+			return false;
+		
+		removeSlot(slot);
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Removes the member at the given entry index. The last entry is moved to this index.
+	 */
+	void removeAt(int entry) {
+		
+		int slot = hash(keys[entry]) & mask;
+		
+		while (table[slot] != entry + 1)
+			slot = (slot + 1) & mask;
+		
+		removeSlot(slot);
+	}
+	
+	
+	
+	private void removeSlot(int slot) {
+		
+		int entry = table[slot] - 1;
+		double removed = values[entry];
+		
+		deleteSlot(slot);
+		
+		int last = --size;
+		++modifications;
+		
+		if (entry != last) {
+			int lastSlot = hash(keys[last]) & mask;
+			
+			while (table[lastSlot] != last + 1)
+				lastSlot = (lastSlot + 1) & mask;
+			
+			table[lastSlot] = entry + 1;
+			keys[entry] = keys[last];
+			values[entry] = values[last];
+		}
+		
+		keys[last] = null;
+		
+		if (aggregates != null)
+			aggregates.removed(entry, removed, last);
+		
+		if (index != null)
+			index.removed(entry, removed, last);
+	}
+	
+	
+	
+	/**
+	 * Empties a slot of the table and shifts back the following slots of its cluster, so that no lookup is broken.
+	 */
+	private void deleteSlot(int slot) {
+		
+		int next = slot;
+		
+		for (;;) {
+			next = (next + 1) & mask;
+			int entry = table[next];
+			
+			if (entry == 0)
+				break;
+			
+			int home = hash(keys[entry - 1]) & mask;
+			
+			// the entry can move to slot only if its home is not cyclically in (slot, next]
+			if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+				table[slot] = entry;
+				slot = next;
+			}
+		}
+		
+		table[slot] = 0;
+	}
+	
+	
+	
+	/**
+	 * Removes all the members whose entry index satisfies the condition. The remaining members are compacted and the
+	 * table is rebuilt once, so the cost does not depend on the number of removed members.
+	 * 
+	 * @return Number of members removed
+	 */
+	int removeIf(IntPredicate condition) {
+		
+		int kept = 0;
+		
+		for (int entry = 0; entry < size; entry++) {
+			if (condition.test(entry))
+				continue;
+			
+			keys[kept] = keys[entry];
+			values[kept] = values[entry];
+			++kept;
+		}
+		
+		int removed = size - kept;
+		
+		if (removed > 0) {
+			Arrays.fill(keys, kept, size, null);
+			size = kept;
+			++modifications;
+			rehash(table.length);
+			
+			if (aggregates != null)
+				aggregates.rebuild();
+			
+			if (index != null)
+				index.rebuild();
+		}
+		
+		return removed;
+	}
+	
+	
+	
+	/**
+	 * Removes all the members.
+	 */
+	void clear() {
+		
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(table, 0);
+		size = 0;
+		++modifications;
+		
+		if (aggregates != null)
+			aggregates.rebuild();
+		
+		if (index != null)
+			index.rebuild();
+	}
+	
+}
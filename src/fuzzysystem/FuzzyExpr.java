@@ -0,0 +1,597 @@
+package fuzzysystem;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import fuzzysystem.monitoring.FuzzyEvents;
+import fuzzysystem.monitoring.SetOperationEvent;
+
+
+
+/**
+ * <p>
+ * FuzzyExpr is a lazy expression of set operations over {@linkplain DiscreteFuzzySet} instances. Building an
+ * expression does not perform any operation, it only records the operations as a graph. A sub expression can be used
+ * several times, for example
+ * </p>
+ * 
+ * <pre>
+ * FuzzyExpr notC = FuzzyExpr.of(c).complement();
+ * DiscreteFuzzySet result = FuzzyExpr.of(a).union(b).intersect(notC).union(notC.pow(2)).evaluate();
+ * </pre>
+ * 
+ * <p>
+ * Evaluation is performed in a single pass over the members which can be present in the result. For each of them the
+ * membership value in every distinct set of the expression is looked up once and each distinct node of the graph is
+ * computed once. No intermediate set is created, so a query of several operations costs about as much as a single
+ * operation of {@linkplain DiscreteFuzzySet}.
+ * </p>
+ * 
+ * <p>
+ * The result is the same as performing the operations one after the other with the methods of
+ * {@linkplain DiscreteFuzzySet}, including which elements are present in the result. A union contains the members of
+ * either operand, an intersection the members of both operands, while complement, power and product contain the
+ * members of their left operand. The only difference is that intermediate results are never cleaned. Only the final
+ * result is cleaned, if the destination has cleaning enabled.
+ * </p>
+ * 
+ * <p>
+ * Expressions are immutable and can be evaluated any number of times. The sets are read at the time of evaluation, so
+ * a later evaluation sees the changes made to them meanwhile. The sets must not be modified during an evaluation.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet
+ */
+public final class FuzzyExpr {
+	
+	private static final int LEAF = 0;
+	
+	private static final int UNION = 1;
+	
+	private static final int INTERSECTION = 2;
+	
+	private static final int COMPLEMENT = 3;
+	
+	private static final int PRODUCT = 4;
+	
+	private static final int SCALAR_PRODUCT = 5;
+	
+	private static final int POWER = 6;
+	
+	private final int operation;
+	
+	private final DiscreteFuzzySet set;
+	
+	private final FuzzyExpr left;
+	
+	private final FuzzyExpr right;
+	
+	private final double parameter;
+	
+	/**
+	 * Compiled form of this expression. It is created at the first evaluation.
+	 */
+	private volatile Program program;
+	
+	
+	
+	private FuzzyExpr(int operation, DiscreteFuzzySet set, FuzzyExpr left, FuzzyExpr right, double parameter) {
+		this.operation = operation;
+		this.set = set;
+		this.left = left;
+		this.right = right;
+		this.parameter = parameter;
+	}
+	
+	
+	
+	/**
+	 * Creates an expression consisting of the given set only.
+	 * 
+	 * @param fuzzySet
+	 *            Operand of the expression
+	 * @return Expression whose value is the given set
+	 */
+	public static FuzzyExpr of(DiscreteFuzzySet fuzzySet) {
+		
+		if (fuzzySet == null)
+			throw new IllegalArgumentException("Set of an expression cannot be null.");
+		
+		return new FuzzyExpr(LEAF, fuzzySet, null, null, 0);
+	}
+	
+	
+	
+	private FuzzyExpr binary(int operation, FuzzyExpr expression) {
+		
+		if (expression == null)
+			throw new IllegalArgumentException("Operand of an expression cannot be null.");
+		
+		return new FuzzyExpr(operation, null, this, expression, 0);
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the union of this expression with the given one.
+	 * 
+	 * @see DiscreteFuzzySet#union(DiscreteFuzzySet)
+	 */
+	public FuzzyExpr union(FuzzyExpr expression) {
+		
+		return binary(UNION, expression);
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the union of this expression with the given set.
+	 * 
+	 * @see DiscreteFuzzySet#union(DiscreteFuzzySet)
+	 */
+	public FuzzyExpr union(DiscreteFuzzySet fuzzySet) {
+		
+		return binary(UNION, of(fuzzySet));
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the intersection of this expression with the given one.
+	 * 
+	 * @see DiscreteFuzzySet#intersection(DiscreteFuzzySet)
+	 */
+	public FuzzyExpr intersect(FuzzyExpr expression) {
+		
+		return binary(INTERSECTION, expression);
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the intersection of this expression with the given set.
+	 * 
+	 * @see DiscreteFuzzySet#intersection(DiscreteFuzzySet)
+	 */
+	public FuzzyExpr intersect(DiscreteFuzzySet fuzzySet) {
+		
+		return binary(INTERSECTION, of(fuzzySet));
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the product of this expression with the given one.
+	 * 
+	 * @see DiscreteFuzzySet#product(DiscreteFuzzySet)
+	 */
+	public FuzzyExpr product(FuzzyExpr expression) {
+		
+		return binary(PRODUCT, expression);
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the product of this expression with the given set.
+	 * 
+	 * @see DiscreteFuzzySet#product(DiscreteFuzzySet)
+	 */
+	public FuzzyExpr product(DiscreteFuzzySet fuzzySet) {
+		
+		return binary(PRODUCT, of(fuzzySet));
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the multiplication of this expression with a numerical value. The factor is limited to
+	 * [0,1], so that the membership values always stay in range. Use {@linkplain DiscreteFuzzySet#product(double)} for a
+	 * larger factor.
+	 * 
+	 * @param scaler
+	 *            Multiplication factor
+	 * @throws IllegalArgumentException
+	 *             If the factor is not in [0,1]
+	 */
+	public FuzzyExpr product(double scaler) {
+		
+		if (!(scaler >= 0 && scaler <= 1))
+			throw new IllegalArgumentException("Factor of an expression must be in [0,1] : " + scaler);
+		
+		return new FuzzyExpr(SCALAR_PRODUCT, null, this, null, scaler);
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the complement of this expression.
+	 * 
+	 * @see DiscreteFuzzySet#complement()
+	 */
+	public FuzzyExpr complement() {
+		
+		return new FuzzyExpr(COMPLEMENT, null, this, null, 0);
+	}
+	
+	
+	
+	/**
+	 * Returns the expression for the power of this expression with a numerical value.
+	 * 
+	 * @see DiscreteFuzzySet#power(float)
+	 */
+	public FuzzyExpr pow(float power) {
+		
+		return new FuzzyExpr(POWER, null, this, null, power);
+	}
+	
+	
+	
+	/**
+	 * Evaluates the expression into a new set.
+	 * 
+	 * @return New set containing the result
+	 */
+	public DiscreteFuzzySet evaluate() {
+		
+		return compile().evaluate(new DiscreteFuzzySet());
+	}
+	
+	
+	
+	/**
+	 * Evaluates the expression into the destination set. The previous members of the destination are removed but its
+	 * storage is reused. The destination is cleaned afterwards if it has cleaning enabled.
+	 * 
+	 * @param destination
+	 *            Set receiving the result
+	 * @return destination
+	 * @throws IllegalArgumentException
+	 *             If the destination is one of the sets of the expression
+	 */
+	public DiscreteFuzzySet evaluate(DiscreteFuzzySet destination) {
+		
+		Program program = compile();
+		
+		for (DiscreteFuzzySet leaf : program.leaves)
+			if (leaf == destination)
+				throw new IllegalArgumentException("Destination set must not be a set of the expression.");
+		
+		return program.evaluate(destination);
+	}
+	
+	
+	
+	/**
+	 * Evaluates the expression for a single element, without evaluating the other members.
+	 * 
+	 * @param element
+	 *            Element whose membership value is required
+	 * @return Membership value of the element in the result, 0 if it is not present
+	 */
+	public double getMembershipValue(Element element) {
+		
+		Program program = compile();
+		double[] registers = new double[program.registerCount];
+		boolean[] present = new boolean[program.registerCount];
+		
+		for (int i = 0; i < program.leaves.length; i++)
+			program.load(i, element, registers, present);
+		
+		program.execute(registers, present);
+		
+		return present[program.registerCount - 1] ? registers[program.registerCount - 1] : 0;
+	}
+	
+	
+	
+	private Program compile() {
+		
+		Program compiled = program;
+		
+		if (compiled == null)
+			program = compiled = new Program(this);
+		
+		return compiled;
+	}
+	
+	
+	
+	@Override
+	public String toString() {
+		
+		switch (operation) {
+			case LEAF:
+				return "set@" + Integer.toHexString(System.identityHashCode(set));
+			case UNION:
+				return "(" + left + " union " + right + ")";
+			case INTERSECTION:
+				return "(" + left + " intersect " + right + ")";
+			case PRODUCT:
+				return "(" + left + " product " + right + ")";
+			case SCALAR_PRODUCT:
+				return "(" + left + " product " + parameter + ")";
+			case COMPLEMENT:
+				return "complement" + left;
+			default:
+				return "(" + left + " pow " + (float) parameter + ")";
+		}
+	}
+	
+	
+	
+	/**
+	 * <p>
+	 * Program is the compiled form of an expression. Every distinct set and every distinct node of the expression is
+	 * given a register. The registers of the sets come first, followed by the nodes in an order where the operands of
+	 * a node always come before the node. The last register holds the value of the whole expression.
+	 * </p>
+	 * 
+	 * <p>
+	 * Whether the element is present in the set or in the result of the node is kept apart from the value of the
+	 * register, since a member may have any value including NaN.
+	 * </p>
+	 */
+	private static final class Program {
+		
+		final DiscreteFuzzySet[] leaves;
+		
+		final int registerCount;
+		
+		/**
+		 * Operation, operand registers and parameter of the node at register leaves.length + i.
+		 */
+		private final int[] operations;
+		
+		private final int[] lefts;
+		
+		private final int[] rights;
+		
+		private final double[] parameters;
+		
+		
+		
+		Program(FuzzyExpr root) {
+			
+			IdentityHashMap<Object, Integer> registers = new IdentityHashMap<>();
+			List<DiscreteFuzzySet> leafList = new ArrayList<>();
+			collectLeaves(root, registers, leafList);
+			
+			leaves = leafList.toArray(new DiscreteFuzzySet[leafList.size()]);
+			
+			List<FuzzyExpr> nodes = new ArrayList<>();
+			order(root, registers, nodes);
+			
+			registerCount = leaves.length + nodes.size();
+			operations = new int[nodes.size()];
+			lefts = new int[nodes.size()];
+			rights = new int[nodes.size()];
+			parameters = new double[nodes.size()];
+			
+			for (int i = 0; i < nodes.size(); i++) {
+				FuzzyExpr node = nodes.get(i);
+				operations[i] = node.operation;
+				lefts[i] = register(node.left, registers);
+				rights[i] = (node.right == null) ? -1 : register(node.right, registers);
+				parameters[i] = node.parameter;
+			}
+		}
+		
+		
+		
+		private static void collectLeaves(FuzzyExpr node, IdentityHashMap<Object, Integer> registers, List<DiscreteFuzzySet> leaves) {
+			
+			if (node.operation == LEAF) {
+				if (!registers.containsKey(node.set)) {
+					registers.put(node.set, leaves.size());
+					leaves.add(node.set);
+				}
+				
+				return;
+			}
+			
+			collectLeaves(node.left, registers, leaves);
+			
+			if (node.right != null)
+				collectLeaves(node.right, registers, leaves);
+		}
+		
+		
+		
+		/**
+		 * Gives registers to the nodes in the order where the operands come first. A shared node is visited once.
+		 */
+		private void order(FuzzyExpr node, IdentityHashMap<Object, Integer> registers, List<FuzzyExpr> nodes) {
+			
+			if (node.operation == LEAF || registers.containsKey(node))
+				return;
+			
+			order(node.left, registers, nodes);
+			
+			if (node.right != null)
+				order(node.right, registers, nodes);
+			
+			registers.put(node, leaves.length + nodes.size());
+			nodes.add(node);
+		}
+		
+		
+		
+		private static int register(FuzzyExpr node, IdentityHashMap<Object, Integer> registers) {
+			
+			return registers.get(node.operation == LEAF ? node.set : node);
+		}
+		
+		
+		
+		/**
+		 * Loads the membership value of the element in the set of the register, 0 if it is not present.
+		 */
+		void load(int leaf, Element element, double[] registers, boolean[] present) {
+			
+			ElementMembershipMap map = leaves[leaf].map();
+			int entry = map.indexOf(element);
+			
+			present[leaf] = entry >= 0;
+			registers[leaf] = (entry >= 0) ? map.valueAt(entry) : 0;
+		}
+		
+		
+		
+		/**
+		 * Computes the registers of the nodes from the registers of the sets. The value of a register whose element is
+		 * not present is meaningless.
+		 */
+		void execute(double[] registers, boolean[] present) {
+			
+			int base = leaves.length;
+			
+			for (int i = 0; i < operations.length; i++) {
+				double a = registers[lefts[i]], result;
+				boolean leftPresent = present[lefts[i]], resultPresent = leftPresent;
+				
+				switch (operations[i]) {
+					case UNION: {
+						double b = registers[rights[i]];
+						boolean rightPresent = present[rights[i]];
+						
+						if (!leftPresent)
+							result = b;
+						else if (!rightPresent)
+							result = a;
+						else
+							result = Math.max(a, b);
+						
+						resultPresent = leftPresent || rightPresent;
+						break;
+					}
+					case INTERSECTION:
+						result = Math.min(a, registers[rights[i]]);
+						resultPresent = leftPresent && present[rights[i]];
+						break;
+					case PRODUCT:
+						result = present[rights[i]] ? a * registers[rights[i]] : a * 0.0;
+						break;
+					case SCALAR_PRODUCT:
+						result = a * parameters[i];
+						break;
+					case COMPLEMENT:
+						result = 1 - a;
+						break;
+					default:
+						result = Math.pow(a, (float) parameters[i]);
+						break;
+				}
+				
+				registers[base + i] = result;
+				present[base + i] = resultPresent;
+			}
+		}
+		
+		
+		
+		/**
+		 * Returns the sets whose members are the only elements which can be present in the result of the register. For
+		 * an intersection the operand with fewer candidates is chosen.
+		 */
+		private BitSet candidates(int register) {
+			
+			BitSet candidates;
+			
+			if (register < leaves.length) {
+				candidates = new BitSet();
+				candidates.set(register);
+				return candidates;
+			}
+			
+			int node = register - leaves.length;
+			candidates = candidates(lefts[node]);
+			
+			if (operations[node] == UNION)
+				candidates.or(candidates(rights[node]));
+			else if (operations[node] == INTERSECTION) {
+				BitSet other = candidates(rights[node]);
+				
+				if (count(other) < count(candidates))
+					candidates = other;
+			}
+			
+			return candidates;
+		}
+		
+		
+		
+		private long count(BitSet candidates) {
+			
+			long count = 0;
+			
+			for (int leaf = candidates.nextSetBit(0); leaf >= 0; leaf = candidates.nextSetBit(leaf + 1))
+				count += leaves[leaf].size();
+			
+			return count;
+		}
+		
+		
+		
+		DiscreteFuzzySet evaluate(DiscreteFuzzySet destination) {
+			
+			SetOperationEvent event = new SetOperationEvent();
+			event.begin();
+			
+			BitSet candidateSet = candidates(registerCount - 1);
+			int[] candidates = candidateSet.stream().toArray();
+			
+			int largest = 0;
+			for (int leaf : candidates)
+				largest = Math.max(largest, leaves[leaf].size());
+			
+			ElementMembershipMap result = destination.map();
+			result.clear();
+			result.ensureCapacity(largest);
+			
+			double[] registers = new double[registerCount];
+			boolean[] present = new boolean[registerCount];
+			int visited = 0;
+			
+			for (int c = 0; c < candidates.length; c++) {
+				ElementMembershipMap driver = leaves[candidates[c]].map();
+				
+				members: for (int entry = 0; entry < driver.size(); entry++) {
+					Element element = driver.keyAt(entry);
+					
+					// an element shared by several candidate sets is evaluated with the first of them
+					for (int previous = 0; previous < c; previous++)
+						if (leaves[candidates[previous]].map().containsKey(element))
+							continue members;
+					
+					for (int leaf = 0; leaf < leaves.length; leaf++) {
+						if (leaf == candidates[c]) {
+							registers[leaf] = driver.valueAt(entry);
+							present[leaf] = true;
+						}
+						else
+							load(leaf, element, registers, present);
+					}
+					
+					execute(registers, present);
+					++visited;
+					
+					if (present[registerCount - 1])
+						result.put(element, registers[registerCount - 1]);
+				}
+			}
+			
+			if (destination.autoCleanEnabled())
+				destination.clean();
+			
+			FuzzyEvents.setOperation(event, "expression", visited, leaves.length, destination.size());
+			
+			return destination;
+		}
+	}
+	
+}
@@ -0,0 +1,208 @@
+package fuzzysystem;
+
+import fuzzysystem.monitoring.FuzzyMetrics;
+import fuzzysystem.monitoring.MetricsRegistry;
+
+
+
+/**
+ * <p>
+ * FuzzyRule represents a rule of the form <br/>
+ * <code>IF x1 is A1 AND x2 is A2 ... AND xn is An THEN y is B</code> <br/>
+ * where every xi is an input {@linkplain LinguisticVariable}, y is the output variable and A1...An, B are terms of
+ * those variables. The terms are referred by their index in the variable.
+ * </p>
+ * 
+ * <p>
+ * Each rule carries a degree which tells how strongly the rule is supported. Rules generated from data by
+ * {@linkplain WangMendelRuleGenerator} use the degree to resolve conflicting rules. This is an immutable class.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see LinguisticVariable
+ *      WangMendelRuleGenerator
+ */
+public final class FuzzyRule {
+	
+	private final LinguisticVariable[]	inputs;
+	private final LinguisticVariable	output;
+	private final int[]					antecedents;
+	private final int					consequent;
+	private final double				degree;
+	
+	
+	
+	/**
+	 * Distribution of the firing strength of this rule in the registry it was last recorded in. It is resolved again
+	 * when the active registry changes. Threads resolving it at the same time resolve the same distribution, so the
+	 * field needs no synchronization.
+	 */
+	private MetricsRegistry.RuleMetrics metrics;
+	
+	
+	
+	/**
+	 * Creates a new <i>FuzzyRule</i>. The term at index i of antecedents belongs to the variable at index i of inputs.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the number of antecedents is not equal to the number of inputs or any term index is not valid for
+	 *             its variable.
+	 */
+	public FuzzyRule(LinguisticVariable[] inputs, int[] antecedents, LinguisticVariable output, int consequent, double degree) {
+		
+		if (inputs.length != antecedents.length)
+			throw new IllegalArgumentException("Every input variable must have exactly one antecedent term.");
+		
+		for (int i = 0; i < inputs.length; i++)
+			if (antecedents[i] < 0 || antecedents[i] >= inputs[i].getTermCount())
+				throw new IllegalArgumentException("Invalid term " + antecedents[i] + " for variable " + inputs[i].getName());
+		
+		if (consequent < 0 || consequent >= output.getTermCount())
+			throw new IllegalArgumentException("Invalid term " + consequent + " for variable " + output.getName());
+		
+		this.inputs = inputs.clone();
+		this.antecedents = antecedents.clone();
+		this.output = output;
+		this.consequent = consequent;
+		this.degree = degree;
+	}
+	
+	
+	
+	/**
+	 * Returns the firing strength of this rule for the given input values. The firing strength is the product of the
+	 * membership values of the inputs in their antecedent terms.
+	 * 
+	 * @param inputValues
+	 *            Value of every input variable, in the same order as the inputs of this rule.
+	 * @return Firing strength of this rule in [0, 1]
+	 */
+	public double getFiringStrength(double... inputValues) {
+		
+		double strength = 1;
+		
+		for (int i = 0; i < antecedents.length && strength > 0; i++)
+			strength *= inputs[i].getMembershipValue(antecedents[i], inputValues[i]);
+		
+		MetricsRegistry registry = FuzzyMetrics.registry();
+		
+		if (registry != null) {
+			MetricsRegistry.RuleMetrics metrics = this.metrics;
+			
+			if (metrics == null || !metrics.belongsTo(registry))
+				this.metrics = metrics = registry.ruleMetrics(this);
+			
+			metrics.record(strength);
+		}
+		
+		return strength;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of antecedents of this rule.
+	 * 
+	 * @return Number of input variables
+	 */
+	public int getAntecedentCount() {
+		
+		return antecedents.length;
+	}
+	
+	
+	
+	/**
+	 * Returns the term index used by this rule for the input variable at the given index.
+	 * 
+	 * @param input
+	 *            Index of the input variable
+	 * @return Term index of the antecedent
+	 */
+	public int getAntecedent(int input) {
+		
+		return antecedents[input];
+	}
+	
+	
+	
+	/**
+	 * Returns the input variable at the given index.
+	 * 
+	 * @param input
+	 *            Index of the input variable
+	 * @return Input variable
+	 */
+	public LinguisticVariable getInput(int input) {
+		
+		return inputs[input];
+	}
+	
+	
+	
+	/**
+	 * Getter method of consequent term index.
+	 * 
+	 * @return Index of the output term
+	 */
+	public int getConsequent() {
+		
+		return consequent;
+	}
+	
+	
+	
+	/**
+	 * Getter method of the output variable.
+	 * 
+	 * @return Output variable of this rule
+	 */
+	public LinguisticVariable getOutput() {
+		
+		return output;
+	}
+	
+	
+	
+	/**
+	 * Getter method of the degree of this rule.
+	 * 
+	 * @return Degree of this rule
+	 */
+	public double getDegree() {
+		
+		return degree;
+	}
+	
+	
+	
+	/**
+	 * Returns the string representation of this rule, for example <br/>
+	 * <code>IF temperature is hot AND humidity is high THEN fan is fast (0.72)</code>
+	 */
+	@Override
+	public String toString() {
+		
+		StringBuilder buffer = new StringBuilder(32 + antecedents.length * 24);
+		buffer.append("IF ");
+		
+		for (int i = 0; i < antecedents.length; i++) {
+			if (i > 0)
+				buffer.append(" AND ");
+			buffer.append(inputs[i].getName());
+			buffer.append(" is ");
+			buffer.append(inputs[i].getTermName(antecedents[i]));
+		}
+		
+		buffer.append(" THEN ");
+		buffer.append(output.getName());
+		buffer.append(" is ");
+		buffer.append(output.getTermName(consequent));
+		buffer.append(" (");
+		buffer.append(degree);
+		buffer.append(')');
+		
+		return buffer.toString();
+	}
+	
+}
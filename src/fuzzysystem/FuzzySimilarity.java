@@ -0,0 +1,289 @@
+package fuzzysystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+
+/**
+ * <p>
+ * FuzzySimilarity provides measures of similarity and distance between {@linkplain DiscreteFuzzySet} instances.
+ * Elements which are not present in a set have 0 membership value in it. With <u>a</u> and <u>b</u> being the
+ * membership values of an element in the sets <u>A</u> and <u>B</u>, the measures are</br>
+ * </br>
+ * jaccard = sum of min(a, b) / sum of max(a, b)</br>
+ * hamming = sum of |a - b|</br>
+ * euclidean = square root of the sum of (a - b)<sup>2</sup></br>
+ * subsethood of <u>A</u> in <u>B</u> = sum of min(a, b) / sum of a</br>
+ * </br>
+ * where the sums are over all the elements of <u>A</u> or <u>B</u>.
+ * </p>
+ * 
+ * <p>
+ * Since sum of max(a, b) = |A| + |B| - sum of min(a, b), where |A| is the {@linkplain DiscreteFuzzySet#cardinalValue()},
+ * the Jaccard similarity and the subsethood only visit the members of the smaller set.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet#equalsFuzzySet(DiscreteFuzzySet)
+ */
+public final class FuzzySimilarity {
+	
+	private FuzzySimilarity() {
+	}
+	
+	
+	
+	/**
+	 * Returns the sum over the common members of the minimum of their membership values. The smaller set is visited
+	 * and the other one is probed.
+	 */
+	private static double minimumSum(DiscreteFuzzySet setA, DiscreteFuzzySet setB) {
+		
+		ElementMembershipMap small = setA.map(), large = setB.map();
+		
+		if (small.size() > large.size()) {
+			small = setB.map();
+			large = setA.map();
+		}
+		
+		double sum = 0;
+		
+		for (int i = 0; i < small.size(); i++)
+			sum += Math.min(small.valueAt(i), large.get(small.keyAt(i)));
+		
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Returns the fuzzy Jaccard similarity of the sets, the sum of the minimum membership values divided by the sum of
+	 * the maximum membership values. It is 1 for equal sets and 0 for sets without common members. Two sets without
+	 * members having membership value greater than 0 have similarity 1.
+	 * 
+	 * @return Similarity in [0,1]
+	 */
+	public static double jaccard(DiscreteFuzzySet setA, DiscreteFuzzySet setB) {
+		
+		return jaccard(minimumSum(setA, setB), setA.cardinalValue(), setB.cardinalValue());
+	}
+	
+	
+	
+	private static double jaccard(double minimumSum, double cardinalA, double cardinalB) {
+		
+		double maximumSum = cardinalA + cardinalB - minimumSum;
+		
+		return (maximumSum <= 0) ? 1 : Math.min(1, minimumSum / maximumSum);
+	}
+	
+	
+	
+	/**
+	 * Returns the degree to which setA is a subset of setB, the sum of the minimum membership values divided by the
+	 * cardinal value of setA. It is 1 if every membership value in setA is at most the membership value in setB. An
+	 * empty setA is a subset of every set.
+	 * 
+	 * @return Subsethood in [0,1]
+	 */
+	public static double subsethood(DiscreteFuzzySet setA, DiscreteFuzzySet setB) {
+		
+		double cardinalA = setA.cardinalValue();
+		
+		return (cardinalA <= 0) ? 1 : Math.min(1, minimumSum(setA, setB) / cardinalA);
+	}
+	
+	
+	
+	/**
+	 * Returns the Hamming distance of the sets, the sum of the absolute differences of the membership values.
+	 * 
+	 * @return Distance in [0, number of elements of setA or setB]
+	 */
+	public static double hamming(DiscreteFuzzySet setA, DiscreteFuzzySet setB) {
+		
+		ElementMembershipMap mapA = setA.map(), mapB = setB.map();
+		double distance = 0;
+		
+		for (int i = 0; i < mapA.size(); i++)
+			distance += Math.abs(mapA.valueAt(i) - mapB.get(mapA.keyAt(i)));
+		
+		for (int i = 0; i < mapB.size(); i++)
+			if (!mapA.containsKey(mapB.keyAt(i)))
+				distance += mapB.valueAt(i);
+		
+		return distance;
+	}
+	
+	
+	
+	/**
+	 * Returns the Euclidean distance of the sets, the square root of the sum of the squared differences of the
+	 * membership values.
+	 * 
+	 * @return Distance in [0, square root of the number of elements of setA or setB]
+	 */
+	public static double euclidean(DiscreteFuzzySet setA, DiscreteFuzzySet setB) {
+		
+		ElementMembershipMap mapA = setA.map(), mapB = setB.map();
+		double sum = 0;
+		
+		for (int i = 0; i < mapA.size(); i++) {
+			double difference = mapA.valueAt(i) - mapB.get(mapA.keyAt(i));
+			sum += difference * difference;
+		}
+		
+		for (int i = 0; i < mapB.size(); i++)
+			if (!mapA.containsKey(mapB.keyAt(i)))
+				sum += mapB.valueAt(i) * mapB.valueAt(i);
+		
+		return Math.sqrt(sum);
+	}
+	
+	
+	
+	/**
+	 * <p>
+	 * SimilarPair is a pair of sets found by {@linkplain FuzzySimilarity#similarPairs(List, double)}. The sets are
+	 * identified by their index in the list, first being less than second.
+	 * </p>
+	 */
+	public static final class SimilarPair {
+		
+		private final int first;
+		
+		private final int second;
+		
+		private final double similarity;
+		
+		
+		
+		SimilarPair(int first, int second, double similarity) {
+			this.first = Math.min(first, second);
+			this.second = Math.max(first, second);
+			this.similarity = similarity;
+		}
+		
+		
+		
+		/**
+		 * Returns the smaller index of the pair.
+		 */
+		public int getFirst() {
+			
+			return first;
+		}
+		
+		
+		
+		/**
+		 * Returns the larger index of the pair.
+		 */
+		public int getSecond() {
+			
+			return second;
+		}
+		
+		
+		
+		/**
+		 * Returns the Jaccard similarity of the pair.
+		 */
+		public double getSimilarity() {
+			
+			return similarity;
+		}
+		
+		
+		
+		@Override
+		public String toString() {
+			
+			return "(" + first + "," + second + "," + similarity + ")";
+		}
+	}
+	
+	
+	
+	/**
+	 * <p>
+	 * Finds all the pairs of sets whose Jaccard similarity is at least the threshold. The sets must not be modified
+	 * during the operation.
+	 * </p>
+	 * 
+	 * <p>
+	 * Most pairs are rejected without comparing their members. As the sum of the minimum membership values is at most
+	 * min(|A|, |B|) and the sum of the maximum membership values is at least max(|A|, |B|), the similarity is at most
+	 * min(|A|, |B|) / max(|A|, |B|). The sets are sorted by decreasing cardinal value, so that every set is compared
+	 * only with the following sets whose cardinal value is at least threshold * |A|. The remaining candidates are
+	 * compared in parallel when there are many sets.
+	 * </p>
+	 * 
+	 * @param fuzzySets
+	 *            Sets to compare
+	 * @param threshold
+	 *            Lowest similarity of the pairs, greater than 0
+	 * @return Pairs of similar sets ordered by first and then by second index
+	 * @throws IllegalArgumentException
+	 *             If the threshold is not in (0,1]
+	 */
+	public static List<SimilarPair> similarPairs(List<DiscreteFuzzySet> fuzzySets, double threshold) {
+		
+		if (!(threshold > 0 && threshold <= 1))
+			throw new IllegalArgumentException("Similarity threshold must be in (0,1] : " + threshold);
+		
+		int count = fuzzySets.size();
+		DiscreteFuzzySet[] sets = fuzzySets.toArray(new DiscreteFuzzySet[count]);
+		double[] cardinals = new double[count];
+		int[] sorted = new int[count];
+		
+		for (int i = 0; i < count; i++) {
+			cardinals[i] = sets[i].cardinalValue();
+			sorted[i] = i;
+		}
+		
+		MembershipIndex.sort(sorted, cardinals, count);
+		
+		double[] sortedCardinals = new double[count];
+		
+		for (int i = 0; i < count; i++)
+			sortedCardinals[i] = cardinals[sorted[i]];
+		
+		SimilarPair[][] found = new SimilarPair[count][];
+		ParallelChunks.ChunkAction compare = (chunk, from, to) -> {
+			for (int i = from; i < to; i++) {
+				List<SimilarPair> pairs = new ArrayList<SimilarPair>();
+				double cardinalA = sortedCardinals[i];
+				
+				for (int j = i + 1; j < count && sortedCardinals[j] >= threshold * cardinalA; j++) {
+					double cardinalB = sortedCardinals[j];
+					DiscreteFuzzySet setA = sets[sorted[i]], setB = sets[sorted[j]];
+					double similarity = jaccard(minimumSum(setA, setB), cardinalA, cardinalB);
+					
+					if (similarity >= threshold)
+						pairs.add(new SimilarPair(sorted[i], sorted[j], similarity));
+				}
+				
+				found[i] = pairs.toArray(new SimilarPair[pairs.size()]);
+			}
+		};
+		
+		if (ParallelChunks.parallel(count))
+			ParallelChunks.forEachChunk(count, 64, compare);
+		else
+			compare.apply(0, 0, count);
+		
+		List<SimilarPair> pairs = new ArrayList<SimilarPair>();
+		
+		for (SimilarPair[] setPairs : found)
+			pairs.addAll(Arrays.asList(setPairs));
+		
+		pairs.sort((pairA, pairB) -> (pairA.first != pairB.first) ? Integer.compare(pairA.first, pairB.first)
+				: Integer.compare(pairA.second, pairB.second));
+		
+		return pairs;
+	}
+	
+}
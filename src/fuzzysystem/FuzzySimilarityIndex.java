@@ -0,0 +1,586 @@
+package fuzzysystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+
+/**
+ * <p>
+ * FuzzySimilarityIndex stores a large number of {@linkplain DiscreteFuzzySet} instances and finds the sets most
+ * similar to a query set by the fuzzy Jaccard similarity of {@linkplain FuzzySimilarity#jaccard(DiscreteFuzzySet,
+ * DiscreteFuzzySet)}, without comparing the query with every stored set.
+ * </p>
+ * 
+ * <p>
+ * Every set is summarized by a signature of weighted MinHash samples, drawn with the consistent weighted sampling of
+ * Ioffe. Two sets give the same sample with a probability equal to their Jaccard similarity. The signature is divided
+ * into bands of rows samples and every band is hashed into its own table. The sets sharing at least one band with the
+ * query are the candidates, which are then compared exactly. A pair with similarity s is a candidate with the
+ * probability 1 - (1 - s<sup>rows</sup>)<sup>bands</sup>, so very similar sets are almost always found while
+ * dissimilar ones are rarely compared. The similarity at which this probability rises steeply is about
+ * (1 / bands)<sup>1 / rows</sup>. The result is approximate: a similar set may be missed, but the similarity of
+ * every returned set is exact.
+ * </p>
+ * 
+ * <p>
+ * Sets are added one at a time and may be removed. A removed set is unlinked from every table and its id is given to
+ * a set added later, so the memory of the index and the length of the buckets follow the number of sets it holds
+ * rather than the number of sets ever added. The index is safe for use by many threads: any number of queries run at
+ * the same time, while additions and removals wait for them. The signatures are computed before taking the lock. The
+ * stored sets must not be modified after they are added.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzySimilarity
+ */
+public final class FuzzySimilarityIndex {
+	
+	private static final long SEED = 0x5DEECE66DL;
+	
+	private final int bands;
+	
+	private final int rows;
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/**
+	 * Stored sets by id. Removed sets are null.
+	 */
+	private DiscreteFuzzySet[] sets = new DiscreteFuzzySet[16];
+	
+	/**
+	 * Number of ids given so far.
+	 */
+	private int count;
+	
+	private int size;
+	
+	/**
+	 * Ids of the removed sets, given again before new ones.
+	 */
+	private int[] freeIds = new int[16];
+	
+	private int freeCount;
+	
+	/**
+	 * Bucket tables of the bands.
+	 */
+	private final BandTable[] tables;
+	
+	/**
+	 * Chains of the buckets. next[band][id] is the id added before id to the same bucket of the band, or -1.
+	 */
+	private int[][] next;
+	
+	/**
+	 * previous[band][id] is the id added after id to the same bucket of the band, or -1 if id is the last one.
+	 */
+	private int[][] previous;
+	
+	
+	
+	/**
+	 * Creates an empty index with 16 bands of 4 rows. Sets with similarity above about 0.5 are likely to be found.
+	 */
+	public FuzzySimilarityIndex() {
+		this(16, 4);
+	}
+	
+	
+	
+	/**
+	 * Creates an empty index. More bands find more of the similar sets at the cost of more memory and more
+	 * candidates, more rows give fewer candidates with low similarity.
+	 * 
+	 * @param bands
+	 *            Number of hash tables
+	 * @param rows
+	 *            Number of samples hashed together in every table
+	 * @throws IllegalArgumentException
+	 *             If bands or rows is less than 1
+	 */
+	public FuzzySimilarityIndex(int bands, int rows) {
+		
+		if (bands < 1 || rows < 1)
+			throw new IllegalArgumentException("Bands and rows must be positive : " + bands + ", " + rows);
+		
+		this.bands = bands;
+		this.rows = rows;
+		tables = new BandTable[bands];
+		next = new int[bands][16];
+		previous = new int[bands][16];
+		
+		for (int band = 0; band < bands; band++)
+			tables[band] = new BandTable();
+	}
+	
+	
+	
+	/**
+	 * Adds the set to the index.
+	 * 
+	 * @return Id of the set, used by the {@linkplain Match} instances. It may be the id of a removed set.
+	 */
+	public int add(DiscreteFuzzySet fuzzySet) {
+		
+		long[] keys = bandKeys(fuzzySet);
+		
+		lock.writeLock().lock();
+		try {
+			int id = (freeCount > 0) ? freeIds[--freeCount] : count++;
+			
+			if (id == sets.length) {
+				sets = Arrays.copyOf(sets, id * 2);
+				
+				for (int band = 0; band < bands; band++) {
+					next[band] = Arrays.copyOf(next[band], id * 2);
+					previous[band] = Arrays.copyOf(previous[band], id * 2);
+				}
+			}
+			
+			sets[id] = fuzzySet;
+			size++;
+			
+			for (int band = 0; band < bands; band++) {
+				int last = tables[band].put(keys[band], id);
+				
+				next[band][id] = last;
+				previous[band][id] = -1;
+				
+				if (last >= 0)
+					previous[band][last] = id;
+			}
+			
+			return id;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	
+	/**
+	 * Removes the set with the id from the index and unlinks it from the buckets of every band. The id is given to the
+	 * next set added.
+	 * 
+	 * @return true - If the set was present</br>
+	 *         false - Otherwise
+	 */
+	public boolean remove(int id) {
+		
+		DiscreteFuzzySet fuzzySet = get(id);
+		
+		if (fuzzySet == null)
+			return false;
+		
+		// the set is not modified once added, so its buckets are found again from its signature
+		long[] keys = bandKeys(fuzzySet);
+		
+		lock.writeLock().lock();
+		try {
+			// removed meanwhile by another thread
+			if (sets[id] != fuzzySet)
+				return false;
+			
+			for (int band = 0; band < bands; band++) {
+				int older = next[band][id], newer = previous[band][id];
+				
+				if (newer >= 0)
+					next[band][newer] = older;
+				else
+					tables[band].setLast(keys[band], older);
+				
+				if (older >= 0)
+					previous[band][older] = newer;
+			}
+			
+			if (freeCount == freeIds.length)
+				freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+			
+			freeIds[freeCount++] = id;
+			sets[id] = null;
+			size--;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the set with the id or null if it is not present.
+	 */
+	public DiscreteFuzzySet get(int id) {
+		
+		lock.readLock().lock();
+		try {
+			return (id >= 0 && id < count) ? sets[id] : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the number of sets in the index.
+	 */
+	public int size() {
+		
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	
+	
+	/**
+	 * Finds the sets most similar to the query.
+	 * 
+	 * @param query
+	 *            Set to be matched
+	 * @param count
+	 *            Maximum number of matches
+	 * @return Matches ordered by decreasing similarity
+	 */
+	public List<Match> nearest(DiscreteFuzzySet query, int count) {
+		
+		return nearest(query, count, 0);
+	}
+	
+	
+	
+	/**
+	 * Finds the sets most similar to the query whose similarity is at least the given one.
+	 * 
+	 * @param query
+	 *            Set to be matched
+	 * @param count
+	 *            Maximum number of matches
+	 * @param minimumSimilarity
+	 *            Lowest similarity of the matches
+	 * @return Matches ordered by decreasing similarity
+	 * @throws IllegalArgumentException
+	 *             If count is negative
+	 */
+	public List<Match> nearest(DiscreteFuzzySet query, int count, double minimumSimilarity) {
+		
+		if (count < 0)
+			throw new IllegalArgumentException("Number of matches must not be negative : " + count);
+		
+		if (count == 0)
+			return new ArrayList<Match>();
+		
+		long[] keys = bandKeys(query);
+		PriorityQueue<Match> best = new PriorityQueue<Match>(
+				(matchA, matchB) -> Double.compare(matchA.similarity, matchB.similarity));
+		
+		lock.readLock().lock();
+		try {
+			int[] candidates = new int[16];
+			int candidateCount = 0;
+			
+			for (int band = 0; band < bands; band++)
+				for (int id = tables[band].get(keys[band]); id >= 0; id = next[band][id]) {
+					if (candidateCount == candidates.length)
+						candidates = Arrays.copyOf(candidates, candidateCount * 2);
+					
+					candidates[candidateCount++] = id;
+				}
+			
+			Arrays.sort(candidates, 0, candidateCount);
+			
+			for (int i = 0; i < candidateCount; i++) {
+				int id = candidates[i];
+				
+				if (i > 0 && id == candidates[i - 1])
+					continue;
+				
+				double similarity = FuzzySimilarity.jaccard(query, sets[id]);
+				
+				if (similarity < minimumSimilarity)
+					continue;
+				
+				if (best.size() < count)
+					best.add(new Match(id, sets[id], similarity));
+				else if (similarity > best.peek().similarity) {
+					best.poll();
+					best.add(new Match(id, sets[id], similarity));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		
+		Match[] matches = new Match[best.size()];
+		
+		for (int i = matches.length - 1; i >= 0; i--)
+			matches[i] = best.poll();
+		
+		return Arrays.asList(matches);
+	}
+	
+	
+	
+	/**
+	 * Computes the weighted MinHash signature of the set and returns the hash of every band.
+	 */
+	private long[] bandKeys(DiscreteFuzzySet fuzzySet) {
+		
+		ElementMembershipMap map = fuzzySet.map();
+		long[] keys = new long[bands];
+		
+		for (int band = 0; band < bands; band++) {
+			long key = SEED + band;
+			
+			for (int row = 0; row < rows; row++)
+				key = mix(key ^ sample(map, band * rows + row));
+			
+			keys[band] = key;
+		}
+		
+		return keys;
+	}
+	
+	
+	
+	/**
+	 * Draws a consistent weighted sample of the map and returns its hash. For every member with membership value S, the
+	 * random values r, c ~ Gamma(2, 1) and b ~ Uniform(0, 1) are derived from the element and the sample number, giving
+	 * t = floor(ln S / r + b) and a = c / exp(r (t - b + 1)). The sample is the member with the smallest a, together
+	 * with its t.
+	 */
+	private static long sample(ElementMembershipMap map, int number) {
+		
+		long sample = SEED;
+		double smallest = Double.POSITIVE_INFINITY;
+		
+		for (int i = 0; i < map.size(); i++) {
+			double membership = map.valueAt(i);
+			
+			if (membership <= 0)
+				continue;
+			
+			long state = mix((((long) ElementMembershipMap.hash(map.keyAt(i))) << 32) ^ number);
+			double r = -Math.log(uniform(state = mix(state)) * uniform(state = mix(state)));
+			double c = -Math.log(uniform(state = mix(state)) * uniform(state = mix(state)));
+			double b = uniform(mix(state));
+			double t = Math.floor(Math.log(membership) / r + b);
+			double a = Math.log(c) - r * (t - b + 1);
+			
+			if (a < smallest) {
+				smallest = a;
+				sample = (((long) ElementMembershipMap.hash(map.keyAt(i))) << 32) ^ (long) t;
+			}
+		}
+		
+		return sample;
+	}
+	
+	
+	
+	/**
+	 * Returns a uniform value in (0, 1) from the high bits of the state.
+	 */
+	private static double uniform(long state) {
+		
+		return ((state >>> 11) + 0.5) * 0x1.0p-53;
+	}
+	
+	
+	
+	/**
+	 * Finalizer of the SplitMix64 generator.
+	 */
+	private static long mix(long value) {
+		
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+	
+	
+	
+	/**
+	 * <p>
+	 * Match is a set found by {@linkplain FuzzySimilarityIndex#nearest(DiscreteFuzzySet, int, double)} together with
+	 * its id and its exact similarity to the query.
+	 * </p>
+	 */
+	public static final class Match {
+		
+		private final int id;
+		
+		private final DiscreteFuzzySet fuzzySet;
+		
+		private final double similarity;
+		
+		
+		
+		Match(int id, DiscreteFuzzySet fuzzySet, double similarity) {
+			this.id = id;
+			this.fuzzySet = fuzzySet;
+			this.similarity = similarity;
+		}
+		
+		
+		
+		/**
+		 * Returns the id given by {@linkplain FuzzySimilarityIndex#add(DiscreteFuzzySet)}.
+		 */
+		public int getId() {
+			
+			return id;
+		}
+		
+		
+		
+		public DiscreteFuzzySet getFuzzySet() {
+			
+			return fuzzySet;
+		}
+		
+		
+		
+		/**
+		 * Returns the Jaccard similarity to the query.
+		 */
+		public double getSimilarity() {
+			
+			return similarity;
+		}
+		
+		
+		
+		@Override
+		public String toString() {
+			
+			return "(" + id + "," + similarity + ")";
+		}
+	}
+	
+	
+	
+	/**
+	 * Open addressing table from the hash of a band to the last id added to its bucket.
+	 */
+	private static final class BandTable {
+		
+		private long[] keys = new long[16];
+		
+		/**
+		 * Last id of the bucket plus one, 0 for an empty slot.
+		 */
+		private int[] heads = new int[16];
+		
+		private int size;
+		
+		
+		
+		/**
+		 * Returns the last id of the bucket or -1 if it is empty.
+		 */
+		int get(long key) {
+			
+			int mask = keys.length - 1;
+			
+			for (int slot = (int) mix(key) & mask; heads[slot] != 0; slot = (slot + 1) & mask)
+				if (keys[slot] == key)
+					return heads[slot] - 1;
+			
+			return -1;
+		}
+		
+		
+		
+		/**
+		 * Makes the id the last one of the bucket and returns the previous last id or -1.
+		 */
+		int put(long key, int id) {
+			
+			if ((size + 1) * 4 > keys.length * 3)
+				resize();
+			
+			int mask = keys.length - 1;
+			int slot = (int) mix(key) & mask;
+			
+			for (; heads[slot] != 0; slot = (slot + 1) & mask)
+				if (keys[slot] == key) {
+					int previous = heads[slot] - 1;
+					heads[slot] = id + 1;
+					return previous;
+				}
+			
+			keys[slot] = key;
+			heads[slot] = id + 1;
+			size++;
+			return -1;
+		}
+		
+		
+		
+		/**
+		 * Makes the id the last one of the existing bucket, or removes the bucket if the id is -1.
+		 */
+		void setLast(long key, int id) {
+			
+			int mask = keys.length - 1;
+			int slot = (int) mix(key) & mask;
+			
+			while (heads[slot] == 0 || keys[slot] != key)
+				slot = (slot + 1) & mask;
+			
+			if (id >= 0) {
+				heads[slot] = id + 1;
+				return;
+			}
+			
+			// the following slots of the cluster are shifted back so that no search stops at the hole
+			int hole = slot;
+			
+			for (slot = (hole + 1) & mask; heads[slot] != 0; slot = (slot + 1) & mask) {
+				int home = (int) mix(keys[slot]) & mask;
+				
+				if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+					keys[hole] = keys[slot];
+					heads[hole] = heads[slot];
+					hole = slot;
+				}
+			}
+			
+			heads[hole] = 0;
+			size--;
+		}
+		
+		
+		
+		private void resize() {
+			
+			long[] oldKeys = keys;
+			int[] oldHeads = heads;
+			keys = new long[oldKeys.length * 2];
+			heads = new int[oldKeys.length * 2];
+			int mask = keys.length - 1;
+			
+			for (int i = 0; i < oldKeys.length; i++)
+				if (oldHeads[i] != 0) {
+					int slot = (int) mix(oldKeys[i]) & mask;
+					
+					while (heads[slot] != 0)
+						slot = (slot + 1) & mask;
+					
+					keys[slot] = oldKeys[i];
+					heads[slot] = oldHeads[i];
+				}
+		}
+	}
+	
+}
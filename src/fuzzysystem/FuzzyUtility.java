@@ -1,10 +1,158 @@
 package fuzzysystem;
 
+import fuzzysystem.monitoring.DefuzzificationEvent;
+import fuzzysystem.monitoring.FuzzyEvents;
+import fuzzysystem.monitoring.FuzzyMetrics;
+import fuzzysystem.monitoring.MetricsRegistry;
+
+
+
 public class FuzzyUtility {
 	
 	public static enum Defuzzification {
 		MAX_MEMBERSHIP_MEAN, WEIGHTED_MAX_MEMBERSHIP_MEAN, WEIGHTED_MEAN, CENTROID;
+		
+	}
+	
+	
+	
+	/**
+	 * Methods of defuzzification of discrete fuzzy sets, computed over the values of the elements weighted by their
+	 * membership values.
+	 */
+	public static enum DiscreteDefuzzification {
+		
+		/**
+		 * Mean of the values of the members of all the sets weighted by their membership values.
+		 */
+		CENTROID,
+		
+		/**
+		 * Mean of the centroids of the sets weighted by their heights.
+		 */
+		WEIGHTED_MEAN,
+		
+		/**
+		 * Mean of the values of the members having the maximum membership value of all the sets.
+		 */
+		MEAN_OF_MAXIMUM,
+		
+		/**
+		 * Smallest value of the members having the maximum membership value of all the sets.
+		 */
+		SMALLEST_OF_MAXIMUM,
+		
+		/**
+		 * Largest value of the members having the maximum membership value of all the sets.
+		 */
+		LARGEST_OF_MAXIMUM,
+		
+		/**
+		 * Smallest value at which the membership values of the members having smaller or equal values reach half of
+		 * the total membership value of all the sets.
+		 */
+		BISECTOR;
+	}
 	
+	
+	
+	/**
+	 * Sums and maximum of the members of a discrete set, gathered in a single pass.
+	 */
+	private static final class DiscreteMoments {
+		
+		double membershipSum;
+		
+		double weightedSum;
+		
+		double height = Double.NEGATIVE_INFINITY;
+		
+		int maximumCount;
+		
+		double maximumSum;
+		
+		double smallestOfMaximum = Double.NaN;
+		
+		double largestOfMaximum = Double.NaN;
+		
+		
+		
+		void add(ElementMembershipMap map, int from, int to) {
+			
+			for (int i = from; i < to; i++) {
+				double x = map.keyAt(i).getValue(), membership = map.valueAt(i);
+				
+				membershipSum += membership;
+				weightedSum += x * membership;
+				
+				if (membership > height) {
+					height = membership;
+					maximumCount = 1;
+					maximumSum = smallestOfMaximum = largestOfMaximum = x;
+				}
+				
+				else if (membership == height) {
+					maximumCount++;
+					maximumSum += x;
+					smallestOfMaximum = Math.min(smallestOfMaximum, x);
+					largestOfMaximum = Math.max(largestOfMaximum, x);
+				}
+			}
+		}
+		
+		
+		
+		void add(DiscreteMoments moments) {
+			
+			membershipSum += moments.membershipSum;
+			weightedSum += moments.weightedSum;
+			
+			if (moments.height > height) {
+				height = moments.height;
+				maximumCount = moments.maximumCount;
+				maximumSum = moments.maximumSum;
+				smallestOfMaximum = moments.smallestOfMaximum;
+				largestOfMaximum = moments.largestOfMaximum;
+			}
+			
+			else if (moments.height == height && moments.maximumCount > 0) {
+				maximumCount += moments.maximumCount;
+				maximumSum += moments.maximumSum;
+				smallestOfMaximum = Math.min(smallestOfMaximum, moments.smallestOfMaximum);
+				largestOfMaximum = Math.max(largestOfMaximum, moments.largestOfMaximum);
+			}
+		}
+		
+		
+		
+		/**
+		 * Gathers the moments of the set, in parallel if it is large. The partial results of the chunks are combined
+		 * in order, so the result does not depend on the parallelism.
+		 */
+		static DiscreteMoments of(DiscreteFuzzySet fuzzySet) {
+			
+			ElementMembershipMap map = fuzzySet.map();
+			int size = map.size();
+			DiscreteMoments moments = new DiscreteMoments();
+			
+			if (!ParallelChunks.parallel(size)) {
+				moments.add(map, 0, size);
+				return moments;
+			}
+			
+			DiscreteMoments[] partials = new DiscreteMoments[ParallelChunks.chunkCount(size)];
+			
+			ParallelChunks.forEachChunk(size, (chunk, from, to) -> {
+				DiscreteMoments partial = new DiscreteMoments();
+				partial.add(map, from, to);
+				partials[chunk] = partial;
+			});
+			
+			for (DiscreteMoments partial : partials)
+				moments.add(partial);
+			
+			return moments;
+		}
 	}
 	
 	
@@ -85,6 +233,12 @@ public class FuzzyUtility {
 	
 	public static double defuzzify(Defuzzification method, AbstractFuzzySet... fuzzySets) {
 		
+		DefuzzificationEvent event = new DefuzzificationEvent();
+		event.begin();
+		
+		MetricsRegistry metrics = FuzzyMetrics.registry();
+		long start = (metrics != null) ? System.nanoTime() : 0;
+		
 		double value = 0;
 		
 		if (fuzzySets.length > 0) {
@@ -113,7 +267,183 @@ public class FuzzyUtility {
 			}
 			
 		}
+		
+		if (metrics != null)
+			metrics.recordDefuzzification(method, System.nanoTime() - start);
+		
+		FuzzyEvents.defuzzified(event, method, fuzzySets.length);
+		
 		return value;
 	}
 	
+	
+	
+	/**
+	 * Returns the crisp value of the discrete fuzzy sets by the given method. The sets are scanned as primitive values
+	 * in a single pass, in parallel when they are large, except for {@linkplain DiscreteDefuzzification#BISECTOR} which
+	 * selects the weighted median of the members in linear expected time. Neither set may be modified during the
+	 * operation.
+	 * 
+	 * @param method
+	 *            Method of defuzzification
+	 * @param fuzzySets
+	 *            Sets to defuzzify
+	 * @return Crisp value, 0 if no set is given or NaN if it is not defined, like the centroid of sets whose membership
+	 *         values are all 0 or the maximum of sets without members
+	 */
+	public static double defuzzify(DiscreteDefuzzification method, DiscreteFuzzySet... fuzzySets) {
+		
+		DefuzzificationEvent event = new DefuzzificationEvent();
+		event.begin();
+		
+		MetricsRegistry metrics = FuzzyMetrics.registry();
+		long start = (metrics != null) ? System.nanoTime() : 0;
+		
+		double value = 0;
+		
+		if (fuzzySets.length > 0) {
+			
+			if (method == DiscreteDefuzzification.BISECTOR)
+				value = defuzzifyBisector(fuzzySets);
+			
+			else {
+				DiscreteMoments moments = new DiscreteMoments();
+				double weightedCentroids = 0, heights = 0;
+				
+				for (DiscreteFuzzySet fuzzySet : fuzzySets) {
+					DiscreteMoments setMoments = DiscreteMoments.of(fuzzySet);
+					
+					if (setMoments.height > 0) {
+						weightedCentroids += setMoments.weightedSum / setMoments.membershipSum * setMoments.height;
+						heights += setMoments.height;
+					}
+					
+					moments.add(setMoments);
+				}
+				
+				switch (method) {
+					
+					case CENTROID:
+						value = moments.weightedSum / moments.membershipSum;
+						break;
+					
+					case WEIGHTED_MEAN:
+						value = weightedCentroids / heights;
+						break;
+					
+					case MEAN_OF_MAXIMUM:
+						value = moments.maximumSum / moments.maximumCount;
+						break;
+					
+					case SMALLEST_OF_MAXIMUM:
+						value = moments.smallestOfMaximum;
+						break;
+					
+					case LARGEST_OF_MAXIMUM:
+						value = moments.largestOfMaximum;
+						break;
+					
+					default:
+						value = 0;
+				}
+			}
+		}
+		
+		if (metrics != null)
+			metrics.recordDefuzzification(method, System.nanoTime() - start);
+		
+		FuzzyEvents.defuzzified(event, method, fuzzySets.length);
+		
+		return value;
+	}
+	
+	
+	
+	/**
+	 * Returns the weighted median of the members of the sets. The values are partitioned around a pivot like in a
+	 * quick select, keeping only the part containing the median.
+	 */
+	private static double defuzzifyBisector(DiscreteFuzzySet[] fuzzySets) {
+		
+		int size = 0;
+		
+		for (DiscreteFuzzySet fuzzySet : fuzzySets)
+			size += fuzzySet.size();
+		
+		double[] values = new double[size], weights = new double[size];
+		double total = 0;
+		int count = 0;
+		
+		for (DiscreteFuzzySet fuzzySet : fuzzySets) {
+			ElementMembershipMap map = fuzzySet.map();
+			
+			for (int i = 0; i < map.size(); i++) {
+				values[count] = map.keyAt(i).getValue();
+				weights[count] = map.valueAt(i);
+				total += weights[count++];
+			}
+		}
+		
+		if (!(total > 0))
+			return Double.NaN;
+		
+		double half = total / 2, before = 0, value = Double.NaN;
+		int lower = 0, upper = size;
+		
+		// invariant : the members before lower have smaller values and their memberships sum to before < half
+		while (lower < upper) {
+			
+			if (upper - lower == 1)
+				return values[lower];
+			
+			double pivot = values[(lower + upper) >>> 1];
+			int less = lower, i = lower, greater = upper;
+			double lessWeight = 0, equalWeight = 0;
+			
+			// three way partition into [lower, less) < pivot, [less, greater) = pivot and [greater, upper) > pivot
+			while (i < greater) {
+				double x = values[i];
+				
+				if (x < pivot) {
+					lessWeight += weights[i];
+					swap(values, weights, i++, less++);
+				}
+				
+				else if (x > pivot)
+					swap(values, weights, i, --greater);
+				
+				else {
+					equalWeight += weights[i];
+					i++;
+				}
+			}
+			
+			if (before + lessWeight >= half)
+				upper = less;
+			
+			else if (before + lessWeight + equalWeight >= half)
+				return pivot;
+			
+			else {
+				before += lessWeight + equalWeight;
+				lower = greater;
+				value = pivot;
+			}
+		}
+		
+		// reached only when rounding leaves the sum below half, the largest value is the median
+		return value;
+	}
+	
+	
+	
+	private static void swap(double[] values, double[] weights, int i, int j) {
+		
+		double value = values[i], weight = weights[i];
+		values[i] = values[j];
+		weights[i] = weights[j];
+		values[j] = value;
+		weights[j] = weight;
+	}
+	
 }
\ No newline at end of file
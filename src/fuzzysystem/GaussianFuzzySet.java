@@ -30,6 +30,19 @@ public class GaussianFuzzySet extends AbstractFuzzySet {
 	
 	
 	
+	@Override
+	public void getMembershipValues(double[] xValues, double[] memberships, int from, int to) {
+		
+		double denominator = 2.0 * a * a;
+		
+		for (int i = from; i < to; i++) {
+			double distance = xValues[i] - b;
+			memberships[i] = Math.exp(-distance * distance / denominator);
+		}
+	}
+	
+	
+	
 	@Override
 	public double getWeightedMean() {
 		
@@ -72,6 +72,19 @@ public class LinearFuzzySet extends AbstractFuzzySet {
 	
 	
 	
+	@Override
+	public void getMembershipValues(double[] xValues, double[] memberships, int from, int to) {
+		
+		double slope = (yUpper - yLower) / (xUpper - xLower);
+		
+		for (int i = from; i < to; i++) {
+			double xValue = xValues[i];
+			memberships[i] = (xValue < xLower || xValue > xUpper) ? 0 : slope * (xValue - xLower) + yLower;
+		}
+	}
+	
+	
+	
 	public void shiftUp(double shiftBy) throws MembershipOutOfRangeException {
 		
 		if (outOfRange(yLower + shiftBy) || outOfRange(yUpper + shiftBy))
@@ -0,0 +1,272 @@
+package fuzzysystem;
+
+import fuzzysystem.monitoring.FuzzyMetrics;
+import fuzzysystem.monitoring.MetricsRegistry;
+
+
+
+/**
+ * <p>
+ * LinguisticVariable groups a number of continuous membership functions under a common name. Each membership function
+ * is called a <i>term</i> of the variable and is identified by its position and by its name. For example a variable
+ * <i>temperature</i> may have the terms <i>cold</i>, <i>warm</i> and <i>hot</i>, each represented by an
+ * {@linkplain AbstractFuzzySet}.
+ * </p>
+ * 
+ * <p>
+ * The terms are stored in arrays and are addressed by their index so that the variable can be evaluated without
+ * creating any object. This is the representation used by {@linkplain FuzzyRule} and
+ * {@linkplain WangMendelRuleGenerator}.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see AbstractFuzzySet
+ *      FuzzyRule
+ */
+public final class LinguisticVariable {
+	
+	/**
+	 * Name of this variable.
+	 */
+	private final String name;
+	
+	/**
+	 * Names of the terms. The name at index i is the name of the term at index i in {@linkplain #terms}.
+	 */
+	private final String[] termNames;
+	
+	/**
+	 * Membership functions of the terms.
+	 */
+	private final AbstractFuzzySet[] terms;
+	
+	/**
+	 * Counters of the terms in the registry they were last recorded in. They are resolved again when the active
+	 * registry changes. Threads resolving them at the same time resolve the same counters, so the field needs no
+	 * synchronization.
+	 */
+	private MetricsRegistry.TermMetrics metrics;
+	
+	
+	
+	/**
+	 * Creates a new <i>LinguisticVariable</i> from the given term names and membership functions. Both arrays must have
+	 * the same length and at least one term must be given.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the arrays are empty or their lengths differ.
+	 */
+	public LinguisticVariable(String name, String[] termNames, AbstractFuzzySet[] terms) {
+		
+		if (terms.length == 0 || terms.length != termNames.length)
+			throw new IllegalArgumentException("Linguistic variable " + name + " must have one name for every term.");
+		
+		this.name = name;
+		this.termNames = termNames.clone();
+		this.terms = terms.clone();
+	}
+	
+	
+	
+	/**
+	 * Creates a new <i>LinguisticVariable</i> from the given membership functions. The terms are named by their index.
+	 */
+	public LinguisticVariable(String name, AbstractFuzzySet... terms) {
+		
+		this(name, defaultTermNames(terms.length), terms);
+	}
+	
+	
+	
+	private static String[] defaultTermNames(int count) {
+		
+		String[] names = new String[count];
+		
+		for (int i = 0; i < count; i++)
+			names[i] = Integer.toString(i);
+		
+		return names;
+	}
+	
+	
+	
+	/**
+	 * Getter method for {@linkplain #name} field
+	 * 
+	 * @return The name of this variable
+	 */
+	public String getName() {
+		
+		return name;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of terms of this variable.
+	 * 
+	 * @return Number of terms
+	 */
+	public int getTermCount() {
+		
+		return terms.length;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership function of the term at the given index.
+	 * 
+	 * @param term
+	 *            Index of the term
+	 * @return Membership function of the term
+	 */
+	public AbstractFuzzySet getTerm(int term) {
+		
+		return terms[term];
+	}
+	
+	
+	
+	/**
+	 * Returns the name of the term at the given index.
+	 * 
+	 * @param term
+	 *            Index of the term
+	 * @return Name of the term
+	 */
+	public String getTermName(int term) {
+		
+		return termNames[term];
+	}
+	
+	
+	
+	/**
+	 * Returns the index of the term with the given name.
+	 * 
+	 * @param termName
+	 *            Name of the term
+	 * @return Index of the term or -1 if no term has the given name
+	 */
+	public int indexOf(String termName) {
+		
+		for (int i = 0; i < termNames.length; i++)
+			if (termNames[i].equals(termName))
+				return i;
+		
+		return -1;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of xValue in the term at the given index.
+	 * 
+	 * @param term
+	 *            Index of the term
+	 * @param xValue
+	 *            Point at which the membership value is to be calculated
+	 * @return Membership value of xValue in the term
+	 */
+	public double getMembershipValue(int term, double xValue) {
+		
+		double membership = terms[term].getMembershipValue(xValue);
+		MetricsRegistry registry = FuzzyMetrics.registry();
+		
+		if (registry != null) {
+			MetricsRegistry.TermMetrics metrics = this.metrics;
+			
+			if (metrics == null || !metrics.belongsTo(registry))
+				this.metrics = metrics = registry.termMetrics(this);
+			
+			metrics.record(term, membership);
+		}
+		
+		return membership;
+	}
+	
+	
+	
+	/**
+	 * Calculates the membership value of xValue in every term of this variable. The value of term i is written at
+	 * index i of memberships.
+	 * 
+	 * @param xValue
+	 *            Point to fuzzify
+	 * @param memberships
+	 *            Array receiving the membership values. Its length must be at least {@linkplain #getTermCount()}.
+	 * @return memberships
+	 */
+	public double[] fuzzify(double xValue, double[] memberships) {
+		
+		for (int i = 0; i < terms.length; i++)
+			memberships[i] = getMembershipValue(i, xValue);
+		
+		return memberships;
+	}
+	
+	
+	
+	/**
+	 * Creates a discrete fuzzy set of every term over the elements of the universe. The set at index i contains the
+	 * membership values of the elements in the term at index i.
+	 * 
+	 * @param universe
+	 *            Elements to fuzzify
+	 * @return Discrete fuzzy sets of the terms
+	 * @see DiscreteFuzzySet#fromFunctions(Universe, AbstractFuzzySet...)
+	 */
+	public DiscreteFuzzySet[] fuzzify(Universe universe) {
+		
+		return DiscreteFuzzySet.fromFunctions(universe, terms);
+	}
+	
+	
+	
+	/**
+	 * Returns the index of the term in which xValue has the maximum membership value. If several terms have the same
+	 * membership value the first one is returned.
+	 * 
+	 * @param xValue
+	 *            Point to classify
+	 * @return Index of the term having maximum membership at xValue
+	 */
+	public int bestTerm(double xValue) {
+		
+		int best = 0;
+		double maxMembership = getMembershipValue(0, xValue);
+		
+		for (int i = 1; i < terms.length; i++) {
+			double membership = getMembershipValue(i, xValue);
+			
+			if (membership > maxMembership) {
+				best = i;
+				maxMembership = membership;
+			}
+		}
+		
+		return best;
+	}
+	
+	
+	
+	@Override
+	public String toString() {
+		
+		StringBuilder buffer = new StringBuilder(name.length() + terms.length * 10);
+		buffer.append(name);
+		buffer.append(" { ");
+		
+		for (int i = 0; i < termNames.length; i++) {
+			if (i > 0)
+				buffer.append(", ");
+			buffer.append(termNames[i]);
+		}
+		
+		buffer.append(" }");
+		
+		return buffer.toString();
+	}
+	
+}
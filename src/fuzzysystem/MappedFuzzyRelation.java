@@ -0,0 +1,871 @@
+package fuzzysystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+import fuzzysystem.monitoring.FuzzyEvents;
+import fuzzysystem.monitoring.SetOperationEvent;
+
+
+
+/**
+ * <p>
+ * MappedFuzzyRelation is a fuzzy relation between the elements of two {@linkplain Universe} instances whose membership
+ * values are stored in a memory mapped file instead of the heap. It has the row by row layout of
+ * {@linkplain DiscreteFuzzyRelation}, so a relation can be larger than the heap and a relation built once can be
+ * opened again in constant time by mapping it over universes having the same elements in the same order.
+ * </p>
+ * 
+ * <p>
+ * Like {@linkplain MappedFuzzySet}, the element wise operations and the composition of two relations write their
+ * result into a destination relation. The composition reads a block of rows of this relation and a tile of columns of
+ * the other one at a time, so the heap holds only a few thousand membership values whatever the size of the
+ * relations. The composition with a set and the projections give a {@linkplain DenseDiscreteFuzzySet}, whose size is
+ * that of a single universe.
+ * </p>
+ * 
+ * <p>
+ * A relation can also be created and opened without universes, its elements being only known by their ids. The
+ * element wise operations and the composition of two relations work the same way, while the methods taking elements
+ * or returning heap sets and relations throw IllegalStateException.
+ * </p>
+ * 
+ * <p>
+ * {@linkplain #close()} unmaps the file at once; otherwise it stays mapped until the relation is garbage collected. A
+ * relation must not be used after or while it is closed, and its file must not be created again while it is open, as
+ * creating a file truncates it and accessing the truncated mapping crashes the JVM.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzyRelation
+ *      MappedFuzzySet
+ */
+public final class MappedFuzzyRelation implements AutoCloseable {
+	
+	/**
+	 * Rows of the result computed by a single task of the composition.
+	 */
+	private static final int BLOCK_ROWS = 32;
+	
+	/**
+	 * Rows of the right relation read by the composition before moving to the next columns.
+	 */
+	private static final int BLOCK_INNER = 128;
+	
+	/**
+	 * Columns of the result computed at a time.
+	 */
+	private static final int BLOCK_COLUMNS = 2048;
+	
+	/**
+	 * Universes of the relation, both null if the relation was created or opened without universes.
+	 */
+	private final Universe rowUniverse;
+	
+	private final Universe columnUniverse;
+	
+	private final int rows;
+	
+	private final int columns;
+	
+	/**
+	 * Membership value of the pair (row, column) at index row * columns + column.
+	 */
+	private final MappedMemberships memberships;
+	
+	
+	
+	private MappedFuzzyRelation(Universe rowUniverse, Universe columnUniverse, MappedMemberships memberships) {
+		this.rowUniverse = rowUniverse;
+		this.columnUniverse = columnUniverse;
+		this.rows = (int) memberships.rows();
+		this.columns = (int) memberships.columns();
+		this.memberships = memberships;
+	}
+	
+	
+	
+	/**
+	 * Creates a relation in the file, replacing an existing one, in which every pair has 0 membership value. The file
+	 * must not be mapped by an open set or relation.
+	 * 
+	 * @param path
+	 *            File of the relation
+	 * @param rowUniverse
+	 *            Universe of the first element of the pairs
+	 * @param columnUniverse
+	 *            Universe of the second element of the pairs
+	 * @return New writable relation
+	 * @throws IOException
+	 *             If the file cannot be created or mapped
+	 */
+	public static MappedFuzzyRelation create(Path path, Universe rowUniverse, Universe columnUniverse)
+			throws IOException {
+		
+		MappedMemberships memberships = MappedMemberships.create(path, MappedMemberships.RELATION, rowUniverse.size(),
+				columnUniverse.size());
+		
+		return new MappedFuzzyRelation(rowUniverse, columnUniverse, memberships);
+	}
+	
+	
+	
+	/**
+	 * Creates a relation without universes in the file, replacing an existing one, in which every pair has 0
+	 * membership value. The file must not be mapped by an open set or relation.
+	 * 
+	 * @param path
+	 *            File of the relation
+	 * @param rows
+	 *            Number of elements of the first element of the pairs
+	 * @param columns
+	 *            Number of elements of the second element of the pairs
+	 * @return New writable relation
+	 * @throws IOException
+	 *             If the file cannot be created or mapped
+	 */
+	public static MappedFuzzyRelation create(Path path, int rows, int columns) throws IOException {
+		
+		MappedMemberships memberships = MappedMemberships.create(path, MappedMemberships.RELATION, rows, columns);
+		
+		return new MappedFuzzyRelation(null, null, memberships);
+	}
+	
+	
+	
+	/**
+	 * Creates a relation in the file having the same membership values as the given relation.
+	 * 
+	 * @param path
+	 *            File of the relation
+	 * @param relation
+	 *            Relation to store
+	 * @return New writable relation between the universes of the given relation
+	 * @throws IOException
+	 *             If the file cannot be created or mapped
+	 */
+	public static MappedFuzzyRelation create(Path path, DiscreteFuzzyRelation relation) throws IOException {
+		
+		MappedMemberships memberships = MappedMemberships.create(path, MappedMemberships.RELATION, relation.rowCount(),
+				relation.columnCount());
+		double[] values = relation.memberships();
+		
+		memberships.write(0, values, 0, values.length);
+		
+		return new MappedFuzzyRelation(relation.getRowUniverse(), relation.getColumnUniverse(), memberships);
+	}
+	
+	
+	
+	/**
+	 * Maps a relation created by {@linkplain #create(Path, Universe, Universe)}. The elements of the universes must
+	 * have the ids they had when the relation was created.
+	 * 
+	 * @param path
+	 *            File of the relation
+	 * @param rowUniverse
+	 *            Universe of the first element of the pairs
+	 * @param columnUniverse
+	 *            Universe of the second element of the pairs
+	 * @param writable
+	 *            Whether the membership values may be changed
+	 * @return Relation stored in the file
+	 * @throws IOException
+	 *             If the file cannot be mapped or it does not contain a relation
+	 * @throws IllegalArgumentException
+	 *             If the relation is larger than the universes
+	 */
+	public static MappedFuzzyRelation open(Path path, Universe rowUniverse, Universe columnUniverse, boolean writable)
+			throws IOException {
+		
+		MappedMemberships memberships = MappedMemberships.open(path, MappedMemberships.RELATION, writable);
+		
+		if (memberships.rows() > rowUniverse.size() || memberships.columns() > columnUniverse.size())
+			throw new IllegalArgumentException("Relation of " + memberships.rows() + " x " + memberships.columns()
+					+ " pairs does not fit the universes.");
+		
+		return new MappedFuzzyRelation(rowUniverse, columnUniverse, memberships);
+	}
+	
+	
+	
+	/**
+	 * Maps a relation without universes. Nothing is read but the header of the file, so the relation takes no memory
+	 * on the heap whatever its size. Its elements are only known by their ids.
+	 * 
+	 * @param path
+	 *            File of the relation
+	 * @param writable
+	 *            Whether the membership values may be changed
+	 * @return Relation stored in the file
+	 * @throws IOException
+	 *             If the file cannot be mapped or it does not contain a relation
+	 */
+	public static MappedFuzzyRelation open(Path path, boolean writable) throws IOException {
+		
+		return new MappedFuzzyRelation(null, null, MappedMemberships.open(path, MappedMemberships.RELATION, writable));
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of the rows.
+	 * 
+	 * @return Universe of the rows or null if the relation has no universes
+	 */
+	public Universe getRowUniverse() {
+		
+		return rowUniverse;
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of the columns.
+	 * 
+	 * @return Universe of the columns or null if the relation has no universes
+	 */
+	public Universe getColumnUniverse() {
+		
+		return columnUniverse;
+	}
+	
+	
+	
+	/**
+	 * Throws IllegalStateException if the relation has no universes, for the methods working on elements.
+	 */
+	private void checkUniverses() {
+		
+		if (rowUniverse == null)
+			throw new IllegalStateException("Mapped fuzzy relation has no universes.");
+	}
+	
+	
+	
+	/**
+	 * Returns the number of rows, the size of the row universe when the relation was created if it had one.
+	 */
+	public int rowCount() {
+		
+		return rows;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of columns, the size of the column universe when the relation was created if it had one.
+	 */
+	public int columnCount() {
+		
+		return columns;
+	}
+	
+	
+	
+	/**
+	 * Returns whether the membership values may be changed.
+	 */
+	public boolean isWritable() {
+		
+		return memberships.writable();
+	}
+	
+	
+	
+	private void checkPair(int row, int column) {
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new IndexOutOfBoundsException(
+					"Pair (" + row + ", " + column + ") is not in relation of " + rows + " x " + columns);
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the pair of elements with the given ids.
+	 * 
+	 * @param row
+	 *            Id of the element in the row universe
+	 * @param column
+	 *            Id of the element in the column universe
+	 * @return Membership value of the pair
+	 */
+	public double getMembershipValue(int row, int column) {
+		
+		checkPair(row, column);
+		return memberships.get((long) row * columns + column);
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the pair of elements. Pairs whose elements do not belong to the relation have 0
+	 * membership value.
+	 * 
+	 * @param x
+	 *            Element of the row universe
+	 * @param y
+	 *            Element of the column universe
+	 * @return Membership value of the pair
+	 * @throws IllegalStateException
+	 *             If the relation has no universes
+	 */
+	public double getMembershipValue(Element x, Element y) {
+		
+		checkUniverses();
+		
+		int row = rowUniverse.indexOf(x), column = columnUniverse.indexOf(y);
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			return 0.0;
+		
+		return memberships.get((long) row * columns + column);
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the pair of elements with the given ids.
+	 * 
+	 * @param row
+	 *            Id of the element in the row universe
+	 * @param column
+	 *            Id of the element in the column universe
+	 * @param value
+	 *            Membership value of the pair
+	 * @return The present relation
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 * @throws java.nio.ReadOnlyBufferException
+	 *             If the relation is not writable
+	 */
+	public MappedFuzzyRelation setMembershipValue(int row, int column, double value)
+			throws MembershipOutOfRangeException {
+		
+		if (value < 0 || value > 1)
+			throw new MembershipOutOfRangeException();
+		
+		checkPair(row, column);
+		memberships.set((long) row * columns + column, value);
+		
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the pair of elements.
+	 * 
+	 * @param x
+	 *            Element of the row universe
+	 * @param y
+	 *            Element of the column universe
+	 * @param value
+	 *            Membership value of the pair
+	 * @return The present relation
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 * @throws IllegalArgumentException
+	 *             If an element does not belong to the relation
+	 * @throws IllegalStateException
+	 *             If the relation has no universes
+	 */
+	public MappedFuzzyRelation setMembershipValue(Element x, Element y, double value)
+			throws MembershipOutOfRangeException {
+		
+		checkUniverses();
+		
+		int row = rowUniverse.indexOf(x), column = columnUniverse.indexOf(y);
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new IllegalArgumentException("Pair (" + x + ", " + y + ") does not belong to the relation.");
+		
+		return setMembershipValue(row, column, value);
+	}
+	
+	
+	
+	private void check(MappedFuzzyRelation relation) {
+		
+		if (relation.rowUniverse != rowUniverse || relation.columnUniverse != columnUniverse || relation.rows != rows
+				|| relation.columns != columns)
+			throw new IllegalArgumentException(
+					"Mapped fuzzy relations must have the same universes and the same size.");
+	}
+	
+	
+	
+	private static void checkWritable(MappedFuzzyRelation destination) {
+		
+		if (!destination.isWritable())
+			throw new IllegalArgumentException("Destination relation is not writable.");
+	}
+	
+	
+	
+	private MappedFuzzyRelation combine(int operation, MappedFuzzyRelation relation, double operand,
+			MappedFuzzyRelation destination) {
+		
+		if (relation != null)
+			check(relation);
+		
+		check(destination);
+		checkWritable(destination);
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		MappedMemberships other = (relation == null) ? null : relation.memberships;
+		memberships.combine(operation, other, operand, destination.memberships);
+		
+		int pairs = (int) Math.min(memberships.length(), Integer.MAX_VALUE);
+		FuzzyEvents.setOperation(event, MappedFuzzySet.OPERATION_NAMES[operation], pairs,
+				(relation == null) ? -1 : pairs, pairs);
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Stores the union of this relation with the given one into the destination. The membership value of every pair is
+	 * the maximum of its membership values in both relations.
+	 * 
+	 * @param relation
+	 *            Relation with whom union is to be performed
+	 * @param destination
+	 *            Writable relation receiving the union. It may be this relation or the given one.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the relations do not have the same universes and size or the destination is not writable
+	 */
+	public MappedFuzzyRelation union(MappedFuzzyRelation relation, MappedFuzzyRelation destination) {
+		
+		return combine(MappedMemberships.UNION, relation, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the intersection of this relation with the given one into the destination. The membership value of every
+	 * pair is the minimum of its membership values in both relations.
+	 * 
+	 * @param relation
+	 *            Relation with whom intersection is to be performed
+	 * @param destination
+	 *            Writable relation receiving the intersection. It may be this relation or the given one.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the relations do not have the same universes and size or the destination is not writable
+	 */
+	public MappedFuzzyRelation intersection(MappedFuzzyRelation relation, MappedFuzzyRelation destination) {
+		
+		return combine(MappedMemberships.INTERSECTION, relation, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the product of this relation with the given one into the destination. The membership value of every pair
+	 * is the product of its membership values in both relations.
+	 * 
+	 * @param relation
+	 *            Relation with whom product is to be performed
+	 * @param destination
+	 *            Writable relation receiving the product. It may be this relation or the given one.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the relations do not have the same universes and size or the destination is not writable
+	 */
+	public MappedFuzzyRelation product(MappedFuzzyRelation relation, MappedFuzzyRelation destination) {
+		
+		return combine(MappedMemberships.PRODUCT, relation, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the complement of this relation into the destination. The membership value of every pair is 1 - its
+	 * membership value in this relation.
+	 * 
+	 * @param destination
+	 *            Writable relation receiving the complement. It may be this relation.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the relations do not have the same universes and size or the destination is not writable
+	 */
+	public MappedFuzzyRelation complement(MappedFuzzyRelation destination) {
+		
+		return combine(MappedMemberships.COMPLEMENT, null, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the power of the relation with a numerical value into the destination. The membership value of every pair
+	 * is raised to the given power.
+	 * 
+	 * @param power
+	 *            Power factor
+	 * @param destination
+	 *            Writable relation receiving the result. It may be this relation.
+	 * @return The destination
+	 */
+	public MappedFuzzyRelation power(float power, MappedFuzzyRelation destination) {
+		
+		return combine(MappedMemberships.POWER, null, power, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the max-min composition of this relation with the given one into the destination. If this relation
+	 * relates X to Y and the given one relates Y to Z, the result relates X to Z with</br>
+	 * </br>
+	 * membership value of (x, z) = maximum over y of the minimum of membership values of (x, y) and (y, z)
+	 * 
+	 * @param relation
+	 *            Relation whose row universe is the column universe of this relation
+	 * @param destination
+	 *            Writable relation between the rows of this relation and the columns of the given one. It must not be
+	 *            one of the operands.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the universes do not match, the destination is an operand or it is not writable
+	 * @see DiscreteFuzzyRelation#compose(DiscreteFuzzyRelation)
+	 */
+	public MappedFuzzyRelation compose(MappedFuzzyRelation relation, MappedFuzzyRelation destination) {
+		
+		return compose(relation, destination, false);
+	}
+	
+	
+	
+	/**
+	 * Stores the max-product composition of this relation with the given one into the destination. It is the same as
+	 * {@linkplain #compose(MappedFuzzyRelation, MappedFuzzyRelation)} except that the membership values of (x, y) and
+	 * (y, z) are multiplied instead of taking their minimum.
+	 * 
+	 * @param relation
+	 *            Relation whose row universe is the column universe of this relation
+	 * @param destination
+	 *            Writable relation between the rows of this relation and the columns of the given one. It must not be
+	 *            one of the operands.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the universes do not match, the destination is an operand or it is not writable
+	 */
+	public MappedFuzzyRelation composeMaxProduct(MappedFuzzyRelation relation, MappedFuzzyRelation destination) {
+		
+		return compose(relation, destination, true);
+	}
+	
+	
+	
+	private MappedFuzzyRelation compose(MappedFuzzyRelation relation, MappedFuzzyRelation destination,
+			boolean product) {
+		
+		if (relation.rowUniverse != columnUniverse || relation.rows != columns)
+			throw new IllegalArgumentException(
+					"Row universe of the relation must be the column universe of this relation.");
+		
+		if (destination.rowUniverse != rowUniverse || destination.columnUniverse != relation.columnUniverse
+				|| destination.rows != rows || destination.columns != relation.columns)
+			throw new IllegalArgumentException(
+					"Destination must relate the rows of this relation to the columns of the given one.");
+		
+		if (destination == this || destination == relation)
+			throw new IllegalArgumentException("Destination of the composition must not be one of its operands.");
+		
+		checkWritable(destination);
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		int inner = columns, resultColumns = relation.columns;
+		ParallelChunks.ChunkAction action = (chunk, from, to) -> multiply(relation.memberships,
+				destination.memberships, inner, resultColumns, from, to, product);
+		long work = (long) rows * inner * resultColumns / BLOCK_INNER;
+		
+		if (rows > BLOCK_ROWS && ParallelChunks.parallel((int) Math.min(work, Integer.MAX_VALUE)))
+			ParallelChunks.forEachChunk(rows, BLOCK_ROWS, action);
+		else
+			for (int from = 0; from < rows; from += BLOCK_ROWS)
+				action.apply(0, from, Math.min(from + BLOCK_ROWS, rows));
+		
+		FuzzyEvents.setOperation(event, product ? "mappedMaxProductComposition" : "mappedMaxMinComposition", rows,
+				resultColumns, (int) Math.min((long) rows * resultColumns, Integer.MAX_VALUE));
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Computes the rows from (inclusive) to (exclusive), at most {@linkplain #BLOCK_ROWS}, of the composition of this
+	 * relation with right into result. For every tile of columns, the rows are accumulated on the heap while the
+	 * blocks of this relation and the rows of right are read once.
+	 */
+	private void multiply(MappedMemberships right, MappedMemberships result, int inner, int resultColumns, int from,
+			int to, boolean product) {
+		
+		int blockRows = to - from;
+		double[] left = new double[blockRows * BLOCK_INNER];
+		double[] rightRow = new double[BLOCK_COLUMNS];
+		double[] accumulator = new double[blockRows * BLOCK_COLUMNS];
+		
+		for (int j0 = 0; j0 < resultColumns; j0 += BLOCK_COLUMNS) {
+			int width = Math.min(BLOCK_COLUMNS, resultColumns - j0);
+			Arrays.fill(accumulator, 0);
+			
+			for (int k0 = 0; k0 < inner; k0 += BLOCK_INNER) {
+				int depth = Math.min(BLOCK_INNER, inner - k0);
+				
+				for (int i = 0; i < blockRows; i++)
+					memberships.read((long) (from + i) * inner + k0, left, i * BLOCK_INNER, depth);
+				
+				for (int k = 0; k < depth; k++) {
+					right.read((long) (k0 + k) * resultColumns + j0, rightRow, 0, width);
+					
+					for (int i = 0; i < blockRows; i++) {
+						double a = left[i * BLOCK_INNER + k];
+						
+						// a pair with 0 membership value cannot raise the maximum
+						if (a == 0)
+							continue;
+						
+						int row = i * BLOCK_COLUMNS;
+						
+						if (product) {
+							for (int j = 0; j < width; j++) {
+								double value = a * rightRow[j];
+								
+								if (value > accumulator[row + j])
+									accumulator[row + j] = value;
+							}
+						}
+						else {
+							for (int j = 0; j < width; j++) {
+								double b = rightRow[j];
+								double value = (a < b) ? a : b;
+								
+								if (value > accumulator[row + j])
+									accumulator[row + j] = value;
+							}
+						}
+					}
+				}
+			}
+			
+			for (int i = 0; i < blockRows; i++)
+				result.write((long) (from + i) * resultColumns + j0, accumulator, i * BLOCK_COLUMNS, width);
+		}
+	}
+	
+	
+	
+	/**
+	 * Performs the max-min composition of a set with this relation. If the set is over X and this relation relates X
+	 * to Y, the result is a set over Y with</br>
+	 * </br>
+	 * membership value of y = maximum over x of the minimum of membership values of x and (x, y)
+	 * 
+	 * @param fuzzySet
+	 *            Set over the row universe of this relation
+	 * @return New set over the column universe of this relation
+	 * @throws IllegalArgumentException
+	 *             If the set is not over the row universe
+	 * @see DiscreteFuzzyRelation#compose(DenseDiscreteFuzzySet)
+	 */
+	public DenseDiscreteFuzzySet compose(DenseDiscreteFuzzySet fuzzySet) {
+		
+		return composeSet(fuzzySet, false);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-product composition of a set with this relation. It is the same as
+	 * {@linkplain #compose(DenseDiscreteFuzzySet)} except that the membership values are multiplied instead of taking
+	 * their minimum.
+	 * 
+	 * @param fuzzySet
+	 *            Set over the row universe of this relation
+	 * @return New set over the column universe of this relation
+	 * @throws IllegalArgumentException
+	 *             If the set is not over the row universe
+	 */
+	public DenseDiscreteFuzzySet composeMaxProduct(DenseDiscreteFuzzySet fuzzySet) {
+		
+		return composeSet(fuzzySet, true);
+	}
+	
+	
+	
+	private DenseDiscreteFuzzySet composeSet(DenseDiscreteFuzzySet fuzzySet, boolean product) {
+		
+		checkUniverses();
+		
+		if (fuzzySet.getUniverse() != rowUniverse)
+			throw new IllegalArgumentException("Set must belong to the row universe of the relation.");
+		
+		double[] vector = fuzzySet.memberships();
+		double[] result = new double[columns];
+		int length = Math.min(vector.length, rows);
+		
+		ParallelChunks.ChunkAction action = (chunk, from, to) -> {
+			double[] row = new double[to - from];
+			
+			for (int i = 0; i < length; i++) {
+				double a = vector[i];
+				
+				if (a == 0)
+					continue;
+				
+				memberships.read((long) i * columns + from, row, 0, to - from);
+				
+				for (int j = from; j < to; j++) {
+					double b = row[j - from];
+					double value = product ? a * b : (a < b) ? a : b;
+					
+					if (value > result[j])
+						result[j] = value;
+				}
+			}
+		};
+		
+		if (ParallelChunks.parallel((int) Math.min((long) length * columns / BLOCK_ROWS, Integer.MAX_VALUE)))
+			ParallelChunks.forEachChunk(columns, BLOCK_COLUMNS, action);
+		else
+			for (int from = 0; from < columns; from += BLOCK_COLUMNS)
+				action.apply(0, from, Math.min(from + BLOCK_COLUMNS, columns));
+		
+		return new DenseDiscreteFuzzySet(columnUniverse, result);
+	}
+	
+	
+	
+	/**
+	 * Returns the projection of this relation on the row universe. The membership value of x is the maximum membership
+	 * value of the pairs (x, y) over all y.
+	 * 
+	 * @return New set over the row universe
+	 */
+	public DenseDiscreteFuzzySet projectRows() {
+		
+		checkUniverses();
+		
+		double[] projection = new double[rows];
+		double[] tile = new double[BLOCK_COLUMNS];
+		
+		for (int i = 0; i < rows; i++) {
+			double max = 0;
+			
+			for (int j0 = 0; j0 < columns; j0 += BLOCK_COLUMNS) {
+				int width = Math.min(BLOCK_COLUMNS, columns - j0);
+				memberships.read((long) i * columns + j0, tile, 0, width);
+				
+				for (int j = 0; j < width; j++)
+					if (tile[j] > max)
+						max = tile[j];
+			}
+			
+			projection[i] = max;
+		}
+		
+		return new DenseDiscreteFuzzySet(rowUniverse, projection);
+	}
+	
+	
+	
+	/**
+	 * Returns the projection of this relation on the column universe. The membership value of y is the maximum
+	 * membership value of the pairs (x, y) over all x.
+	 * 
+	 * @return New set over the column universe
+	 */
+	public DenseDiscreteFuzzySet projectColumns() {
+		
+		checkUniverses();
+		
+		double[] projection = new double[columns];
+		double[] tile = new double[BLOCK_COLUMNS];
+		
+		for (int i = 0; i < rows; i++)
+			for (int j0 = 0; j0 < columns; j0 += BLOCK_COLUMNS) {
+				int width = Math.min(BLOCK_COLUMNS, columns - j0);
+				memberships.read((long) i * columns + j0, tile, 0, width);
+				
+				for (int j = 0; j < width; j++)
+					if (tile[j] > projection[j0 + j])
+						projection[j0 + j] = tile[j];
+			}
+		
+		return new DenseDiscreteFuzzySet(columnUniverse, projection);
+	}
+	
+	
+	
+	/**
+	 * Determines whether both relations give the same membership value to every pair.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the relations do not have the same universes and size
+	 */
+	public boolean equalsRelation(MappedFuzzyRelation relation) {
+		
+		check(relation);
+		
+		return memberships.sameValues(relation.memberships);
+	}
+	
+	
+	
+	/**
+	 * Copies the membership values onto the heap.
+	 * 
+	 * @return New relation equal to this relation
+	 * @throws IllegalArgumentException
+	 *             If the relation has too many pairs to be stored in an array
+	 */
+	public DiscreteFuzzyRelation toDiscreteFuzzyRelation() {
+		
+		checkUniverses();
+		
+		DiscreteFuzzyRelation relation = new DiscreteFuzzyRelation(rowUniverse, columnUniverse);
+		double[] values = relation.memberships();
+		int width = relation.columnCount();
+		
+		for (int i = 0; i < rows; i++)
+			memberships.read((long) i * columns, values, i * width, columns);
+		
+		return relation;
+	}
+	
+	
+	
+	/**
+	 * Writes the changes of the membership values to the storage device.
+	 */
+	public void force() {
+		
+		memberships.force();
+	}
+	
+	
+	
+	/**
+	 * Unmaps the file of the relation without waiting for the garbage collector. Changes are not forced to the storage
+	 * device. Any later operation on the relation throws IllegalStateException. Closing a closed relation has no
+	 * effect.
+	 */
+	@Override
+	public void close() {
+		
+		memberships.close();
+	}
+	
+}
@@ -0,0 +1,571 @@
+package fuzzysystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+import fuzzysystem.monitoring.FuzzyEvents;
+import fuzzysystem.monitoring.SetOperationEvent;
+
+
+
+/**
+ * <p>
+ * MappedFuzzySet is a discrete fuzzy set over a {@linkplain Universe} whose membership values are stored in a memory
+ * mapped file instead of the heap. It has the layout of {@linkplain DenseDiscreteFuzzySet}: the membership value of
+ * the element with id i is the i-th value of the file. A set built once can be opened again in constant time, without
+ * reading the file, by mapping it over a universe having the same elements in the same order.
+ * </p>
+ * 
+ * <p>
+ * A set can also be created and opened without a universe. Its elements are then only known by their ids, which
+ * {@linkplain MappedUniverse} can resolve, and nothing but the membership values takes memory, so the set can be
+ * larger than the heap. The operations on ids and between sets work the same way, while the methods taking or
+ * returning elements throw IllegalStateException.
+ * </p>
+ * 
+ * <p>
+ * The operations write their result into a destination set, which may be one of the operands, so that no membership
+ * values are copied onto the heap. The operands and the destination must belong to the same universe, or all have no
+ * universe, and have the same size. Results are not written to the storage device before {@linkplain #force()} is
+ * called or the operating system decides to.
+ * </p>
+ * 
+ * <pre>
+ * MappedFuzzySet hot = MappedFuzzySet.open(Paths.get("hot.fzm"), universe, false);
+ * MappedFuzzySet humid = MappedFuzzySet.open(Paths.get("humid.fzm"), universe, false);
+ * MappedFuzzySet result = MappedFuzzySet.create(Paths.get("result.fzm"), universe);
+ * 
+ * hot.intersection(humid, result).complement(result);
+ * </pre>
+ * 
+ * <p>
+ * {@linkplain #close()} unmaps the file at once; otherwise it stays mapped until the set is garbage collected. A
+ * set must not be used after or while it is closed, and its file must not be created again while it is open, as
+ * creating a file truncates it and accessing the truncated mapping crashes the JVM.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DenseDiscreteFuzzySet
+ *      MappedFuzzyRelation
+ */
+public final class MappedFuzzySet implements AutoCloseable {
+	
+	/**
+	 * Names of the operations of {@linkplain MappedMemberships} reported to the flight recorder.
+	 */
+	static final String[] OPERATION_NAMES = { "mappedUnion", "mappedIntersection", "mappedProduct", "mappedComplement",
+			"mappedScale", "mappedPower" };
+	
+	/**
+	 * Universe of the set, null if the set was created or opened without a universe.
+	 */
+	private final Universe universe;
+	
+	private final MappedMemberships memberships;
+	
+	
+	
+	private MappedFuzzySet(Universe universe, MappedMemberships memberships) {
+		this.universe = universe;
+		this.memberships = memberships;
+	}
+	
+	
+	
+	/**
+	 * Creates a set in the file, replacing an existing one, in which every element of the universe has 0 membership
+	 * value. The file must not be mapped by an open set or relation.
+	 * 
+	 * @param path
+	 *            File of the set
+	 * @param universe
+	 *            Universe of the set. Its present size is the size of the set.
+	 * @return New writable set
+	 * @throws IOException
+	 *             If the file cannot be created or mapped
+	 */
+	public static MappedFuzzySet create(Path path, Universe universe) throws IOException {
+		
+		return new MappedFuzzySet(universe, MappedMemberships.create(path, MappedMemberships.SET, universe.size(), 1));
+	}
+	
+	
+	
+	/**
+	 * Creates a set without a universe in the file, replacing an existing one, in which every element has 0 membership
+	 * value. The file must not be mapped by an open set or relation.
+	 * 
+	 * @param path
+	 *            File of the set
+	 * @param size
+	 *            Number of elements of the set
+	 * @return New writable set
+	 * @throws IOException
+	 *             If the file cannot be created or mapped
+	 */
+	public static MappedFuzzySet create(Path path, int size) throws IOException {
+		
+		return new MappedFuzzySet(null, MappedMemberships.create(path, MappedMemberships.SET, size, 1));
+	}
+	
+	
+	
+	/**
+	 * Creates a set in the file having the same membership values as the given dense set.
+	 * 
+	 * @param path
+	 *            File of the set
+	 * @param fuzzySet
+	 *            Set to store
+	 * @return New writable set over the universe of fuzzySet
+	 * @throws IOException
+	 *             If the file cannot be created or mapped
+	 */
+	public static MappedFuzzySet create(Path path, DenseDiscreteFuzzySet fuzzySet) throws IOException {
+		
+		MappedFuzzySet mapped = create(path, fuzzySet.getUniverse());
+		double[] values = fuzzySet.memberships();
+		
+		mapped.memberships.write(0, values, 0, (int) Math.min(values.length, mapped.memberships.length()));
+		
+		return mapped;
+	}
+	
+	
+	
+	/**
+	 * Maps a set created by {@linkplain #create(Path, Universe)}. The elements of the universe must have the ids they
+	 * had when the set was created.
+	 * 
+	 * @param path
+	 *            File of the set
+	 * @param universe
+	 *            Universe of the set
+	 * @param writable
+	 *            Whether the membership values may be changed
+	 * @return Set stored in the file
+	 * @throws IOException
+	 *             If the file cannot be mapped or it does not contain a set
+	 * @throws IllegalArgumentException
+	 *             If the set is larger than the universe
+	 */
+	public static MappedFuzzySet open(Path path, Universe universe, boolean writable) throws IOException {
+		
+		MappedMemberships memberships = MappedMemberships.open(path, MappedMemberships.SET, writable);
+		
+		if (memberships.length() > universe.size())
+			throw new IllegalArgumentException("Set of " + memberships.length()
+					+ " elements does not fit a universe of " + universe.size() + " elements.");
+		
+		return new MappedFuzzySet(universe, memberships);
+	}
+	
+	
+	
+	/**
+	 * Maps a set without a universe. Nothing is read but the header of the file, so the set takes no memory on the
+	 * heap whatever its size. Its elements are only known by their ids.
+	 * 
+	 * @param path
+	 *            File of the set
+	 * @param writable
+	 *            Whether the membership values may be changed
+	 * @return Set stored in the file
+	 * @throws IOException
+	 *             If the file cannot be mapped or it does not contain a set
+	 */
+	public static MappedFuzzySet open(Path path, boolean writable) throws IOException {
+		
+		return new MappedFuzzySet(null, MappedMemberships.open(path, MappedMemberships.SET, writable));
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe.
+	 * 
+	 * @return Universe of the set or null if the set has no universe
+	 */
+	public Universe getUniverse() {
+		
+		return universe;
+	}
+	
+	
+	
+	/**
+	 * Returns the universe of the set for the methods working on elements.
+	 */
+	private Universe universe() {
+		
+		if (universe == null)
+			throw new IllegalStateException("Mapped fuzzy set has no universe.");
+		
+		return universe;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of elements stored in the file, the size of the universe when the set was created if it had
+	 * one.
+	 */
+	public int size() {
+		
+		return (int) memberships.length();
+	}
+	
+	
+	
+	/**
+	 * Returns whether the membership values may be changed.
+	 */
+	public boolean isWritable() {
+		
+		return memberships.writable();
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the element with the given id. Ids beyond the size of the set have 0 membership
+	 * value.
+	 */
+	public double getMembershipValue(int id) {
+		
+		return (id >= 0 && id < memberships.length()) ? memberships.get(id) : 0.0;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the element or 0 if it does not belong to the set.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the set has no universe
+	 */
+	public double getMembershipValue(Element element) {
+		
+		return getMembershipValue(universe().indexOf(element));
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the element with the given id.
+	 * 
+	 * @return The present set
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 * @throws IndexOutOfBoundsException
+	 *             If the id is beyond the size of the set
+	 * @throws java.nio.ReadOnlyBufferException
+	 *             If the set is not writable
+	 */
+	public MappedFuzzySet setMembershipValue(int id, double value) throws MembershipOutOfRangeException {
+		
+		if (value < 0 || value > 1)
+			throw new MembershipOutOfRangeException();
+		
+		if (id < 0 || id >= memberships.length())
+			throw new IndexOutOfBoundsException("Id " + id + " is not in set of " + memberships.length() + " elements");
+		
+		memberships.set(id, value);
+		
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets the membership value of the element.
+	 * 
+	 * @return The present set
+	 * @throws MembershipOutOfRangeException
+	 *             If the membership value is beyond [0,1] inclusive.
+	 * @throws IllegalArgumentException
+	 *             If the element does not belong to the set
+	 * @throws IllegalStateException
+	 *             If the set has no universe
+	 */
+	public MappedFuzzySet setMembershipValue(Element element, double value) throws MembershipOutOfRangeException {
+		
+		int id = universe().indexOf(element);
+		
+		if (id < 0 || id >= memberships.length())
+			throw new IllegalArgumentException("Element " + element + " does not belong to the set.");
+		
+		return setMembershipValue(id, value);
+	}
+	
+	
+	
+	private void check(MappedFuzzySet fuzzySet) {
+		
+		if (fuzzySet.universe != universe || fuzzySet.memberships.length() != memberships.length())
+			throw new IllegalArgumentException(
+					"Mapped fuzzy sets must belong to the same universe and have the same size.");
+	}
+	
+	
+	
+	private MappedFuzzySet combine(int operation, MappedFuzzySet fuzzySet, double operand, MappedFuzzySet destination) {
+		
+		if (fuzzySet != null)
+			check(fuzzySet);
+		
+		check(destination);
+		
+		if (!destination.isWritable())
+			throw new IllegalArgumentException("Destination set is not writable.");
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		MappedMemberships other = (fuzzySet == null) ? null : fuzzySet.memberships;
+		memberships.combine(operation, other, operand, destination.memberships);
+		
+		FuzzyEvents.setOperation(event, OPERATION_NAMES[operation], size(), (fuzzySet == null) ? -1 : fuzzySet.size(),
+				size());
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Stores the union of this set with the given set into the destination. The membership value of every element in
+	 * the union is the maximum of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom union is to be performed
+	 * @param destination
+	 *            Writable set receiving the union. It may be this set or fuzzySet.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the sets do not belong to the same universe or have different sizes or the destination is not
+	 *             writable
+	 */
+	public MappedFuzzySet union(MappedFuzzySet fuzzySet, MappedFuzzySet destination) {
+		
+		return combine(MappedMemberships.UNION, fuzzySet, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the intersection of this set with the given set into the destination. The membership value of every
+	 * element in the intersection is the minimum of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom intersection is to be performed
+	 * @param destination
+	 *            Writable set receiving the intersection. It may be this set or fuzzySet.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the sets do not belong to the same universe or have different sizes or the destination is not
+	 *             writable
+	 */
+	public MappedFuzzySet intersection(MappedFuzzySet fuzzySet, MappedFuzzySet destination) {
+		
+		return combine(MappedMemberships.INTERSECTION, fuzzySet, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the product of this set with the given set into the destination. The membership value of every element in
+	 * the product is the product of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom product is to be performed
+	 * @param destination
+	 *            Writable set receiving the product. It may be this set or fuzzySet.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the sets do not belong to the same universe or have different sizes or the destination is not
+	 *             writable
+	 */
+	public MappedFuzzySet product(MappedFuzzySet fuzzySet, MappedFuzzySet destination) {
+		
+		return combine(MappedMemberships.PRODUCT, fuzzySet, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the complement of this set into the destination. The membership value of every element in the complement
+	 * is 1 - its membership value in this set.
+	 * 
+	 * @param destination
+	 *            Writable set receiving the complement. It may be this set.
+	 * @return The destination
+	 * @throws IllegalArgumentException
+	 *             If the sets do not belong to the same universe or have different sizes or the destination is not
+	 *             writable
+	 */
+	public MappedFuzzySet complement(MappedFuzzySet destination) {
+		
+		return combine(MappedMemberships.COMPLEMENT, null, 0, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the multiplication of the set with a numerical value into the destination. The membership values are
+	 * checked before any of them is written.
+	 * 
+	 * @param scaler
+	 *            Multiplication factor
+	 * @param destination
+	 *            Writable set receiving the result. It may be this set.
+	 * @return The destination
+	 * @throws MembershipOutOfRangeException
+	 *             If the factor is not finite or the membership value of any element goes beyond [0,1] inclusive.
+	 */
+	public MappedFuzzySet product(double scaler, MappedFuzzySet destination) throws MembershipOutOfRangeException {
+		
+		// 0 times an infinite factor is NaN, which the maximum below would not reveal
+		if (!Double.isFinite(scaler))
+			throw new MembershipOutOfRangeException();
+		
+		long maxId = memberships.maxIndex();
+		double max = (maxId < 0) ? 0 : memberships.get(maxId) * scaler;
+		
+		if (max < 0 || max > 1)
+			throw new MembershipOutOfRangeException();
+		
+		return combine(MappedMemberships.SCALE, null, scaler, destination);
+	}
+	
+	
+	
+	/**
+	 * Stores the power of the set with a numerical value into the destination. The membership value of every element
+	 * is raised to the given power.
+	 * 
+	 * @param power
+	 *            Power factor
+	 * @param destination
+	 *            Writable set receiving the result. It may be this set.
+	 * @return The destination
+	 */
+	public MappedFuzzySet power(float power, MappedFuzzySet destination) {
+		
+		return combine(MappedMemberships.POWER, null, power, destination);
+	}
+	
+	
+	
+	/**
+	 * Returns the sum of membership values of all the elements.
+	 * 
+	 * @return Cardinal value of this set
+	 */
+	public double cardinalValue() {
+		
+		return memberships.sum();
+	}
+	
+	
+	
+	/**
+	 * Returns the element having maximum membership value.
+	 * 
+	 * @return Element with maximum membership value or null if every element has 0 membership value
+	 * @throws IllegalStateException
+	 *             If the set has no universe
+	 */
+	public Element height() {
+		
+		Universe universe = universe();
+		int maxId = heightId();
+		
+		return (maxId < 0) ? null : universe.get(maxId);
+	}
+	
+	
+	
+	/**
+	 * Returns the id of the element having maximum membership value.
+	 * 
+	 * @return Id of the first element with maximum membership value or -1 if every element has 0 membership value
+	 */
+	public int heightId() {
+		
+		return (int) memberships.maxIndex();
+	}
+	
+	
+	
+	/**
+	 * Determines whether both sets give the same membership value to every element.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the sets do not belong to the same universe or have different sizes
+	 */
+	public boolean equalsFuzzySet(MappedFuzzySet fuzzySet) {
+		
+		check(fuzzySet);
+		
+		return memberships.sameValues(fuzzySet.memberships);
+	}
+	
+	
+	
+	/**
+	 * Copies the membership values onto the heap.
+	 * 
+	 * @return New dense set equal to this set
+	 * @throws IllegalStateException
+	 *             If the set has no universe
+	 */
+	public DenseDiscreteFuzzySet toDenseFuzzySet() {
+		
+		Universe universe = universe();
+		double[] values = new double[size()];
+		
+		memberships.read(0, values, 0, values.length);
+		
+		return new DenseDiscreteFuzzySet(universe, values);
+	}
+	
+	
+	
+	/**
+	 * Writes the changes of the membership values to the storage device.
+	 */
+	public void force() {
+		
+		memberships.force();
+	}
+	
+	
+	
+	/**
+	 * Unmaps the file of the set without waiting for the garbage collector. Changes are not forced to the storage
+	 * device. Any later operation on the set throws IllegalStateException. Closing a closed set has no effect.
+	 */
+	@Override
+	public void close() {
+		
+		memberships.close();
+	}
+	
+	
+	
+	/**
+	 * Returns the string representation of the set in the same format as {@linkplain DiscreteFuzzySet#toString()}. Only
+	 * the elements having membership value greater than 0 are included. A set without a universe only gives its size.
+	 */
+	@Override
+	public String toString() {
+		
+		if (universe == null)
+			return "[ " + size() + " mapped elements ]";
+		
+		return toDenseFuzzySet().toString();
+	}
+	
+}
@@ -0,0 +1,586 @@
+package fuzzysystem;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+
+
+/**
+ * <p>
+ * MappedMemberships is a table of membership values stored in a memory mapped file. It is the storage of
+ * {@linkplain MappedFuzzySet} and {@linkplain MappedFuzzyRelation}. The file starts with a header of
+ * {@linkplain #HEADER_LENGTH} bytes, followed by the membership values as little endian doubles, row by row:
+ * </p>
+ * 
+ * <pre>
+ * magic (4 bytes), version (1 byte), kind (1 byte), reserved (2 bytes), rows (8 bytes), columns (8 bytes),
+ * reserved (8 bytes)
+ * </pre>
+ * 
+ * <p>
+ * The files of {@linkplain MappedUniverse} have the same header with their own kind.
+ * </p>
+ * 
+ * <p>
+ * A single mapping cannot exceed 2 GB, so the values are mapped in chunks of 2<sup>{@linkplain #CHUNK_SHIFT}</sup>
+ * values and a table may be larger than the heap. The operating system loads the pages when they are first read, so
+ * opening a file takes constant time.
+ * </p>
+ * 
+ * <p>
+ * Bulk operations read and write the values in tiles of {@linkplain #TILE} values through heap arrays of that size,
+ * which keeps the loops over plain arrays. The tiles of large tables are processed in parallel. Every task processes
+ * a range of tiles with arrays allocated once, so only a few arrays per worker thread are on the heap at a time.
+ * </p>
+ * 
+ * <p>
+ * {@linkplain #close()} unmaps the file at once instead of waiting for the garbage collector. Accessing unmapped
+ * memory crashes the JVM, so the table must not be used by another thread while it is closed and a file must not be
+ * created again, which truncates it, while a table mapping it is open.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ */
+final class MappedMemberships {
+	
+	static final int MAGIC = 0x314D_5A46;
+	
+	static final byte VERSION = 1;
+	
+	static final byte SET = 0;
+	
+	static final byte RELATION = 1;
+	
+	static final byte UNIVERSE = 2;
+	
+	static final int HEADER_LENGTH = 32;
+	
+	/**
+	 * Number of values of a mapped chunk is 2<sup>27</sup>, 1 GB.
+	 */
+	static final int CHUNK_SHIFT = 27;
+	
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+	
+	/**
+	 * Number of values read into a heap array at a time.
+	 */
+	static final int TILE = 1 << 12;
+	
+	static final int UNION = 0;
+	
+	static final int INTERSECTION = 1;
+	
+	static final int PRODUCT = 2;
+	
+	static final int COMPLEMENT = 3;
+	
+	static final int SCALE = 4;
+	
+	static final int POWER = 5;
+	
+	/**
+	 * Number of tasks per worker thread of the bulk operations.
+	 */
+	private static final int TASKS_PER_WORKER = 4;
+	
+	private final MappedByteBuffer[] buffers;
+	
+	private final DoubleBuffer[] chunks;
+	
+	private final long rows;
+	
+	private final long columns;
+	
+	private final long length;
+	
+	private final boolean writable;
+	
+	private volatile boolean closed;
+	
+	
+	
+	private MappedMemberships(FileChannel channel, boolean writable, long rows, long columns) throws IOException {
+		
+		this.rows = rows;
+		this.columns = columns;
+		this.length = rows * columns;
+		this.writable = writable;
+		
+		int chunkCount = (int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT);
+		buffers = new MappedByteBuffer[chunkCount];
+		chunks = new DoubleBuffer[chunkCount];
+		
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			long first = (long) chunk << CHUNK_SHIFT;
+			long count = Math.min(length - first, 1L << CHUNK_SHIFT);
+			
+			MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+			buffers[chunk] = channel.map(mode, HEADER_LENGTH + first * 8, count * 8);
+			buffers[chunk].order(ByteOrder.LITTLE_ENDIAN);
+			chunks[chunk] = buffers[chunk].asDoubleBuffer();
+		}
+	}
+	
+	
+	
+	/**
+	 * Creates the file, replacing an existing one, and maps it for reading and writing. Every value is 0.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be created or mapped
+	 */
+	static MappedMemberships create(Path path, byte kind, long rows, long columns) throws IOException {
+		
+		if (rows < 0 || columns < 0 || (columns > 0 && rows > Long.MAX_VALUE / 8 / columns))
+			throw new IllegalArgumentException("Invalid size of membership table : " + rows + " x " + columns);
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			writeHeader(channel, kind, rows, columns);
+			
+			return new MappedMemberships(channel, true, rows, columns);
+		}
+	}
+	
+	
+	
+	/**
+	 * Writes the header of a file of the given kind at the start of the channel.
+	 */
+	static void writeHeader(FileChannel channel, byte kind, long rows, long columns) throws IOException {
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).put(VERSION).put(kind).putShort((short) 0).putLong(rows).putLong(columns).putLong(0);
+		header.flip();
+		
+		while (header.hasRemaining())
+			channel.write(header, header.position());
+	}
+	
+	
+	
+	/**
+	 * Reads and checks the header of a file of the given kind. The rows and the columns are at the bytes 8 and 16.
+	 * 
+	 * @throws IOException
+	 *             If the file does not start with a header of the kind
+	 */
+	static ByteBuffer readHeader(FileChannel channel, Path path, byte kind) throws IOException {
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		
+		while (header.hasRemaining())
+			if (channel.read(header, header.position()) < 0)
+				break;
+		
+		if (header.hasRemaining() || header.getInt(0) != MAGIC)
+			throw new IOException(path + " is not a mapped membership file.");
+		
+		if (header.get(4) != VERSION || header.get(5) != kind)
+			throw new IOException(path + " has an unsupported version or kind : " + header.get(4) + ", "
+					+ header.get(5));
+		
+		return header;
+	}
+	
+	
+	
+	/**
+	 * Maps an existing file.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be mapped or it does not contain a membership table of the given kind
+	 */
+	static MappedMemberships open(Path path, byte kind, boolean writable) throws IOException {
+		
+		StandardOpenOption[] options = writable
+				? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+				: new StandardOpenOption[] { StandardOpenOption.READ };
+		
+		try (FileChannel channel = FileChannel.open(path, options)) {
+			ByteBuffer header = readHeader(channel, path, kind);
+			long rows = header.getLong(8), columns = header.getLong(16);
+			
+			if (rows < 0 || columns < 0 || (columns > 0 && rows > Long.MAX_VALUE / 8 / columns)
+					|| channel.size() < HEADER_LENGTH + rows * columns * 8)
+				throw new IOException(path + " is truncated or corrupt.");
+			
+			return new MappedMemberships(channel, writable, rows, columns);
+		}
+	}
+	
+	
+	
+	long rows() {
+		
+		return rows;
+	}
+	
+	
+	
+	long columns() {
+		
+		return columns;
+	}
+	
+	
+	
+	long length() {
+		
+		return length;
+	}
+	
+	
+	
+	boolean writable() {
+		
+		return writable;
+	}
+	
+	
+	
+	/**
+	 * Throws IllegalStateException if the table is closed.
+	 */
+	private void checkOpen() {
+		
+		if (closed)
+			throw new IllegalStateException("Mapped membership table is closed.");
+	}
+	
+	
+	
+	double get(long index) {
+		
+		checkOpen();
+		return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+	}
+	
+	
+	
+	void set(long index, double value) {
+		
+		checkOpen();
+		chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+	}
+	
+	
+	
+	/**
+	 * Copies count values starting at index into the array. The position of the mapped buffers is not changed, so
+	 * many threads may read at the same time.
+	 */
+	void read(long index, double[] target, int offset, int count) {
+		
+		checkOpen();
+		
+		while (count > 0) {
+			DoubleBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)].duplicate();
+			int position = (int) (index & CHUNK_MASK);
+			int part = Math.min(count, chunk.limit() - position);
+			
+			chunk.position(position);
+			chunk.get(target, offset, part);
+			index += part;
+			offset += part;
+			count -= part;
+		}
+	}
+	
+	
+	
+	/**
+	 * Copies count values of the array to the table starting at index.
+	 */
+	void write(long index, double[] source, int offset, int count) {
+		
+		checkOpen();
+		
+		while (count > 0) {
+			DoubleBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)].duplicate();
+			int position = (int) (index & CHUNK_MASK);
+			int part = Math.min(count, chunk.limit() - position);
+			
+			chunk.position(position);
+			chunk.put(source, offset, part);
+			index += part;
+			offset += part;
+			count -= part;
+		}
+	}
+	
+	
+	
+	/**
+	 * Writes the changes of the mapped values to the storage device.
+	 */
+	void force() {
+		
+		checkOpen();
+		
+		for (MappedByteBuffer buffer : buffers)
+			buffer.force();
+	}
+	
+	
+	
+	/**
+	 * Unmaps the file. Further accesses throw IllegalStateException. Closing a closed table has no effect.
+	 */
+	void close() {
+		
+		if (closed)
+			return;
+		
+		closed = true;
+		
+		for (int chunk = 0; chunk < buffers.length; chunk++) {
+			Unmapper.unmap(buffers[chunk]);
+			buffers[chunk] = null;
+			chunks[chunk] = null;
+		}
+	}
+	
+	
+	
+	boolean closed() {
+		
+		return closed;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of tiles of the table.
+	 */
+	private int tileCount() {
+		
+		return (int) ((length + TILE - 1) / TILE);
+	}
+	
+	
+	
+	/**
+	 * Applies the action on every tile, in parallel if the table is large. The action receives a range of tiles, a
+	 * few ranges per worker thread, so that its arrays are allocated once for many tiles.
+	 */
+	private void forEachTile(ParallelChunks.ChunkAction action) {
+		
+		int tiles = tileCount();
+		
+		checkOpen();
+		
+		if (ParallelChunks.parallel((int) Math.min(length, Integer.MAX_VALUE))) {
+			int tasks = ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_WORKER;
+			ParallelChunks.forEachChunk(tiles, Math.max(1, (tiles + tasks - 1) / tasks), action);
+		}
+		else
+			action.apply(0, 0, tiles);
+	}
+	
+	
+	
+	/**
+	 * Stores the result of the element wise operation of this table and the other one into the destination. The other
+	 * table is only used by {@linkplain #UNION}, {@linkplain #INTERSECTION} and {@linkplain #PRODUCT}, the operand only
+	 * by {@linkplain #SCALE} and {@linkplain #POWER}. The destination may be this table or the other one.
+	 */
+	void combine(int operation, MappedMemberships other, double operand, MappedMemberships destination) {
+		
+		forEachTile((chunk, from, to) -> {
+			double[] a = new double[TILE], b = (other == null) ? null : new double[TILE];
+			
+			for (int tile = from; tile < to; tile++) {
+				long start = (long) tile * TILE;
+				int count = (int) Math.min(TILE, length - start);
+				
+				read(start, a, 0, count);
+				
+				if (b != null)
+					other.read(start, b, 0, count);
+				
+				switch (operation) {
+					case UNION:
+						for (int i = 0; i < count; i++)
+							a[i] = Math.max(a[i], b[i]);
+						break;
+					case INTERSECTION:
+						for (int i = 0; i < count; i++)
+							a[i] = Math.min(a[i], b[i]);
+						break;
+					case PRODUCT:
+						for (int i = 0; i < count; i++)
+							a[i] *= b[i];
+						break;
+					case COMPLEMENT:
+						for (int i = 0; i < count; i++)
+							a[i] = 1 - a[i];
+						break;
+					case SCALE:
+						for (int i = 0; i < count; i++)
+							a[i] *= operand;
+						break;
+					default:
+						if (operand == 2) {
+							for (int i = 0; i < count; i++)
+								a[i] *= a[i];
+						}
+						else {
+							for (int i = 0; i < count; i++)
+								a[i] = Math.pow(a[i], operand);
+						}
+				}
+				
+				destination.write(start, a, 0, count);
+			}
+		});
+	}
+	
+	
+	
+	/**
+	 * Returns the sum of all the values. The partial sums of the tiles are added in order, so the result does not
+	 * depend on the parallelism.
+	 */
+	double sum() {
+		
+		double[] sums = new double[tileCount()];
+		
+		forEachTile((chunk, from, to) -> {
+			double[] a = new double[TILE];
+			
+			for (int tile = from; tile < to; tile++) {
+				long start = (long) tile * TILE;
+				int count = (int) Math.min(TILE, length - start);
+				double sum = 0;
+				
+				read(start, a, 0, count);
+				
+				for (int i = 0; i < count; i++)
+					sum += a[i];
+				
+				sums[tile] = sum;
+			}
+		});
+		
+		double sum = 0;
+		
+		for (double partial : sums)
+			sum += partial;
+		
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Returns the index of the first largest value greater than 0, or -1 if every value is 0.
+	 */
+	long maxIndex() {
+		
+		double max = 0;
+		long maxIndex = -1;
+		double[] a = new double[TILE];
+		
+		for (long start = 0; start < length; start += TILE) {
+			int count = (int) Math.min(TILE, length - start);
+			read(start, a, 0, count);
+			
+			for (int i = 0; i < count; i++)
+				if (a[i] > max) {
+					max = a[i];
+					maxIndex = start + i;
+				}
+		}
+		
+		return maxIndex;
+	}
+	
+	
+	
+	/**
+	 * Determines whether both tables of the same length have the same values.
+	 */
+	boolean sameValues(MappedMemberships other) {
+		
+		double[] a = new double[TILE], b = new double[TILE];
+		
+		for (long start = 0; start < length; start += TILE) {
+			int count = (int) Math.min(TILE, length - start);
+			read(start, a, 0, count);
+			other.read(start, b, 0, count);
+			
+			for (int i = 0; i < count; i++)
+				if (a[i] != b[i])
+					return false;
+		}
+		
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Releases mapped buffers without waiting for the garbage collector. Java 9 and later provide
+	 * <i>sun.misc.Unsafe.invokeCleaner</i>, Java 8 the <i>cleaner()</i> method of the buffer. If neither can be
+	 * accessed the buffer is left to the garbage collector.
+	 */
+	static final class Unmapper {
+		
+		private static final Object unsafe;
+		
+		private static final Method invokeCleaner;
+		
+		static {
+			Object instance = null;
+			Method method = null;
+			
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				method = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field field = unsafeClass.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				instance = field.get(null);
+			}
+			catch (ReflectiveOperationException | RuntimeException e) {
+				method = null;
+			}
+			
+			unsafe = instance;
+			invokeCleaner = method;
+		}
+		
+		
+		
+		static void unmap(MappedByteBuffer buffer) {
+			
+			try {
+				if (invokeCleaner != null)
+					invokeCleaner.invoke(unsafe, buffer);
+				else {
+					Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+					cleanerMethod.setAccessible(true);
+					Object cleaner = cleanerMethod.invoke(buffer);
+					
+					if (cleaner != null)
+						cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+			catch (ReflectiveOperationException | RuntimeException e) {
+				// left to the garbage collector
+			}
+		}
+	}
+	
+}
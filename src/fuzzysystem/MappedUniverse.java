@@ -0,0 +1,358 @@
+package fuzzysystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+
+/**
+ * <p>
+ * MappedUniverse is a {@linkplain Universe} stored in a memory mapped file. It keeps the value, the name and the
+ * representation of every element at its id, so the elements of a {@linkplain MappedFuzzySet} or a
+ * {@linkplain MappedFuzzyRelation} opened without a universe can be described by their ids without building the
+ * universe on the heap. Opening the file takes constant time and an element is only created when it is asked for.
+ * </p>
+ * 
+ * <p>
+ * The file has the header of {@linkplain MappedMemberships} with the number of elements and the length of the names,
+ * followed by the values of the elements as little endian doubles, the end of the name of every element, and the
+ * names in UTF-8. The end of a name is stored shifted left by two bits, the lower bits telling whether the name is
+ * null and whether the value is used as the name. The header is written last, so a file whose creation did not
+ * complete cannot be opened.
+ * </p>
+ * 
+ * <p>
+ * Elements are compared by identity, so {@linkplain #get(int)} creates a new element every time it is called.
+ * {@linkplain #toUniverse()} creates a universe holding all the elements when elements must be looked up.
+ * </p>
+ * 
+ * <pre>
+ * MappedUniverse cities = MappedUniverse.open(Paths.get("cities.fzu"));
+ * MappedFuzzySet hot = MappedFuzzySet.open(Paths.get("hot.fzm"), false);
+ * 
+ * Element hottest = cities.get(hot.heightId());
+ * </pre>
+ * 
+ * <p>
+ * Like the mapped sets, a universe must not be used after or while it is {@linkplain #close() closed}, and its file
+ * must not be created again while it is open.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see Universe
+ *      MappedFuzzySet
+ */
+public final class MappedUniverse implements AutoCloseable {
+	
+	/**
+	 * Number of bytes of a mapped chunk is 2<sup>30</sup>, 1 GB. It is a multiple of 8, so a value never spans two
+	 * chunks.
+	 */
+	private static final int CHUNK_SHIFT = 30;
+	
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+	
+	/**
+	 * Size of the buffers writing a new file.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private static final long VALUE_AS_NAME = 1;
+	
+	private static final long NULL_NAME = 2;
+	
+	private final MappedByteBuffer[] buffers;
+	
+	private final int size;
+	
+	/**
+	 * Position of the end of the first name and of the first name in the file.
+	 */
+	private final long ends, names;
+	
+	private volatile boolean closed;
+	
+	
+	
+	private MappedUniverse(FileChannel channel, int size, long namesLength) throws IOException {
+		
+		this.size = size;
+		this.ends = MappedMemberships.HEADER_LENGTH + (long) size * 8;
+		this.names = ends + (long) size * 8;
+		
+		long length = names + namesLength;
+		buffers = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		
+		for (int chunk = 0; chunk < buffers.length; chunk++) {
+			long first = (long) chunk << CHUNK_SHIFT;
+			
+			buffers[chunk] = channel.map(MapMode.READ_ONLY, first, Math.min(length - first, 1L << CHUNK_SHIFT));
+			buffers[chunk].order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+	
+	
+	
+	/**
+	 * Stores the elements of the universe in the file, replacing an existing one, and maps it.
+	 * 
+	 * @param path
+	 *            File of the universe
+	 * @param universe
+	 *            Universe to store
+	 * @return Universe stored in the file
+	 * @throws IOException
+	 *             If the file cannot be written or mapped
+	 */
+	public static MappedUniverse create(Path path, Universe universe) throws IOException {
+		
+		int size = universe.size();
+		Element[] elements = universe.elements();
+		double[] values = universe.values();
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			long position = MappedMemberships.HEADER_LENGTH;
+			
+			for (int id = 0; id < size; id++) {
+				if (buffer.remaining() < 8)
+					position = flush(channel, buffer, position);
+				
+				buffer.putDouble(values[id]);
+			}
+			
+			flush(channel, buffer, position);
+			
+			ByteBuffer nameBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long endPosition = MappedMemberships.HEADER_LENGTH + (long) size * 8;
+			long namePosition = endPosition + (long) size * 8, end = 0;
+			
+			for (int id = 0; id < size; id++) {
+				String name = elements[id].getName();
+				byte[] bytes = (name == null) ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+				
+				end += bytes.length;
+				
+				if (buffer.remaining() < 8)
+					endPosition = flush(channel, buffer, endPosition);
+				
+				buffer.putLong(end << 2 | ((name == null) ? NULL_NAME : 0)
+						| (elements[id].useValueAsName() ? VALUE_AS_NAME : 0));
+				
+				if (nameBuffer.remaining() < bytes.length)
+					namePosition = flush(channel, nameBuffer, namePosition);
+				
+				if (bytes.length > nameBuffer.capacity()) {
+					ByteBuffer large = ByteBuffer.wrap(bytes);
+					
+					while (large.hasRemaining())
+						namePosition += channel.write(large, namePosition);
+				}
+				else
+					nameBuffer.put(bytes);
+			}
+			
+			flush(channel, buffer, endPosition);
+			flush(channel, nameBuffer, namePosition);
+			
+			MappedMemberships.writeHeader(channel, MappedMemberships.UNIVERSE, size, end);
+		}
+		
+		return open(path);
+	}
+	
+	
+	
+	/**
+	 * Writes the content of the buffer at the position of the file and clears the buffer.
+	 * 
+	 * @return Position following the written bytes
+	 */
+	private static long flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		
+		buffer.flip();
+		
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+		
+		buffer.clear();
+		
+		return position;
+	}
+	
+	
+	
+	/**
+	 * Maps a universe created by {@linkplain #create(Path, Universe)}.
+	 * 
+	 * @param path
+	 *            File of the universe
+	 * @return Universe stored in the file
+	 * @throws IOException
+	 *             If the file cannot be mapped or it does not contain a universe
+	 */
+	public static MappedUniverse open(Path path) throws IOException {
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = MappedMemberships.readHeader(channel, path, MappedMemberships.UNIVERSE);
+			long size = header.getLong(8), namesLength = header.getLong(16);
+			
+			if (size < 0 || size > Integer.MAX_VALUE || namesLength < 0
+					|| channel.size() < MappedMemberships.HEADER_LENGTH + size * 16 + namesLength)
+				throw new IOException(path + " is truncated or corrupt.");
+			
+			return new MappedUniverse(channel, (int) size, namesLength);
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the number of elements in this universe.
+	 * 
+	 * @return Number of elements
+	 */
+	public int size() {
+		
+		return size;
+	}
+	
+	
+	
+	private void check(int id) {
+		
+		if (closed)
+			throw new IllegalStateException("Mapped universe is closed.");
+		
+		if (id < 0 || id >= size)
+			throw new IndexOutOfBoundsException("Id " + id + " is not in universe of size " + size);
+	}
+	
+	
+	
+	private long getLong(long position) {
+		
+		return buffers[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+	}
+	
+	
+	
+	/**
+	 * Returns {@linkplain Element#getValue()} of the element with the given id without creating the element.
+	 * 
+	 * @param id
+	 *            Id of the element
+	 * @return Value of the element
+	 * @throws IndexOutOfBoundsException
+	 *             If no element has the id
+	 */
+	public double valueAt(int id) {
+		
+		check(id);
+		
+		return Double.longBitsToDouble(getLong(MappedMemberships.HEADER_LENGTH + (long) id * 8));
+	}
+	
+	
+	
+	/**
+	 * Returns {@linkplain Element#getName()} of the element with the given id without creating the element.
+	 * 
+	 * @param id
+	 *            Id of the element
+	 * @return Name of the element
+	 * @throws IndexOutOfBoundsException
+	 *             If no element has the id
+	 */
+	public String nameAt(int id) {
+		
+		check(id);
+		
+		long entry = getLong(ends + (long) id * 8);
+		
+		if ((entry & NULL_NAME) != 0)
+			return null;
+		
+		long start = (id == 0) ? 0 : getLong(ends + (long) (id - 1) * 8) >>> 2;
+		byte[] bytes = new byte[(int) ((entry >>> 2) - start)];
+		
+		for (int offset = 0; offset < bytes.length;) {
+			long position = names + start + offset;
+			ByteBuffer chunk = buffers[(int) (position >>> CHUNK_SHIFT)].duplicate();
+			int part = Math.min(bytes.length - offset, chunk.limit() - (int) (position & CHUNK_MASK));
+			
+			chunk.position((int) (position & CHUNK_MASK));
+			chunk.get(bytes, offset, part);
+			offset += part;
+		}
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	
+	
+	/**
+	 * Creates the element with the given id.
+	 * 
+	 * @param id
+	 *            Id of the element
+	 * @return New element having the value, name and representation of the stored element
+	 * @throws IndexOutOfBoundsException
+	 *             If no element has the id
+	 */
+	public Element get(int id) {
+		
+		check(id);
+		
+		boolean useValueAsName = (getLong(ends + (long) id * 8) & VALUE_AS_NAME) != 0;
+		
+		return new Element(nameAt(id), valueAt(id), useValueAsName);
+	}
+	
+	
+	
+	/**
+	 * Creates a universe holding the elements with the same ids. Sets stored with the universe this file was created
+	 * from can be opened over the new universe.
+	 * 
+	 * @return New universe
+	 */
+	public Universe toUniverse() {
+		
+		Universe universe = new Universe(size);
+		
+		for (int id = 0; id < size; id++)
+			universe.add(get(id));
+		
+		return universe;
+	}
+	
+	
+	
+	/**
+	 * Unmaps the file without waiting for the garbage collector. Any later call throws IllegalStateException. Closing a
+	 * closed universe has no effect.
+	 */
+	@Override
+	public void close() {
+		
+		if (closed)
+			return;
+		
+		closed = true;
+		
+		for (int chunk = 0; chunk < buffers.length; chunk++) {
+			MappedMemberships.Unmapper.unmap(buffers[chunk]);
+			buffers[chunk] = null;
+		}
+	}
+	
+}
@@ -0,0 +1,127 @@
+package fuzzysystem;
+
+import java.util.NoSuchElementException;
+
+
+
+/**
+ * <p>
+ * MemberCursor traverses the members of a {@linkplain DiscreteFuzzySet} without allocation. It is positioned before
+ * the first member when created. Each call of {@linkplain #next()} moves it to the next member, whose element and
+ * membership value are then available through {@linkplain #element()} and {@linkplain #membership()}.
+ * </p>
+ * 
+ * <pre>
+ * MemberCursor cursor = fuzzySet.cursor();
+ * double weightedSum = 0;
+ * 
+ * while (cursor.next())
+ * 	weightedSum += cursor.element().getValue() * cursor.membership();
+ * </pre>
+ * 
+ * <p>
+ * A cursor can be rewound with {@linkplain #reset()} or moved to another set with
+ * {@linkplain #reset(DiscreteFuzzySet)}, so a single instance serves any number of traversals. The set must not be
+ * modified while it is traversed.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet#cursor()
+ */
+public final class MemberCursor {
+	
+	private ElementMembershipMap map;
+	
+	/**
+	 * Entry index of the current member, -1 before the first member.
+	 */
+	private int entry;
+	
+	
+	
+	MemberCursor(DiscreteFuzzySet fuzzySet) {
+		reset(fuzzySet);
+	}
+	
+	
+	
+	/**
+	 * Moves the cursor to the next member.
+	 * 
+	 * @return true - If the cursor is on a member</br>
+	 *         false - If there are no more members
+	 */
+	public boolean next() {
+		
+		if (entry < map.size())
+			++entry;
+		
+		return entry < map.size();
+	}
+	
+	
+	
+	/**
+	 * Returns the element of the current member.
+	 * 
+	 * @throws NoSuchElementException
+	 *             If the cursor is not on a member
+	 */
+	public Element element() {
+		
+		checkPosition();
+		return map.keyAt(entry);
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the current member.
+	 * 
+	 * @throws NoSuchElementException
+	 *             If the cursor is not on a member
+	 */
+	public double membership() {
+		
+		checkPosition();
+		return map.valueAt(entry);
+	}
+	
+	
+	
+	private void checkPosition() {
+		
+		if (entry < 0 || entry >= map.size())
+			throw new NoSuchElementException("Cursor is not positioned on a member.");
+	}
+	
+	
+	
+	/**
+	 * Moves the cursor before the first member of its set.
+	 * 
+	 * @return This cursor
+	 */
+	public MemberCursor reset() {
+		
+		entry = -1;
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Moves the cursor before the first member of the given set.
+	 * 
+	 * @param fuzzySet
+	 *            Set to be traversed
+	 * @return This cursor
+	 */
+	public MemberCursor reset(DiscreteFuzzySet fuzzySet) {
+		
+		map = fuzzySet.map();
+		entry = -1;
+		return this;
+	}
+	
+}
@@ -0,0 +1,224 @@
+package fuzzysystem;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.ObjDoubleConsumer;
+
+
+
+/**
+ * <p>
+ * MemberSpliterator traverses and partitions the members of a {@linkplain DiscreteFuzzySet}. Besides the elements, it
+ * can supply every element together with its membership value through {@linkplain ObjDoubleConsumer}, so neither a
+ * {@linkplain Singleton} is created nor the membership value looked up again.
+ * </p>
+ * 
+ * <p>
+ * The members are read directly from the storage of the set, which keeps them in arrays. The spliterator is therefore
+ * {@linkplain #SIZED} and {@linkplain #SUBSIZED} and splits in halves exactly, which makes it suitable for parallel
+ * streams. The set must not be modified while the spliterator is in use.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet#spliterator()
+ */
+public final class MemberSpliterator implements Spliterator<Element> {
+	
+	private final ElementMembershipMap map;
+	
+	/**
+	 * Entry index of the next member.
+	 */
+	private int next;
+	
+	/**
+	 * Entry index after the last member.
+	 */
+	private final int end;
+	
+	
+	
+	MemberSpliterator(ElementMembershipMap map, int from, int to) {
+		this.map = map;
+		next = from;
+		end = to;
+	}
+	
+	
+	
+	/**
+	 * Supplies the next member and its membership value to the action.
+	 * 
+	 * @return false - If no member is left</br>
+	 *         true - Otherwise
+	 */
+	public boolean tryAdvance(ObjDoubleConsumer<? super Element> action) {
+		
+		if (next >= end)
+			return false;
+		
+		action.accept(map.keys[next], map.values[next]);
+		++next;
+		
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Supplies every remaining member and its membership value to the action.
+	 */
+	public void forEachRemaining(ObjDoubleConsumer<? super Element> action) {
+		
+		Element[] keys = map.keys;
+		double[] values = map.values;
+		int end = this.end;
+		
+		for (int i = next; i < end; i++)
+			action.accept(keys[i], values[i]);
+		
+		next = end;
+	}
+	
+	
+	
+	@Override
+	public boolean tryAdvance(Consumer<? super Element> action) {
+		
+		if (next >= end)
+			return false;
+		
+		action.accept(map.keys[next++]);
+		
+		return true;
+	}
+	
+	
+	
+	@Override
+	public void forEachRemaining(Consumer<? super Element> action) {
+		
+		Element[] keys = map.keys;
+		int end = this.end;
+		
+		for (int i = next; i < end; i++)
+			action.accept(keys[i]);
+		
+		next = end;
+	}
+	
+	
+	
+	@Override
+	public MemberSpliterator trySplit() {
+		
+		int middle = (next + end) >>> 1;
+		
+		if (middle <= next)
+			return null;
+		
+		MemberSpliterator prefix = new MemberSpliterator(map, next, middle);
+		next = middle;
+		
+		return prefix;
+	}
+	
+	
+	
+	@Override
+	public long estimateSize() {
+		
+		return end - next;
+	}
+	
+	
+	
+	@Override
+	public int characteristics() {
+		
+		return SIZED | SUBSIZED | DISTINCT | NONNULL;
+	}
+	
+	
+	
+	/**
+	 * <p>
+	 * Spliterator over the membership values of the members of a set. It is used by
+	 * {@linkplain DiscreteFuzzySet#membershipStream()}.
+	 * </p>
+	 */
+	static final class OfMembership implements Spliterator.OfDouble {
+		
+		private final double[] values;
+		
+		private int next;
+		
+		private final int end;
+		
+		
+		
+		OfMembership(double[] values, int from, int to) {
+			this.values = values;
+			next = from;
+			end = to;
+		}
+		
+		
+		
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			
+			if (next >= end)
+				return false;
+			
+			action.accept(values[next++]);
+			
+			return true;
+		}
+		
+		
+		
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			
+			for (int i = next; i < end; i++)
+				action.accept(values[i]);
+			
+			next = end;
+		}
+		
+		
+		
+		@Override
+		public OfMembership trySplit() {
+			
+			int middle = (next + end) >>> 1;
+			
+			if (middle <= next)
+				return null;
+			
+			OfMembership prefix = new OfMembership(values, next, middle);
+			next = middle;
+			
+			return prefix;
+		}
+		
+		
+		
+		@Override
+		public long estimateSize() {
+			
+			return end - next;
+		}
+		
+		
+		
+		@Override
+		public int characteristics() {
+			
+			return SIZED | SUBSIZED | NONNULL;
+		}
+	}
+	
+}
@@ -0,0 +1,293 @@
+package fuzzysystem;
+
+/**
+ * <p>
+ * MembershipAggregates maintains statistics of the membership values of a {@linkplain ElementMembershipMap} while the
+ * map is modified. The map reports every change of a single member, which updates the statistics in O(1) time, or
+ * O(log n) time for the maximum. Bulk changes rebuild the statistics in O(n) time.
+ * </p>
+ * 
+ * <p>
+ * The sums are accumulated with compensated summation, so adding and removing members does not let the rounding
+ * errors grow. They may still differ from a recomputation in the last digits.
+ * </p>
+ * 
+ * <p>
+ * The maximum is kept in a tournament tree over the entry indices of the map. Every node holds the entry index of the
+ * largest membership value below it, preferring the lower entry index among equal values. The root is therefore the
+ * first member with the largest membership value in the order of the map, which is the member returned by
+ * {@linkplain DiscreteFuzzySet#height()}.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet#enableAggregates(double)
+ */
+final class MembershipAggregates {
+	
+	private static final double LN_2 = Math.log(2);
+	
+	private final ElementMembershipMap map;
+	
+	/**
+	 * Membership value above which the members are counted.
+	 */
+	private final double threshold;
+	
+	private final CompensatedSum sum = new CompensatedSum();
+	
+	private final CompensatedSum sumOfSquares = new CompensatedSum();
+	
+	private final CompensatedSum entropy = new CompensatedSum();
+	
+	private int countAbove;
+	
+	/**
+	 * Tournament tree. The leaves start at index {@linkplain #leaves} and hold the entry index of the member or -1. Node
+	 * i has the children 2i and 2i + 1.
+	 */
+	private int[] tree;
+	
+	private int leaves;
+	
+	
+	
+	MembershipAggregates(ElementMembershipMap map, double threshold) {
+		this.map = map;
+		this.threshold = threshold;
+		rebuild();
+	}
+	
+	
+	
+	/**
+	 * Recomputes all the statistics from the map.
+	 */
+	void rebuild() {
+		
+		sum.clear();
+		sumOfSquares.clear();
+		entropy.clear();
+		countAbove = 0;
+		
+		for (int i = 0; i < map.size(); i++)
+			include(map.valueAt(i), 1);
+		
+		leaves = Integer.highestOneBit(Math.max(map.size(), 1) - 1) << 1;
+		leaves = Math.max(leaves, 2);
+		tree = new int[leaves * 2];
+		
+		for (int i = 0; i < leaves; i++)
+			tree[leaves + i] = (i < map.size()) ? i : -1;
+		
+		for (int node = leaves - 1; node > 0; node--)
+			tree[node] = larger(tree[2 * node], tree[2 * node + 1]);
+	}
+	
+	
+	
+	/**
+	 * Adds the membership value to the statistics if sign is 1, or removes it if sign is -1.
+	 */
+	private void include(double membership, int sign) {
+		
+		sum.add(sign * membership);
+		sumOfSquares.add(sign * membership * membership);
+		entropy.add(sign * entropy(membership));
+		
+		if (membership > threshold)
+			countAbove += sign;
+	}
+	
+	
+	
+	/**
+	 * Returns the fuzziness of a single membership value, -(u ln u + (1 - u) ln (1 - u)).
+	 */
+	static double entropy(double membership) {
+		
+		double entropy = 0;
+		
+		if (membership > 0 && membership < 1)
+			entropy = -(membership * Math.log(membership) + (1 - membership) * Math.log(1 - membership));
+		
+		return entropy;
+	}
+	
+	
+	
+	/**
+	 * Returns the entry index having the larger membership value, the lower one if they are equal.
+	 */
+	private int larger(int left, int right) {
+		
+		if (left < 0)
+			return right;
+		
+		if (right < 0)
+			return left;
+		
+		double leftValue = map.valueAt(left), rightValue = map.valueAt(right);
+		
+		if (leftValue == rightValue)
+			return Math.min(left, right);
+		
+		return (leftValue > rightValue) ? left : right;
+	}
+	
+	
+	
+	/**
+	 * Sets the leaf of the entry and updates its ancestors.
+	 */
+	private void updateLeaf(int entry, int value) {
+		
+		int node = leaves + entry;
+		tree[node] = value;
+		
+		for (node >>= 1; node > 0; node >>= 1)
+			tree[node] = larger(tree[2 * node], tree[2 * node + 1]);
+	}
+	
+	
+	
+	/**
+	 * Called after the membership value at the entry has changed.
+	 */
+	void changed(int entry, double oldMembership, double newMembership) {
+		
+		include(oldMembership, -1);
+		include(newMembership, 1);
+		updateLeaf(entry, entry);
+	}
+	
+	
+	
+	/**
+	 * Called after a member has been added at the entry.
+	 */
+	void added(int entry, double membership) {
+		
+		include(membership, 1);
+		
+		if (entry >= leaves)
+			rebuild();
+		else
+			updateLeaf(entry, entry);
+	}
+	
+	
+	
+	/**
+	 * Called after the member at the entry has been removed and the member at the last entry has been moved to it. If
+	 * the removed member was the last one, entry is equal to last.
+	 */
+	void removed(int entry, double membership, int last) {
+		
+		include(membership, -1);
+		updateLeaf(last, -1);
+		
+		if (entry != last)
+			updateLeaf(entry, entry);
+	}
+	
+	
+	
+	double sum() {
+		
+		return sum.value();
+	}
+	
+	
+	
+	double sumOfSquares() {
+		
+		return sumOfSquares.value();
+	}
+	
+	
+	
+	double threshold() {
+		
+		return threshold;
+	}
+	
+	
+	
+	int countAbove() {
+		
+		return countAbove;
+	}
+	
+	
+	
+	/**
+	 * Returns the normalized fuzziness entropy of De Luca and Termini, the sum of the fuzziness of the members divided
+	 * by n ln 2. It is 0 for a crisp set and 1 if every membership value is 0.5.
+	 */
+	double entropy() {
+		
+		return normalizedEntropy(entropy.value(), map.size());
+	}
+	
+	
+	
+	/**
+	 * Divides the sum of the fuzziness of the given number of members by n ln 2.
+	 */
+	static double normalizedEntropy(double entropy, int size) {
+		
+		return (size == 0) ? 0 : Math.max(0, entropy) / (size * LN_2);
+	}
+	
+	
+	
+	/**
+	 * Returns the entry index of the first member with the largest membership value or -1 if the map is empty.
+	 */
+	int maxEntry() {
+		
+		return tree[1];
+	}
+	
+	
+	
+	/**
+	 * Sum accumulated with the compensated summation of Neumaier.
+	 */
+	private static final class CompensatedSum {
+		
+		private double sum;
+		
+		private double compensation;
+		
+		
+		
+		void add(double value) {
+			
+			double total = sum + value;
+			
+			if (Math.abs(sum) >= Math.abs(value))
+				compensation += (sum - total) + value;
+			else
+				compensation += (value - total) + sum;
+			
+			sum = total;
+		}
+		
+		
+		
+		double value() {
+			
+			return sum + compensation;
+		}
+		
+		
+		
+		void clear() {
+			
+			sum = 0;
+			compensation = 0;
+		}
+	}
+	
+}
@@ -0,0 +1,391 @@
+package fuzzysystem;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+
+
+/**
+ * <p>
+ * MembershipIndex keeps the members of a {@linkplain DiscreteFuzzySet} ordered by decreasing membership value.
+ * Members having the same membership value are ordered by their entry index in the map, which is the order of the
+ * set. A threshold query is then a binary search followed by a copy of the members above the threshold, so
+ * alpha-cuts, core, support and the highest members are found in O(log n + output size) instead of a scan of the
+ * whole set.
+ * </p>
+ * 
+ * <p>
+ * The index of a set is informed by its {@linkplain ElementMembershipMap} of every member added, removed or changed.
+ * The member is found by a binary search and moved to its new position, shifting the members in between, so a single
+ * change costs O(log n) comparisons and a copy of at most n entries. When more than {@linkplain #PENDING_LIMIT}
+ * changes arrive between two queries, like during an operation modifying the whole set in place, the index stops
+ * following them and is rebuilt in O(n log n) time by {@linkplain #update()} on the next query. Bulk removals and
+ * changes not reported by the map also lead to a rebuild, detected through
+ * {@linkplain ElementMembershipMap#modifications}.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzySet#setMembershipIndex(boolean)
+ */
+final class MembershipIndex {
+	
+	/**
+	 * Number of changes followed between two queries before the index waits for a rebuild instead.
+	 */
+	static final int PENDING_LIMIT = 32;
+	
+	private final ElementMembershipMap map;
+	
+	/**
+	 * Modifications of the map reflected by the index.
+	 */
+	private int modifications;
+	
+	/**
+	 * Number of changes followed since the last query.
+	 */
+	private int pending;
+	
+	/**
+	 * Whether the index no longer follows the map and must be rebuilt.
+	 */
+	private boolean stale;
+	
+	private int size;
+	
+	/**
+	 * Entry indices of the members in the order of decreasing membership value.
+	 */
+	private int[] order;
+	
+	/**
+	 * Membership value of the member at the same index in {@linkplain #order}.
+	 */
+	private double[] memberships;
+	
+	
+	
+	MembershipIndex(ElementMembershipMap map) {
+		this.map = map;
+		build();
+	}
+	
+	
+	
+	/**
+	 * Rebuilds the index if it no longer follows the map.
+	 * 
+	 * @return This index
+	 */
+	MembershipIndex update() {
+		
+		if (stale || modifications != map.modifications)
+			build();
+		
+		pending = 0;
+		
+		return this;
+	}
+	
+	
+	
+	private void build() {
+		
+		size = map.size();
+		modifications = map.modifications;
+		stale = false;
+		
+		if (order == null || order.length < size) {
+			order = new int[size];
+			memberships = new double[size];
+		}
+		
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		
+		sort(order, map.values, size);
+		
+		for (int i = 0; i < size; i++)
+			memberships[i] = map.valueAt(order[i]);
+	}
+	
+	
+	
+	/**
+	 * Called by the map after the membership value of an entry has changed.
+	 */
+	void changed(int entry, double previous, double value) {
+		
+		if (follow())
+			move(entry, previous, entry, value);
+	}
+	
+	
+	
+	/**
+	 * Called by the map after an entry has been added.
+	 */
+	void added(int entry, double value) {
+		
+		if (!follow())
+			return;
+		
+		if (size == order.length) {
+			int capacity = order.length + (order.length >> 1) + 1;
+			order = Arrays.copyOf(order, capacity);
+			memberships = Arrays.copyOf(memberships, capacity);
+		}
+		
+		insert(entry, value);
+	}
+	
+	
+	
+	/**
+	 * Called by the map after the entry has been removed and the last entry has been moved into its place.
+	 */
+	void removed(int entry, double removed, int last) {
+		
+		if (!follow())
+			return;
+		
+		int position = positionOf(entry, removed);
+		
+		if (position < 0)
+			return;
+		
+		delete(position);
+		
+		if (entry != last)
+			move(last, map.valueAt(entry), entry, map.valueAt(entry));
+	}
+	
+	
+	
+	/**
+	 * Called by the map after a bulk change.
+	 */
+	void rebuild() {
+		
+		stale = true;
+	}
+	
+	
+	
+	/**
+	 * Returns whether the change just made to the map is to be applied to the index. Otherwise the index is marked
+	 * stale.
+	 */
+	private boolean follow() {
+		
+		if (stale || modifications != map.modifications - 1 || ++pending > PENDING_LIMIT) {
+			stale = true;
+			return false;
+		}
+		
+		modifications = map.modifications;
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Moves the member stored with the entry index and membership value to its position for the new entry index and
+	 * membership value.
+	 */
+	private void move(int entry, double membership, int newEntry, double newMembership) {
+		
+		int position = positionOf(entry, membership);
+		
+		if (position >= 0) {
+			delete(position);
+			insert(newEntry, newMembership);
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns whether the member (membership, entry) comes before the member at the given position.
+	 */
+	private boolean precedes(double membership, int entry, int position) {
+		
+		return membership > memberships[position] || (membership == memberships[position] && entry < order[position]);
+	}
+	
+	
+	
+	/**
+	 * Returns the first position whose member does not come before (membership, entry).
+	 */
+	private int lowerBound(double membership, int entry) {
+		
+		int low = 0, high = size;
+		
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			
+			if (precedes(membership, entry, middle))
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		
+		return low;
+	}
+	
+	
+	
+	/**
+	 * Returns the position of the member, or -1 after marking the index stale if it is not found where expected, which
+	 * only happens with NaN membership values.
+	 */
+	private int positionOf(int entry, double membership) {
+		
+		int low = 0, high = size;
+		
+		// first position which (membership, entry) does not follow
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			
+			if (memberships[middle] > membership || (memberships[middle] == membership && order[middle] < entry))
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		
+		if (low < size && order[low] == entry)
+			return low;
+		
+		stale = true;
+		return -1;
+	}
+	
+	
+	
+	private void insert(int entry, double membership) {
+		
+		int position = lowerBound(membership, entry);
+		
+		System.arraycopy(order, position, order, position + 1, size - position);
+		System.arraycopy(memberships, position, memberships, position + 1, size - position);
+		order[position] = entry;
+		memberships[position] = membership;
+		++size;
+	}
+	
+	
+	
+	private void delete(int position) {
+		
+		--size;
+		System.arraycopy(order, position + 1, order, position, size - position);
+		System.arraycopy(memberships, position + 1, memberships, position, size - position);
+	}
+	
+	
+	
+	/**
+	 * Sorts the entry indices by decreasing value. It is a bottom up merge sort, so entries with equal values keep
+	 * their order.
+	 */
+	static void sort(int[] order, double[] values, int size) {
+		
+		int[] source = order, target = new int[size];
+		
+		for (int width = 1; width < size; width <<= 1) {
+			for (int from = 0; from < size; from += width << 1) {
+				int middle = Math.min(from + width, size), to = Math.min(from + (width << 1), size);
+				int left = from, right = middle;
+				
+				for (int i = from; i < to; i++) {
+					if (right >= to || (left < middle && values[source[left]] >= values[source[right]]))
+						target[i] = source[left++];
+					else
+						target[i] = source[right++];
+				}
+			}
+			
+			int[] merged = target;
+			target = source;
+			source = merged;
+		}
+		
+		if (source != order)
+			System.arraycopy(source, 0, order, 0, size);
+	}
+	
+	
+	
+	/**
+	 * Returns the number of members whose membership value is at least the threshold, or greater than the threshold
+	 * if strict is true. These are the first members of the index.
+	 */
+	int countAbove(double threshold, boolean strict) {
+		
+		int low = 0, high = size;
+		
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			double membership = memberships[middle];
+			
+			if (strict ? membership > threshold : membership >= threshold)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		
+		return low;
+	}
+	
+	
+	
+	/**
+	 * Returns a crisp set of the first count members of the index.
+	 */
+	HashSet<Element> first(int count) {
+		
+		HashSet<Element> crisp = new HashSet<Element>(count * 4 / 3 + 1);
+		
+		for (int i = 0; i < count; i++)
+			crisp.add(map.keyAt(order[i]));
+		
+		return crisp;
+	}
+	
+	
+	
+	/**
+	 * Copies the first count members of the index into the array.
+	 */
+	void first(Element[] destination, int count) {
+		
+		for (int i = 0; i < count; i++)
+			destination[i] = map.keyAt(order[i]);
+	}
+	
+	
+	
+	int size() {
+		
+		return size;
+	}
+	
+	
+	
+	/**
+	 * Returns the member having the highest membership value, or the first one of them if there are several.
+	 */
+	Element highest() {
+		
+		return (size > 0) ? map.keyAt(order[0]) : null;
+	}
+	
+	
+	
+	double highestMembership() {
+		
+		return (size > 0) ? memberships[0] : 0;
+	}
+	
+}
@@ -0,0 +1,150 @@
+package fuzzysystem;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+
+/**
+ * <p>
+ * ParallelChunks runs a loop over the entries of a set in parallel on the common {@linkplain ForkJoinPool}. The
+ * entries 0 to size - 1 are divided into chunks of {@linkplain #CHUNK_SIZE} entries and every chunk is processed by a
+ * single task. A chunk is identified by its index, so a task can store its partial result in an array at that index
+ * and the partial results can be combined in the order of the entries afterwards.
+ * </p>
+ * 
+ * <p>
+ * Below {@linkplain #THRESHOLD} entries the parallel operations of this package are performed sequentially, as the
+ * cost of the tasks would exceed the gain.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ */
+final class ParallelChunks {
+	
+	/**
+	 * Number of entries below which the operations are not parallelized.
+	 */
+	static final int THRESHOLD = 1 << 15;
+	
+	/**
+	 * Number of entries processed by a single task.
+	 */
+	static final int CHUNK_SIZE = 1 << 12;
+	
+	
+	
+	/**
+	 * Action performed on a chunk of entries.
+	 */
+	interface ChunkAction {
+		
+		/**
+		 * Processes the entries from (inclusive) to (exclusive) of the chunk.
+		 */
+		void apply(int chunk, int from, int to);
+	}
+	
+	
+	
+	private ParallelChunks() {
+	}
+	
+	
+	
+	/**
+	 * Returns the number of chunks of the given number of entries.
+	 */
+	static int chunkCount(int size) {
+		
+		return chunkCount(size, CHUNK_SIZE);
+	}
+	
+	
+	
+	/**
+	 * Returns the number of chunks of the given number of entries when every chunk has chunkSize entries.
+	 */
+	static int chunkCount(int size, int chunkSize) {
+		
+		return (int) ((size + (long) chunkSize - 1) / chunkSize);
+	}
+	
+	
+	
+	/**
+	 * Returns whether an operation over the given number of entries should be performed in parallel.
+	 */
+	static boolean parallel(int size) {
+		
+		return size >= THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+	}
+	
+	
+	
+	/**
+	 * Applies the action on every chunk of the given number of entries and waits for all of them to complete.
+	 */
+	static void forEachChunk(int size, ChunkAction action) {
+		
+		forEachChunk(size, CHUNK_SIZE, action);
+	}
+	
+	
+	
+	/**
+	 * Applies the action on every chunk of chunkSize entries and waits for all of them to complete. It is used when
+	 * processing a single entry is expensive, like a row of a relation.
+	 */
+	static void forEachChunk(int size, int chunkSize, ChunkAction action) {
+		
+		if (size > 0)
+			ForkJoinPool.commonPool().invoke(new ChunkTask(size, chunkSize, action, 0, chunkCount(size, chunkSize)));
+	}
+	
+	
+	
+	/**
+	 * Task processing the chunks from (inclusive) to (exclusive). It is split in halves until a single chunk is left.
+	 */
+	private static final class ChunkTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = -2318906454215638830L;
+		
+		private final int size;
+		
+		private final int chunkSize;
+		
+		private final ChunkAction action;
+		
+		private final int from;
+		
+		private final int to;
+		
+		
+		
+		ChunkTask(int size, int chunkSize, ChunkAction action, int from, int to) {
+			this.size = size;
+			this.chunkSize = chunkSize;
+			this.action = action;
+			this.from = from;
+			this.to = to;
+		}
+		
+		
+		
+		@Override
+		protected void compute() {
+			
+			if (to - from == 1) {
+				int start = from * chunkSize;
+				action.apply(from, start, Math.min(start + chunkSize, size));
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			invokeAll(new ChunkTask(size, chunkSize, action, from, middle), new ChunkTask(size, chunkSize, action, middle, to));
+		}
+	}
+	
+}
@@ -0,0 +1,554 @@
+package fuzzysystem;
+
+import java.util.Arrays;
+
+
+
+/**
+ * <p>
+ * SparseDiscreteFuzzySet is a discrete fuzzy set over a {@linkplain Universe} which stores only its support, that is
+ * the elements having membership value greater than 0. It is meant for very large universes where every set contains
+ * only a small part of the universe.
+ * </p>
+ * 
+ * <p>
+ * The support is a bitset indexed by element id. The membership values of the support are kept in a compact array in
+ * the order of the ids, so the value of the k-th set bit is at index k. A rank table holding the number of set bits
+ * before every word of the bitset locates the value of any member in constant time.
+ * </p>
+ * 
+ * <p>
+ * Union and intersection first combine the bitsets word by word with OR and AND, and then compute the membership values
+ * only at the surviving positions. Elements whose membership value becomes 0 are never stored, so the set never needs
+ * to be cleaned as {@linkplain DiscreteFuzzySet#clean()} does. Instances are immutable, every operation creates a new
+ * set.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see Universe
+ *      DenseDiscreteFuzzySet
+ *      DiscreteFuzzySet
+ */
+public final class SparseDiscreteFuzzySet {
+	
+	private final Universe universe;
+	
+	/**
+	 * Bitset of the support. Bit i of word w is set if the element with id 64 * w + i belongs to the support.
+	 */
+	private final long[] words;
+	
+	/**
+	 * Number of set bits in all the words before the word at the same index.
+	 */
+	private final int[] ranks;
+	
+	/**
+	 * Membership values of the support in the order of the ids.
+	 */
+	private final double[] values;
+	
+	
+	
+	private SparseDiscreteFuzzySet(Universe universe, long[] words, double[] values) {
+		this.universe = universe;
+		this.words = words;
+		this.values = values;
+		this.ranks = new int[words.length];
+		
+		int rank = 0;
+		
+		for (int w = 0; w < words.length; w++) {
+			ranks[w] = rank;
+			rank += Long.bitCount(words[w]);
+		}
+	}
+	
+	
+	
+	/**
+	 * Creates an empty set over the given universe.
+	 */
+	public SparseDiscreteFuzzySet(Universe universe) {
+		this(universe, new long[0], new double[0]);
+	}
+	
+	
+	
+	/**
+	 * Creates a new sparse set containing the members of the given set which have membership value greater than 0.
+	 * Members which do not belong to the universe are added to it.
+	 * 
+	 * @param fuzzySet
+	 *            Set to convert
+	 * @param universe
+	 *            Universe of the new set
+	 * @return New sparse set
+	 */
+	public static SparseDiscreteFuzzySet from(DiscreteFuzzySet fuzzySet, Universe universe) {
+		
+		ElementMembershipMap map = fuzzySet.map();
+		int[] ids = new int[map.size()];
+		
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = (map.valueAt(i) > 0) ? universe.add(map.keyAt(i)) : -1;
+		
+		long[] words = new long[wordCount(universe.size())];
+		
+		for (int id : ids)
+			if (id >= 0)
+				words[id >>> 6] |= 1L << id;
+		
+		SparseDiscreteFuzzySet sparseSet = new SparseDiscreteFuzzySet(universe, words, new double[countBits(words)]);
+		
+		for (int i = 0; i < ids.length; i++)
+			if (ids[i] >= 0)
+				sparseSet.values[sparseSet.rank(ids[i])] = map.valueAt(i);
+		
+		return sparseSet;
+	}
+	
+	
+	
+	/**
+	 * Creates a new sparse set containing the elements of the given dense set which have membership value greater than
+	 * 0.
+	 * 
+	 * @param fuzzySet
+	 *            Set to convert
+	 * @return New sparse set over the universe of fuzzySet
+	 */
+	public static SparseDiscreteFuzzySet from(DenseDiscreteFuzzySet fuzzySet) {
+		
+		double[] memberships = fuzzySet.memberships();
+		long[] words = new long[wordCount(memberships.length)];
+		
+		for (int id = 0; id < memberships.length; id++)
+			if (memberships[id] > 0)
+				words[id >>> 6] |= 1L << id;
+		
+		double[] values = new double[countBits(words)];
+		
+		for (int id = 0, k = 0; id < memberships.length; id++)
+			if (memberships[id] > 0)
+				values[k++] = memberships[id];
+		
+		return new SparseDiscreteFuzzySet(fuzzySet.getUniverse(), words, values);
+	}
+	
+	
+	
+	private static int wordCount(int bits) {
+		
+		return (bits + 63) >>> 6;
+	}
+	
+	
+	
+	private static int countBits(long[] words) {
+		
+		int count = 0;
+		
+		for (long word : words)
+			count += Long.bitCount(word);
+		
+		return count;
+	}
+	
+	
+	
+	/**
+	 * Returns the index in {@linkplain #values} of the member with the given id. The id must belong to the support.
+	 */
+	private int rank(int id) {
+		
+		int w = id >>> 6;
+		return ranks[w] + Long.bitCount(words[w] & ((1L << id) - 1));
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of this set.
+	 * 
+	 * @return Universe of this set
+	 */
+	public Universe getUniverse() {
+		
+		return universe;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of elements in the support of this set.
+	 * 
+	 * @return Number of elements having membership value greater than 0
+	 */
+	public int size() {
+		
+		return values.length;
+	}
+	
+	
+	
+	/**
+	 * Determines whether the element with the given id has membership value greater than 0.
+	 * 
+	 * @param id
+	 *            Id of the element in the universe
+	 * @return true - If the element belongs to the support</br>
+	 *         false - Otherwise
+	 */
+	public boolean belongs(int id) {
+		
+		int w = id >>> 6;
+		return w < words.length && (words[w] & (1L << id)) != 0;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the element with the given id.
+	 * 
+	 * @param id
+	 *            Id of the element in the universe
+	 * @return Membership value of the element
+	 */
+	public double getMembershipValue(int id) {
+		
+		return belongs(id) ? values[rank(id)] : 0.0;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the given element. Elements which do not belong to the universe have 0 membership
+	 * value.
+	 * 
+	 * @param element
+	 *            Element whose membership value is required
+	 * @return Membership value of the element
+	 */
+	public double getMembershipValue(Element element) {
+		
+		int id = universe.indexOf(element);
+		return (id < 0) ? 0.0 : getMembershipValue(id);
+	}
+	
+	
+	
+	private void checkUniverse(SparseDiscreteFuzzySet fuzzySet) {
+		
+		if (fuzzySet.universe != universe)
+			throw new IllegalArgumentException("Sparse fuzzy sets must belong to the same universe.");
+	}
+	
+	
+	
+	/**
+	 * Performs union of this set with the given set. The support of the union is the OR of both bitsets and the
+	 * membership value of every element is the maximum of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom union is to be performed. It must belong to the same universe.
+	 * @return New set containing union of both sets
+	 */
+	public SparseDiscreteFuzzySet union(SparseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		long[] a = words, b = fuzzySet.words;
+		long[] result = new long[Math.max(a.length, b.length)];
+		
+		for (int w = 0; w < result.length; w++)
+			result[w] = ((w < a.length) ? a[w] : 0) | ((w < b.length) ? b[w] : 0);
+		
+		double[] resultValues = new double[countBits(result)];
+		
+		// both value arrays are in id order, so they are merged with one cursor each
+		for (int w = 0, i = 0, j = 0, k = 0; w < result.length; w++) {
+			long wa = (w < a.length) ? a[w] : 0, wb = (w < b.length) ? b[w] : 0, word = result[w];
+			
+			while (word != 0) {
+				long bit = word & -word;
+				double va = ((wa & bit) != 0) ? values[i++] : 0, vb = ((wb & bit) != 0) ? fuzzySet.values[j++] : 0;
+				resultValues[k++] = Math.max(va, vb);
+				word ^= bit;
+			}
+		}
+		
+		return new SparseDiscreteFuzzySet(universe, result, resultValues);
+	}
+	
+	
+	
+	/**
+	 * Performs intersection of this set with the given set. The support of the intersection is the AND of both bitsets
+	 * and the membership value of every element is the minimum of its membership values in both sets.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom intersection is to be performed. It must belong to the same universe.
+	 * @return New set containing intersection of both sets
+	 */
+	public SparseDiscreteFuzzySet intersection(SparseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		long[] result = and(fuzzySet);
+		double[] resultValues = new double[countBits(result)];
+		
+		for (int w = 0, k = 0; w < result.length; w++) {
+			long word = result[w];
+			
+			while (word != 0) {
+				int id = (w << 6) | Long.numberOfTrailingZeros(word);
+				resultValues[k++] = Math.min(values[rank(id)], fuzzySet.values[fuzzySet.rank(id)]);
+				word &= word - 1;
+			}
+		}
+		
+		return new SparseDiscreteFuzzySet(universe, result, resultValues);
+	}
+	
+	
+	
+	/**
+	 * Performs product of this set with the given set. The support of the product is the AND of both bitsets and the
+	 * membership value of every element is the product of its membership values in both sets. Products which underflow
+	 * to 0 are removed from the support.
+	 * 
+	 * @param fuzzySet
+	 *            Set with whom product is to be performed. It must belong to the same universe.
+	 * @return New set containing product of both sets
+	 */
+	public SparseDiscreteFuzzySet product(SparseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		long[] result = and(fuzzySet);
+		double[] resultValues = new double[countBits(result)];
+		int k = 0;
+		
+		for (int w = 0; w < result.length; w++) {
+			long word = result[w];
+			
+			while (word != 0) {
+				long bit = word & -word;
+				int id = (w << 6) | Long.numberOfTrailingZeros(word);
+				double value = values[rank(id)] * fuzzySet.values[fuzzySet.rank(id)];
+				
+				if (value > 0)
+					resultValues[k++] = value;
+				else
+					result[w] &= ~bit;
+				
+				word ^= bit;
+			}
+		}
+		
+		if (k < resultValues.length)
+			resultValues = Arrays.copyOf(resultValues, k);
+		
+		return new SparseDiscreteFuzzySet(universe, result, resultValues);
+	}
+	
+	
+	
+	private long[] and(SparseDiscreteFuzzySet fuzzySet) {
+		
+		long[] result = new long[Math.min(words.length, fuzzySet.words.length)];
+		
+		for (int w = 0; w < result.length; w++)
+			result[w] = words[w] & fuzzySet.words[w];
+		
+		return result;
+	}
+	
+	
+	
+	/**
+	 * Performs the power of the set with a numerical value. The membership value of every member is raised to the given
+	 * power. Values which underflow to 0 are removed from the support.
+	 * 
+	 * @param power
+	 *            Power factor
+	 * @return New set with membership values raised to the power.
+	 */
+	public SparseDiscreteFuzzySet power(float power) {
+		
+		long[] result = words.clone();
+		double[] resultValues = new double[values.length];
+		int k = 0, i = 0;
+		
+		for (int w = 0; w < result.length; w++) {
+			long word = result[w];
+			
+			while (word != 0) {
+				long bit = word & -word;
+				double value = Math.pow(values[i++], power);
+				
+				if (value > 0)
+					resultValues[k++] = value;
+				else
+					result[w] &= ~bit;
+				
+				word ^= bit;
+			}
+		}
+		
+		if (k < resultValues.length)
+			resultValues = Arrays.copyOf(resultValues, k);
+		
+		return new SparseDiscreteFuzzySet(universe, result, resultValues);
+	}
+	
+	
+	
+	/**
+	 * Performs complement of this set over the whole universe. Every element outside the support has membership value 1
+	 * in the complement, so the complement is returned as a dense set.
+	 * 
+	 * @return New dense set containing complement of this set
+	 */
+	public DenseDiscreteFuzzySet complement() {
+		
+		return toDense().complement();
+	}
+	
+	
+	
+	/**
+	 * Returns the sum of membership values of the support.
+	 * 
+	 * @return Cardinal value of this set
+	 */
+	public double cardinalValue() {
+		
+		double sum = 0;
+		
+		for (double value : values)
+			sum += value;
+		
+		return sum;
+	}
+	
+	
+	
+	/**
+	 * Returns the element having maximum membership value.
+	 * 
+	 * @return Element with maximum membership value or null if the set is empty
+	 */
+	public Element height() {
+		
+		double maxMembership = 0;
+		int maxId = -1;
+		
+		for (int w = 0, i = 0; w < words.length; w++) {
+			long word = words[w];
+			
+			while (word != 0) {
+				if (values[i] > maxMembership) {
+					maxMembership = values[i];
+					maxId = (w << 6) | Long.numberOfTrailingZeros(word);
+				}
+				++i;
+				word &= word - 1;
+			}
+		}
+		
+		return (maxId < 0) ? null : universe.get(maxId);
+	}
+	
+	
+	
+	/**
+	 * Determines whether both sets have the same support and the same membership values.
+	 * 
+	 * @param fuzzySet
+	 *            Set to compare. It must belong to the same universe.
+	 * @return true - If both sets are equal</br>
+	 *         false - Otherwise
+	 */
+	public boolean equalsFuzzySet(SparseDiscreteFuzzySet fuzzySet) {
+		
+		checkUniverse(fuzzySet);
+		
+		if (values.length != fuzzySet.values.length)
+			return false;
+		
+		long[] a = words, b = fuzzySet.words;
+		
+		for (int w = 0, n = Math.max(a.length, b.length); w < n; w++)
+			if (((w < a.length) ? a[w] : 0) != ((w < b.length) ? b[w] : 0))
+				return false;
+		
+		for (int i = 0; i < values.length; i++)
+			if (values[i] != fuzzySet.values[i])
+				return false;
+		
+		return true;
+	}
+	
+	
+	
+	/**
+	 * Creates a dense set equal to this set.
+	 * 
+	 * @return New dense set over the same universe
+	 */
+	public DenseDiscreteFuzzySet toDense() {
+		
+		DenseDiscreteFuzzySet denseSet = new DenseDiscreteFuzzySet(universe);
+		double[] memberships = denseSet.memberships();
+		
+		for (int w = 0, i = 0; w < words.length; w++) {
+			long word = words[w];
+			
+			while (word != 0) {
+				memberships[(w << 6) | Long.numberOfTrailingZeros(word)] = values[i++];
+				word &= word - 1;
+			}
+		}
+		
+		return denseSet;
+	}
+	
+	
+	
+	/**
+	 * Creates a {@linkplain DiscreteFuzzySet} containing the support of this set.
+	 * 
+	 * @return New discrete fuzzy set equal to this set
+	 */
+	public DiscreteFuzzySet toDiscreteFuzzySet() {
+		
+		DiscreteFuzzySet fuzzySet = new DiscreteFuzzySet(values.length);
+		ElementMembershipMap map = fuzzySet.map();
+		Element[] elements = universe.elements();
+		
+		for (int w = 0, i = 0; w < words.length; w++) {
+			long word = words[w];
+			
+			while (word != 0) {
+				map.put(elements[(w << 6) | Long.numberOfTrailingZeros(word)], values[i++]);
+				word &= word - 1;
+			}
+		}
+		
+		return fuzzySet;
+	}
+	
+	
+	
+	/**
+	 * Returns the string representation of the set in the same format as {@linkplain DiscreteFuzzySet#toString()}.
+	 */
+	@Override
+	public String toString() {
+		
+		return toDiscreteFuzzySet().toString();
+	}
+	
+}
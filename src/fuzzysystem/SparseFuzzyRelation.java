@@ -0,0 +1,688 @@
+package fuzzysystem;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+import fuzzysystem.monitoring.FuzzyEvents;
+import fuzzysystem.monitoring.SetOperationEvent;
+
+
+
+/**
+ * <p>
+ * SparseFuzzyRelation is a fuzzy relation between the elements of two {@linkplain Universe} instances which stores
+ * only the pairs having membership value greater than 0. It uses the compressed sparse row layout: the pairs of a row
+ * are stored one after the other, ordered by column, and the pairs of row i start at {@code rowStart[i]}. A stored
+ * pair takes 12 bytes, so relations connecting millions of elements can be kept in memory as long as most of the pairs
+ * have 0 membership value.
+ * </p>
+ * 
+ * <p>
+ * A relation is immutable and is created with a {@linkplain Builder} or from a {@linkplain DiscreteFuzzyRelation}. The
+ * number of rows and columns is the size of the universes when the relation is built.
+ * </p>
+ * 
+ * <p>
+ * The composition with another relation visits only the stored pairs. For every row it gathers the pairs of the rows
+ * of the other relation which are related to it, like the sparse matrix multiplication of Gustavson. The rows are
+ * divided among the threads of the common {@linkplain java.util.concurrent.ForkJoinPool} when the relations are
+ * large.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DiscreteFuzzyRelation
+ */
+public final class SparseFuzzyRelation {
+	
+	private final Universe rowUniverse;
+	
+	private final Universe columnUniverse;
+	
+	private final int rows;
+	
+	private final int columns;
+	
+	/**
+	 * The pairs of row i are stored at the indices rowStart[i] to rowStart[i + 1] - 1. Its length is rows + 1.
+	 */
+	private final int[] rowStart;
+	
+	/**
+	 * Column of every stored pair, increasing within a row.
+	 */
+	private final int[] columnIds;
+	
+	/**
+	 * Membership value of every stored pair.
+	 */
+	private final double[] values;
+	
+	
+	
+	private SparseFuzzyRelation(Universe rowUniverse, Universe columnUniverse, int rows, int columns, int[] rowStart, int[] columnIds, double[] values) {
+		this.rowUniverse = rowUniverse;
+		this.columnUniverse = columnUniverse;
+		this.rows = rows;
+		this.columns = columns;
+		this.rowStart = rowStart;
+		this.columnIds = columnIds;
+		this.values = values;
+	}
+	
+	
+	
+	/**
+	 * Creates a sparse relation having the same membership values as the given dense relation.
+	 * 
+	 * @param relation
+	 *            Relation to convert
+	 * @return New sparse relation equal to relation
+	 */
+	public static SparseFuzzyRelation from(DiscreteFuzzyRelation relation) {
+		
+		double[] memberships = relation.memberships();
+		int rows = relation.rowCount(), columns = relation.columnCount(), count = 0;
+		
+		for (double membership : memberships)
+			if (membership > 0)
+				++count;
+		
+		int[] rowStart = new int[rows + 1], columnIds = new int[count];
+		double[] values = new double[count];
+		count = 0;
+		
+		for (int i = 0, pair = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++, pair++) {
+				if (memberships[pair] > 0) {
+					columnIds[count] = j;
+					values[count++] = memberships[pair];
+				}
+			}
+			
+			rowStart[i + 1] = count;
+		}
+		
+		return new SparseFuzzyRelation(relation.getRowUniverse(), relation.getColumnUniverse(), rows, columns, rowStart, columnIds, values);
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of the rows.
+	 */
+	public Universe getRowUniverse() {
+		
+		return rowUniverse;
+	}
+	
+	
+	
+	/**
+	 * Getter method of the universe of the columns.
+	 */
+	public Universe getColumnUniverse() {
+		
+		return columnUniverse;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of rows, the size of the row universe when the relation was built.
+	 */
+	public int rowCount() {
+		
+		return rows;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of columns, the size of the column universe when the relation was built.
+	 */
+	public int columnCount() {
+		
+		return columns;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of pairs having membership value greater than 0.
+	 */
+	public int nonZeroCount() {
+		
+		return values.length;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the pair of elements with the given ids. The column is found by binary search in
+	 * the row.
+	 * 
+	 * @param row
+	 *            Id of the element in the row universe
+	 * @param column
+	 *            Id of the element in the column universe
+	 * @return Membership value of the pair
+	 */
+	public double getMembershipValue(int row, int column) {
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			throw new IndexOutOfBoundsException("Pair (" + row + ", " + column + ") is not in relation of " + rows + " x " + columns);
+		
+		int index = Arrays.binarySearch(columnIds, rowStart[row], rowStart[row + 1], column);
+		
+		return (index >= 0) ? values[index] : 0.0;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the pair of elements. Pairs whose elements do not belong to the relation have 0
+	 * membership value.
+	 * 
+	 * @param x
+	 *            Element of the row universe
+	 * @param y
+	 *            Element of the column universe
+	 * @return Membership value of the pair
+	 */
+	public double getMembershipValue(Element x, Element y) {
+		
+		int row = rowUniverse.indexOf(x), column = columnUniverse.indexOf(y);
+		
+		if (row < 0 || row >= rows || column < 0 || column >= columns)
+			return 0.0;
+		
+		return getMembershipValue(row, column);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-min composition of this relation with the given one. If this relation relates X to Y and the
+	 * given one relates Y to Z, the result relates X to Z with</br>
+	 * </br>
+	 * membership value of (x, z) = maximum over y of the minimum of membership values of (x, y) and (y, z)
+	 * 
+	 * @param relation
+	 *            Relation whose row universe is the column universe of this relation
+	 * @return New relation between the rows of this relation and the columns of the given one
+	 * @throws IllegalArgumentException
+	 *             If the universes do not match
+	 */
+	public SparseFuzzyRelation compose(SparseFuzzyRelation relation) {
+		
+		return compose(relation, false);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-product composition of this relation with the given one. It is the same as
+	 * {@linkplain #compose(SparseFuzzyRelation)} except that the membership values of (x, y) and (y, z) are multiplied
+	 * instead of taking their minimum.
+	 * 
+	 * @param relation
+	 *            Relation whose row universe is the column universe of this relation
+	 * @return New relation between the rows of this relation and the columns of the given one
+	 * @throws IllegalArgumentException
+	 *             If the universes do not match
+	 */
+	public SparseFuzzyRelation composeMaxProduct(SparseFuzzyRelation relation) {
+		
+		return compose(relation, true);
+	}
+	
+	
+	
+	private SparseFuzzyRelation compose(SparseFuzzyRelation relation, boolean product) {
+		
+		if (relation.rowUniverse != columnUniverse || relation.rows != columns)
+			throw new IllegalArgumentException("Row universe of the relation must be the column universe of this relation.");
+		
+		SetOperationEvent event = new SetOperationEvent();
+		event.begin();
+		
+		// the rows are divided in parts, each of them is composed into its own arrays by a single task
+		boolean parallel = ParallelChunks.parallel(values.length + relation.values.length);
+		int partCount = parallel ? ForkJoinPool.getCommonPoolParallelism() * 4 : 1;
+		int partSize = Math.max(1, (rows + partCount - 1) / partCount);
+		RowPart[] parts = new RowPart[ParallelChunks.chunkCount(rows, partSize)];
+		
+		if (parallel)
+			ParallelChunks.forEachChunk(rows, partSize, (part, from, to) -> parts[part] = composeRows(relation, from, to, product));
+		else
+			for (int part = 0; part < parts.length; part++)
+				parts[part] = composeRows(relation, part * partSize, Math.min((part + 1) * partSize, rows), product);
+		
+		long total = 0;
+		
+		for (RowPart part : parts)
+			total += part.count;
+		
+		if (total > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Composition has too many pairs : " + total);
+		
+		int[] rowStart = new int[rows + 1], columnIds = new int[(int) total];
+		double[] values = new double[(int) total];
+		int offset = 0;
+		
+		for (RowPart part : parts) {
+			System.arraycopy(part.columnIds, 0, columnIds, offset, part.count);
+			System.arraycopy(part.values, 0, values, offset, part.count);
+			
+			for (int i = 0; i < part.rowEnd.length; i++)
+				rowStart[part.from + i + 1] = offset + part.rowEnd[i];
+			
+			offset += part.count;
+		}
+		
+		FuzzyEvents.setOperation(event, product ? "sparseMaxProductComposition" : "sparseMaxMinComposition", this.values.length, relation.values.length, values.length);
+		
+		return new SparseFuzzyRelation(rowUniverse, relation.columnUniverse, rows, relation.columns, rowStart, columnIds, values);
+	}
+	
+	
+	
+	/**
+	 * Pairs of the rows from (inclusive) to (exclusive) of a composition. The pairs of row from + i end at rowEnd[i].
+	 */
+	private static final class RowPart {
+		
+		int from;
+		
+		int[] rowEnd;
+		
+		int[] columnIds = new int[16];
+		
+		double[] values = new double[16];
+		
+		int count;
+		
+		
+		
+		void add(int column, double value) {
+			
+			if (count == columnIds.length) {
+				int capacity = count + (count >> 1);
+				columnIds = Arrays.copyOf(columnIds, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			
+			columnIds[count] = column;
+			values[count++] = value;
+		}
+	}
+	
+	
+	
+	/**
+	 * Composes the rows from (inclusive) to (exclusive) of this relation with the given relation. The maxima of a row
+	 * are gathered in an array indexed by column, and the columns touched by the row are remembered, so that only they
+	 * are visited, sorted and reset afterwards.
+	 */
+	private RowPart composeRows(SparseFuzzyRelation relation, int from, int to, boolean product) {
+		
+		RowPart part = new RowPart();
+		part.from = from;
+		part.rowEnd = new int[to - from];
+		
+		double[] maxima = new double[relation.columns];
+		int[] touched = new int[16];
+		
+		for (int i = from; i < to; i++) {
+			int touchedCount = 0;
+			
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+				int k = columnIds[p];
+				double a = values[p];
+				
+				for (int q = relation.rowStart[k]; q < relation.rowStart[k + 1]; q++) {
+					int j = relation.columnIds[q];
+					double b = relation.values[q];
+					double value = product ? a * b : (a < b) ? a : b;
+					
+					if (value <= maxima[j])
+						continue;
+					
+					if (maxima[j] == 0) {
+						if (touchedCount == touched.length)
+							touched = Arrays.copyOf(touched, touchedCount * 2);
+						
+						touched[touchedCount++] = j;
+					}
+					
+					maxima[j] = value;
+				}
+			}
+			
+			Arrays.sort(touched, 0, touchedCount);
+			
+			for (int t = 0; t < touchedCount; t++) {
+				int j = touched[t];
+				part.add(j, maxima[j]);
+				maxima[j] = 0;
+			}
+			
+			part.rowEnd[i - from] = part.count;
+		}
+		
+		return part;
+	}
+	
+	
+	
+	/**
+	 * Performs the max-min composition of a set with this relation. If the set is over X and this relation relates X
+	 * to Y, the result is a set over Y with</br>
+	 * </br>
+	 * membership value of y = maximum over x of the minimum of membership values of x and (x, y)
+	 * </br>
+	 * Only the rows of the members of the set are visited. Members which do not belong to the row universe are ignored,
+	 * as they are not related to any element.
+	 * 
+	 * @param fuzzySet
+	 *            Set of elements of the row universe
+	 * @return New set containing the elements of the column universe having membership value greater than 0
+	 */
+	public DiscreteFuzzySet compose(DiscreteFuzzySet fuzzySet) {
+		
+		return composeSet(fuzzySet, false);
+	}
+	
+	
+	
+	/**
+	 * Performs the max-product composition of a set with this relation. It is the same as
+	 * {@linkplain #compose(DiscreteFuzzySet)} except that the membership values are multiplied instead of taking their
+	 * minimum.
+	 * 
+	 * @param fuzzySet
+	 *            Set of elements of the row universe
+	 * @return New set containing the elements of the column universe having membership value greater than 0
+	 */
+	public DiscreteFuzzySet composeMaxProduct(DiscreteFuzzySet fuzzySet) {
+		
+		return composeSet(fuzzySet, true);
+	}
+	
+	
+	
+	private DiscreteFuzzySet composeSet(DiscreteFuzzySet fuzzySet, boolean product) {
+		
+		ElementMembershipMap map = fuzzySet.map();
+		DiscreteFuzzySet result = new DiscreteFuzzySet();
+		ElementMembershipMap resultMap = result.map();
+		Element[] columnElements = columnUniverse.elements();
+		
+		for (int m = 0; m < map.size(); m++) {
+			int i = rowUniverse.indexOf(map.keyAt(m));
+			double a = map.valueAt(m);
+			
+			if (i < 0 || i >= rows || a == 0)
+				continue;
+			
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+				double b = values[p];
+				double value = product ? a * b : (a < b) ? a : b;
+				int entry = resultMap.putIfAbsent(columnElements[columnIds[p]], value);
+				
+				if (resultMap.valueAt(entry) < value)
+					resultMap.setValueAt(entry, value);
+			}
+		}
+		
+		return result;
+	}
+	
+	
+	
+	/**
+	 * Returns the projection of this relation on the row universe. The membership value of x is the maximum membership
+	 * value of the pairs (x, y) over all y.
+	 * 
+	 * @return New set over the row universe
+	 */
+	public DenseDiscreteFuzzySet projectRows() {
+		
+		double[] projection = new double[rows];
+		
+		for (int i = 0; i < rows; i++)
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++)
+				if (values[p] > projection[i])
+					projection[i] = values[p];
+		
+		return new DenseDiscreteFuzzySet(rowUniverse, projection);
+	}
+	
+	
+	
+	/**
+	 * Returns the projection of this relation on the column universe. The membership value of y is the maximum
+	 * membership value of the pairs (x, y) over all x.
+	 * 
+	 * @return New set over the column universe
+	 */
+	public DenseDiscreteFuzzySet projectColumns() {
+		
+		double[] projection = new double[columns];
+		
+		for (int p = 0; p < values.length; p++)
+			if (values[p] > projection[columnIds[p]])
+				projection[columnIds[p]] = values[p];
+		
+		return new DenseDiscreteFuzzySet(columnUniverse, projection);
+	}
+	
+	
+	
+	/**
+	 * Returns a dense relation having the same membership values as this relation.
+	 * 
+	 * @return New dense relation equal to this relation
+	 * @throws IllegalArgumentException
+	 *             If the relation has too many pairs to be stored densely
+	 */
+	public DiscreteFuzzyRelation toDense() throws IllegalArgumentException {
+		
+		DiscreteFuzzyRelation relation = new DiscreteFuzzyRelation(rowUniverse, columnUniverse);
+		double[] memberships = relation.memberships();
+		int denseColumns = relation.columnCount();
+		
+		for (int i = 0; i < Math.min(rows, relation.rowCount()); i++)
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++)
+				if (columnIds[p] < denseColumns)
+					memberships[i * denseColumns + columnIds[p]] = values[p];
+		
+		return relation;
+	}
+	
+	
+	
+	/**
+	 * Returns the string representation of the relation in the same format as
+	 * {@linkplain DiscreteFuzzyRelation#toString()}.
+	 */
+	@Override
+	public String toString() {
+		
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("[ ");
+		
+		for (int i = 0; i < rows; i++)
+			for (int p = rowStart[i]; p < rowStart[i + 1]; p++) {
+				buffer.append((buffer.length() == 2) ? "((" : ",((");
+				buffer.append(rowUniverse.get(i)).append(',').append(columnUniverse.get(columnIds[p]));
+				buffer.append("),").append(values[p]).append(')');
+			}
+		
+		buffer.append(" ]");
+		
+		return buffer.toString();
+	}
+	
+	
+	
+	/**
+	 * <p>
+	 * Builder collects the pairs of a {@linkplain SparseFuzzyRelation} in any order. If a pair is given several times,
+	 * the last membership value is kept. Pairs with 0 membership value are not stored. Elements given to
+	 * {@linkplain #add(Element, Element, double)} are added to the universes, so the universes may grow until
+	 * {@linkplain #build()} is called.
+	 * </p>
+	 */
+	public static final class Builder {
+		
+		private final Universe rowUniverse;
+		
+		private final Universe columnUniverse;
+		
+		private int[] pairRows = new int[16];
+		
+		private int[] pairColumns = new int[16];
+		
+		private double[] pairValues = new double[16];
+		
+		private int count;
+		
+		
+		
+		/**
+		 * Creates a builder of a relation between the given universes.
+		 */
+		public Builder(Universe rowUniverse, Universe columnUniverse) {
+			this.rowUniverse = rowUniverse;
+			this.columnUniverse = columnUniverse;
+		}
+		
+		
+		
+		/**
+		 * Sets the membership value of the pair of elements with the given ids.
+		 * 
+		 * @param row
+		 *            Id of the element in the row universe
+		 * @param column
+		 *            Id of the element in the column universe
+		 * @param value
+		 *            Membership value of the pair
+		 * @return This builder
+		 * @throws MembershipOutOfRangeException
+		 *             If the membership value is beyond [0,1] inclusive.
+		 */
+		public Builder add(int row, int column, double value) throws MembershipOutOfRangeException {
+			
+			if (value < 0 || value > 1)
+				throw new MembershipOutOfRangeException();
+			
+			if (row < 0 || row >= rowUniverse.size() || column < 0 || column >= columnUniverse.size())
+				throw new IndexOutOfBoundsException("Pair (" + row + ", " + column + ") is not in the universes.");
+			
+			if (count == pairRows.length) {
+				int capacity = count + (count >> 1);
+				pairRows = Arrays.copyOf(pairRows, capacity);
+				pairColumns = Arrays.copyOf(pairColumns, capacity);
+				pairValues = Arrays.copyOf(pairValues, capacity);
+			}
+			
+			pairRows[count] = row;
+			pairColumns[count] = column;
+			pairValues[count++] = value;
+			
+			return this;
+		}
+		
+		
+		
+		/**
+		 * Sets the membership value of the pair of elements. The elements are added to the universes if they do not
+		 * belong to them.
+		 * 
+		 * @param x
+		 *            Element of the row universe
+		 * @param y
+		 *            Element of the column universe
+		 * @param value
+		 *            Membership value of the pair
+		 * @return This builder
+		 * @throws MembershipOutOfRangeException
+		 *             If the membership value is beyond [0,1] inclusive.
+		 */
+		public Builder add(Element x, Element y, double value) throws MembershipOutOfRangeException {
+			
+			if (value < 0 || value > 1)
+				throw new MembershipOutOfRangeException();
+			
+			return add(rowUniverse.add(x), columnUniverse.add(y), value);
+		}
+		
+		
+		
+		/**
+		 * Creates the relation from the pairs given so far. The pairs are grouped by row with a counting sort and
+		 * sorted by column within every row.
+		 * 
+		 * @return New relation
+		 */
+		public SparseFuzzyRelation build() {
+			
+			int rows = rowUniverse.size(), columns = columnUniverse.size();
+			int[] rowStart = new int[rows + 1];
+			
+			for (int p = 0; p < count; p++)
+				++rowStart[pairRows[p] + 1];
+			
+			for (int i = 0; i < rows; i++)
+				rowStart[i + 1] += rowStart[i];
+			
+			// position of a pair is its column and the order in which it was given, so a repeated pair keeps the last value
+			long[] positions = new long[count];
+			int[] next = Arrays.copyOf(rowStart, rows);
+			
+			for (int p = 0; p < count; p++)
+				positions[next[pairRows[p]]++] = ((long) pairColumns[p] << 32) | p;
+			
+			int[] columnIds = new int[count];
+			double[] values = new double[count];
+			int stored = 0;
+			
+			for (int i = 0; i < rows; i++) {
+				int start = stored;
+				Arrays.sort(positions, rowStart[i], rowStart[i + 1]);
+				
+				for (int q = rowStart[i]; q < rowStart[i + 1]; q++) {
+					int column = (int) (positions[q] >>> 32);
+					double value = pairValues[(int) positions[q]];
+					
+					if (stored > start && columnIds[stored - 1] == column)
+						--stored;
+					
+					columnIds[stored] = column;
+					values[stored++] = value;
+				}
+				
+				// pairs with 0 membership value are removed once the last value of every pair is known
+				int kept = start;
+				
+				for (int q = start; q < stored; q++) {
+					if (values[q] > 0) {
+						columnIds[kept] = columnIds[q];
+						values[kept++] = values[q];
+					}
+				}
+				
+				stored = kept;
+				rowStart[i] = start;
+			}
+			
+			rowStart[rows] = stored;
+			
+			return new SparseFuzzyRelation(rowUniverse, columnUniverse, rows, columns, rowStart, Arrays.copyOf(columnIds, stored), Arrays.copyOf(values, stored));
+		}
+	}
+	
+}
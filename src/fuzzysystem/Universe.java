@@ -0,0 +1,240 @@
+package fuzzysystem;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+
+/**
+ * <p>
+ * Universe is the <i>universal set</i> or universe of discourse of discrete fuzzy sets. It is a crisp collection of
+ * {@linkplain Element} instances in which every element is given a dense integer id. The first element added gets the
+ * id 0, the next one gets 1 and so on. Elements are never removed, so an id never changes.
+ * </p>
+ * 
+ * <p>
+ * Fuzzy sets built over a universe, like {@linkplain DenseDiscreteFuzzySet}, store the membership value of an element
+ * at the index given by its id. Operations between such sets become loops over arrays and need no hashing.
+ * </p>
+ * 
+ * <p>
+ * This class is not thread safe. A universe which is shared between threads must not be modified while it is in use.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DenseDiscreteFuzzySet
+ *      Element
+ */
+public final class Universe implements Iterable<Element> {
+	
+	/**
+	 * Maps the elements to their ids. As elements are never removed, the entry index of an element in the map is its
+	 * id. The value stored with every element is {@linkplain Element#getValue()}, so the values of all the elements are
+	 * available as a primitive array.
+	 */
+	private final ElementMembershipMap map;
+	
+	
+	
+	/**
+	 * Creates an empty universe.
+	 */
+	public Universe() {
+		map = new ElementMembershipMap(20);
+	}
+	
+	
+	
+	/**
+	 * Creates an empty universe which can hold the given number of elements without resizing.
+	 */
+	public Universe(int capacity) {
+		map = new ElementMembershipMap(capacity);
+	}
+	
+	
+	
+	/**
+	 * Creates a universe containing the given elements. The ids follow the order of the elements, duplicates are added
+	 * only once.
+	 */
+	public Universe(Element... elements) {
+		map = new ElementMembershipMap(elements.length);
+		
+		for (Element element : elements)
+			add(element);
+	}
+	
+	
+	
+	/**
+	 * Adds an element to this universe if it is not already present.
+	 * 
+	 * @param element
+	 *            Element to add
+	 * @return Id of the element
+	 */
+	public int add(Element element) {
+		
+		return map.putIfAbsent(element, element.getValue());
+	}
+	
+	
+	
+	/**
+	 * Returns the id of the given element.
+	 * 
+	 * @param element
+	 *            Element whose id is required
+	 * @return Id of the element or -1 if it does not belong to this universe
+	 */
+	public int indexOf(Element element) {
+		
+		return map.indexOf(element);
+	}
+	
+	
+	
+	/**
+	 * Determines whether the element belongs to this universe.
+	 * 
+	 * @param element
+	 *            Element to check
+	 * @return true - If element belongs to this universe</br>
+	 *         false - Otherwise
+	 */
+	public boolean contains(Element element) {
+		
+		return map.containsKey(element);
+	}
+	
+	
+	
+	/**
+	 * Returns the element with the given id.
+	 * 
+	 * @param id
+	 *            Id of the element
+	 * @return Element having the id
+	 * @throws IndexOutOfBoundsException
+	 *             If no element has the id
+	 */
+	public Element get(int id) {
+		
+		if (id < 0 || id >= map.size())
+			throw new IndexOutOfBoundsException("Id " + id + " is not in universe of size " + map.size());
+		
+		return map.keyAt(id);
+	}
+	
+	
+	
+	/**
+	 * Returns {@linkplain Element#getValue()} of the element with the given id without loading the element.
+	 * 
+	 * @param id
+	 *            Id of the element
+	 * @return Value of the element
+	 */
+	public double valueAt(int id) {
+		
+		if (id < 0 || id >= map.size())
+			throw new IndexOutOfBoundsException("Id " + id + " is not in universe of size " + map.size());
+		
+		return map.valueAt(id);
+	}
+	
+	
+	
+	/**
+	 * Returns the number of elements in this universe.
+	 * 
+	 * @return Number of elements
+	 */
+	public int size() {
+		
+		return map.size();
+	}
+	
+	
+	
+	/**
+	 * Returns the elements of this universe in the order of their ids.
+	 * 
+	 * @return New array of the elements
+	 */
+	public Element[] toArray() {
+		
+		Element[] elements = new Element[map.size()];
+		System.arraycopy(map.keys, 0, elements, 0, elements.length);
+		
+		return elements;
+	}
+	
+	
+	
+	/**
+	 * Returns the array holding the elements in the order of their ids. Only the first {@linkplain #size()} entries are
+	 * valid. The array is shared and must not be modified.
+	 */
+	Element[] elements() {
+		
+		return map.keys;
+	}
+	
+	
+	
+	/**
+	 * Returns the array holding the values of the elements in the order of their ids. Only the first
+	 * {@linkplain #size()} entries are valid. The array is shared and must not be modified.
+	 */
+	double[] values() {
+		
+		return map.values;
+	}
+	
+	
+	
+	/**
+	 * Returns a new map containing every element of this universe with the membership value at its id. The array is
+	 * used by the map and its length must be the length of {@linkplain #values()}.
+	 */
+	ElementMembershipMap membershipMap(double[] memberships) {
+		
+		return new ElementMembershipMap(map, memberships);
+	}
+	
+	
+	
+	/**
+	 * Returns an iterator over the elements in the order of their ids.
+	 */
+	@Override
+	public Iterator<Element> iterator() {
+		
+		return new Iterator<Element>() {
+			
+			private int next = 0;
+			
+			
+			
+			@Override
+			public boolean hasNext() {
+				
+				return next < map.size();
+			}
+			
+			
+			
+			@Override
+			public Element next() {
+				
+				if (next >= map.size())
+					throw new NoSuchElementException();
+				
+				return map.keyAt(next++);
+			}
+		};
+	}
+	
+}
@@ -0,0 +1,387 @@
+package fuzzysystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+
+/**
+ * <p>
+ * WangMendelRuleGenerator builds a rule base from input/output samples using the method of Wang and Mendel. Every
+ * sample is visited only once, so the samples can be read from a stream of any length and need not be kept in memory.
+ * </p>
+ * 
+ * <p>
+ * For every sample, each input value and the output value is assigned to the term of its
+ * {@linkplain LinguisticVariable} in which it has the maximum membership value. These terms form a candidate rule.
+ * The degree of the candidate rule is the product of those maximum membership values. If a rule with the same
+ * antecedents already exists, the rule having higher degree is kept. Thus conflicting rules are resolved by degree.
+ * </p>
+ * 
+ * <p>
+ * The rules are stored in an open addressing table of primitive arrays. The antecedents of a rule are encoded in a
+ * single <i>long</i> key, so learning a sample does not create any object. The number of stored rules never exceeds the
+ * limit given at construction. Samples which would create a new rule after the limit has been reached are dropped and
+ * counted in {@linkplain #getDroppedSampleCount()}. The rule base is materialized only when
+ * {@linkplain #getRules()} is called.
+ * </p>
+ * 
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzyRule
+ *      LinguisticVariable
+ */
+public class WangMendelRuleGenerator {
+	
+	/**
+	 * Marks an empty slot of the rule table. Encoded keys are never negative.
+	 */
+	private static final long EMPTY = -1L;
+	
+	private final LinguisticVariable[]	inputs;
+	private final LinguisticVariable	output;
+	
+	/**
+	 * Multiplier of the term index of each input in the encoded key. The key is a mixed radix number whose digits are
+	 * the term indices.
+	 */
+	private final long[] strides;
+	
+	/**
+	 * Maximum number of rules which will be stored.
+	 */
+	private final int maxRules;
+	
+	private long[]		keys;
+	private int[]		consequents;
+	private double[]	degrees;
+	private int			mask;
+	private int			ruleCount;
+	
+	private long	sampleCount;
+	private long	droppedSampleCount;
+	
+	
+	
+	/**
+	 * Creates a new generator whose number of rules is only bounded by the number of possible antecedent combinations.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If no input is given or the number of antecedent combinations cannot be represented.
+	 */
+	public WangMendelRuleGenerator(LinguisticVariable[] inputs, LinguisticVariable output) {
+		
+		this(inputs, output, Integer.MAX_VALUE);
+	}
+	
+	
+	
+	/**
+	 * Creates a new generator which stores at most maxRules rules.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If no input is given, maxRules is not positive or the number of antecedent combinations cannot be
+	 *             represented.
+	 */
+	public WangMendelRuleGenerator(LinguisticVariable[] inputs, LinguisticVariable output, int maxRules) {
+		
+		if (inputs.length == 0)
+			throw new IllegalArgumentException("At least one input variable is required.");
+		
+		if (maxRules <= 0)
+			throw new IllegalArgumentException("Maximum number of rules must be positive.");
+		
+		this.inputs = inputs.clone();
+		this.output = output;
+		this.strides = new long[inputs.length];
+		
+		long combinations = 1;
+		
+		try {
+			for (int i = 0; i < inputs.length; i++) {
+				strides[i] = combinations;
+				combinations = Math.multiplyExact(combinations, inputs[i].getTermCount());
+			}
+		}
+		catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Too many antecedent combinations to encode the rules.", e);
+		}
+		
+		this.maxRules = (int) Math.min(maxRules, Math.min(combinations, 1 << 29));
+		
+		allocate(Math.min(64, tableCapacity(this.maxRules)));
+	}
+	
+	
+	
+	/**
+	 * Returns the smallest power of two table length which can hold the given number of rules with load factor 0.5.
+	 */
+	private static int tableCapacity(int rules) {
+		
+		return Integer.highestOneBit(Math.max(rules, 2) - 1) << 2;
+	}
+	
+	
+	
+	private void allocate(int capacity) {
+		
+		keys = new long[capacity];
+		consequents = new int[capacity];
+		degrees = new double[capacity];
+		mask = capacity - 1;
+		
+		Arrays.fill(keys, EMPTY);
+	}
+	
+	
+	
+	private static int slot(long key) {
+		
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+	
+	
+	
+	/**
+	 * Learns a single sample. This is the primitive path of the generator and does not create any object.
+	 * 
+	 * @param inputValues
+	 *            Value of every input variable, in the same order as the inputs given at construction.
+	 * @param outputValue
+	 *            Value of the output variable
+	 * @return true - If the sample created or replaced a rule</br>
+	 *         false - Otherwise
+	 */
+	public boolean learn(double[] inputValues, double outputValue) {
+		
+		return learn(inputValues, 0, outputValue);
+	}
+	
+	
+	
+	/**
+	 * Learns all the samples stored in a flat array. Each row of the array has one value for every input followed by
+	 * the output value. This allows a caller to parse a block of a large file into a reusable buffer and hand it over
+	 * without creating an array per sample.
+	 * 
+	 * @param rows
+	 *            Flat array of samples
+	 * @param rowCount
+	 *            Number of rows in rows to learn
+	 * @return Number of samples which created or replaced a rule
+	 */
+	public int learnAll(double[] rows, int rowCount) {
+		
+		final int width = inputs.length + 1;
+		int changed = 0;
+		
+		for (int row = 0, offset = 0; row < rowCount; row++, offset += width)
+			if (learn(rows, offset, rows[offset + inputs.length]))
+				++changed;
+		
+		return changed;
+	}
+	
+	
+	
+	private boolean learn(double[] values, int offset, double outputValue) {
+		
+		++sampleCount;
+		
+		long key = 0;
+		double degree = 1;
+		
+		for (int i = 0; i < inputs.length; i++) {
+			LinguisticVariable variable = inputs[i];
+			double xValue = values[offset + i], maxMembership = -1;
+			int best = 0;
+			
+			for (int term = 0, terms = variable.getTermCount(); term < terms; term++) {
+				double membership = variable.getMembershipValue(term, xValue);
+				
+				if (membership > maxMembership) {
+					best = term;
+					maxMembership = membership;
+				}
+			}
+			
+			key += best * strides[i];
+			degree *= maxMembership;
+		}
+		
+		int consequent = 0;
+		double maxMembership = -1;
+		
+		for (int term = 0, terms = output.getTermCount(); term < terms; term++) {
+			double membership = output.getMembershipValue(term, outputValue);
+			
+			if (membership > maxMembership) {
+				consequent = term;
+				maxMembership = membership;
+			}
+		}
+		
+		degree *= maxMembership;
+		
+		// the sample does not belong to any term of some variable
+		if (!(degree > 0))
+			return false;
+		
+		return put(key, consequent, degree);
+	}
+	
+	
+	
+	private boolean put(long key, int consequent, double degree) {
+		
+		int index = slot(key) & mask;
+		
+		while (keys[index] != EMPTY) {
+			if (keys[index] == key) {
+				if (degree > degrees[index]) {
+					consequents[index] = consequent;
+					degrees[index] = degree;
+					return true;
+				}
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+		
+		if (ruleCount == maxRules) {
+			++droppedSampleCount;
+			return false;
+		}
+		
+		keys[index] = key;
+		consequents[index] = consequent;
+		degrees[index] = degree;
+		
+		if (++ruleCount * 2 > keys.length)
+			grow();
+		
+		return true;
+	}
+	
+	
+	
+	private void grow() {
+		
+		long[] oldKeys = keys;
+		int[] oldConsequents = consequents;
+		double[] oldDegrees = degrees;
+		
+		allocate(oldKeys.length * 2);
+		
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == EMPTY)
+				continue;
+			
+			int index = slot(oldKeys[i]) & mask;
+			
+			while (keys[index] != EMPTY)
+				index = (index + 1) & mask;
+			
+			keys[index] = oldKeys[i];
+			consequents[index] = oldConsequents[i];
+			degrees[index] = oldDegrees[i];
+		}
+	}
+	
+	
+	
+	/**
+	 * Creates the rule base learned so far. A new {@linkplain FuzzyRule} is created for every stored rule.
+	 * 
+	 * @return List of the learned rules
+	 */
+	public List<FuzzyRule> getRules() {
+		
+		List<FuzzyRule> rules = new ArrayList<FuzzyRule>(ruleCount);
+		int[] antecedents = new int[inputs.length];
+		
+		for (int i = 0; i < keys.length; i++) {
+			long key = keys[i];
+			
+			if (key == EMPTY)
+				continue;
+			
+			for (int input = inputs.length - 1; input >= 0; input--) {
+				antecedents[input] = (int) (key / strides[input]);
+				key %= strides[input];
+			}
+			
+			rules.add(new FuzzyRule(inputs, antecedents, output, consequents[i], degrees[i]));
+		}
+		
+		return rules;
+	}
+	
+	
+	
+	/**
+	 * Removes all the learned rules and resets the counters.
+	 */
+	public void clear() {
+		
+		allocate(Math.min(64, tableCapacity(maxRules)));
+		ruleCount = 0;
+		sampleCount = 0;
+		droppedSampleCount = 0;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of rules learned so far.
+	 * 
+	 * @return Number of rules
+	 */
+	public int getRuleCount() {
+		
+		return ruleCount;
+	}
+	
+	
+	
+	/**
+	 * Returns the maximum number of rules this generator will store.
+	 * 
+	 * @return Maximum number of rules
+	 */
+	public int getMaxRules() {
+		
+		return maxRules;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of samples learned so far.
+	 * 
+	 * @return Number of samples
+	 */
+	public long getSampleCount() {
+		
+		return sampleCount;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of samples which were ignored because the rule limit was reached.
+	 * 
+	 * @return Number of dropped samples
+	 */
+	public long getDroppedSampleCount() {
+		
+		return droppedSampleCount;
+	}
+	
+}
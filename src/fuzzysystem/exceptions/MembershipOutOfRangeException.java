@@ -4,33 +4,61 @@ public final class MembershipOutOfRangeException extends Exception {
 	
 	private static final long serialVersionUID = 698613791623169240L;
 	
+	private final int index;
+	
 	
 	
 	public MembershipOutOfRangeException() {
 		super("Membership value cannot be beyound [0,1].\n");
+		index = -1;
+	}
+	
+	
+	
+	/**
+	 * Creates the exception for the invalid value at the given index of a batch of values.
+	 */
+	public MembershipOutOfRangeException(String message, int index) {
+		super(message);
+		this.index = index;
 	}
 	
 	
 	
 	public MembershipOutOfRangeException(String message) {
 		super(message);
+		index = -1;
 	}
 	
 	
 	
 	public MembershipOutOfRangeException(String message, Throwable cause) {
 		super(message, cause);
+		index = -1;
 	}
 	
 	
 	
 	public MembershipOutOfRangeException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
 		super(message, cause, enableSuppression, writableStackTrace);
+		index = -1;
 	}
 	
 	
 	
 	public MembershipOutOfRangeException(Throwable cause) {
 		super(cause);
+		index = -1;
+	}
+	
+	
+	
+	/**
+	 * Returns the index of the invalid value in the batch of values given to the operation, or -1 if the exception
+	 * does not refer to a batch.
+	 */
+	public int getIndex() {
+		
+		return index;
 	}
 }
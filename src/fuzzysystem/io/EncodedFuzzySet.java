@@ -0,0 +1,230 @@
+package fuzzysystem.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import fuzzysystem.DiscreteFuzzySet;
+import fuzzysystem.Element;
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+import fuzzysystem.io.FuzzySetCodec.Quantization;
+
+
+
+/**
+ * <p>
+ * EncodedFuzzySet reads a set encoded by {@linkplain FuzzySetCodec} directly from a {@linkplain ByteBuffer}, without
+ * copying it. Creating the view only checks the header; the members are read by their index when they are requested,
+ * so a process receiving a large set can look at a few members, or convert the whole set with
+ * {@linkplain #toFuzzySet()} in a single pass.
+ * </p>
+ * 
+ * <p>
+ * The view shares the content of the buffer, which must not be modified while the view is used. It is safe for use by
+ * many threads, as it does not change the position of the buffer.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzySetCodec
+ */
+public final class EncodedFuzzySet {
+	
+	private final ByteBuffer buffer;
+	
+	private final Quantization quantization;
+	
+	private final boolean autoClean;
+	
+	private final int size;
+	
+	private final int nameCount;
+	
+	private final int length;
+	
+	private final int memberships;
+	
+	private final int nameIndices;
+	
+	private final int flags;
+	
+	private final int nameOffsets;
+	
+	private final int nameBytes;
+	
+	
+	
+	/**
+	 * Creates a view of the set encoded at the position of the buffer. The position of the buffer is not changed.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the buffer does not contain an encoded set of a known version
+	 */
+	public EncodedFuzzySet(ByteBuffer source) {
+		
+		buffer = source.slice().order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (buffer.remaining() < FuzzySetCodec.HEADER_LENGTH || buffer.getInt(0) != FuzzySetCodec.MAGIC)
+			throw new IllegalArgumentException("Buffer does not contain an encoded fuzzy set.");
+		
+		if (buffer.get(4) != FuzzySetCodec.VERSION)
+			throw new IllegalArgumentException("Unsupported version of encoded fuzzy set : " + buffer.get(4));
+		
+		int code = buffer.get(5);
+		
+		if (code < 0 || code >= Quantization.values().length)
+			throw new IllegalArgumentException("Unknown quantization of encoded fuzzy set : " + code);
+		
+		quantization = Quantization.values()[code];
+		autoClean = (buffer.getShort(6) & FuzzySetCodec.FLAG_AUTO_CLEAN) != 0;
+		size = buffer.getInt(8);
+		nameCount = buffer.getInt(12);
+		length = buffer.getInt(20);
+		
+		long expected = FuzzySetCodec.HEADER_LENGTH + (long) size * (8 + quantization.width() + 4 + 1)
+				+ ((long) nameCount + 1) * 4 + buffer.getInt(16);
+		
+		if (size < 0 || nameCount < 0 || buffer.getInt(16) < 0 || expected != length || length > buffer.remaining())
+			throw new IllegalArgumentException("Encoded fuzzy set is truncated or corrupt.");
+		
+		memberships = FuzzySetCodec.HEADER_LENGTH + size * 8;
+		nameIndices = memberships + size * quantization.width();
+		flags = nameIndices + size * 4;
+		nameOffsets = flags + size;
+		nameBytes = nameOffsets + (nameCount + 1) * 4;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of members.
+	 */
+	public int size() {
+		
+		return size;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of bytes of the encoded set.
+	 */
+	public int encodedLength() {
+		
+		return length;
+	}
+	
+	
+	
+	public Quantization quantization() {
+		
+		return quantization;
+	}
+	
+	
+	
+	/**
+	 * Returns whether auto clean was enabled in the encoded set.
+	 */
+	public boolean autoCleanEnabled() {
+		
+		return autoClean;
+	}
+	
+	
+	
+	private int check(int member) {
+		
+		if (member < 0 || member >= size)
+			throw new IndexOutOfBoundsException("Member " + member + " of " + size);
+		
+		return member;
+	}
+	
+	
+	
+	/**
+	 * Returns the membership value of the member with the index.
+	 */
+	public double getMembershipValue(int member) {
+		
+		return quantization.read(buffer, memberships + check(member) * quantization.width());
+	}
+	
+	
+	
+	/**
+	 * Returns the value of the element of the member with the index.
+	 */
+	public double getValue(int member) {
+		
+		return buffer.getDouble(FuzzySetCodec.HEADER_LENGTH + check(member) * 8);
+	}
+	
+	
+	
+	/**
+	 * Returns the name of the element of the member with the index. The name is decoded on every call.
+	 */
+	public String getName(int member) {
+		
+		return name(buffer.getInt(nameIndices + check(member) * 4));
+	}
+	
+	
+	
+	private String name(int index) {
+		
+		if (index < 0)
+			return null;
+		
+		if (index >= nameCount)
+			throw new IllegalArgumentException("Encoded fuzzy set is corrupt.");
+		
+		int start = buffer.getInt(nameOffsets + index * 4), end = buffer.getInt(nameOffsets + index * 4 + 4);
+		
+		if (start < 0 || end < start || nameBytes + end > length)
+			throw new IllegalArgumentException("Encoded fuzzy set is corrupt.");
+		
+		return FuzzySetCodec.utf8(buffer, nameBytes + start, end - start);
+	}
+	
+	
+	
+	/**
+	 * Returns a new element equal to the element of the member with the index.
+	 */
+	public Element getElement(int member) {
+		
+		return new Element(getName(member), getValue(member),
+				(buffer.get(flags + member) & FuzzySetCodec.FLAG_VALUE_AS_NAME) != 0);
+	}
+	
+	
+	
+	/**
+	 * Decodes all the members into a new set. Every distinct name is decoded once and shared by the elements having
+	 * it.
+	 * 
+	 * @throws MembershipOutOfRangeException
+	 *             If a membership value is beyond [0,1]
+	 */
+	public DiscreteFuzzySet toFuzzySet() throws MembershipOutOfRangeException {
+		
+		DiscreteFuzzySet fuzzySet = new DiscreteFuzzySet(size, autoClean);
+		String[] names = new String[nameCount];
+		
+		for (int member = 0; member < size; member++) {
+			int index = buffer.getInt(nameIndices + member * 4);
+			
+			if (index >= 0 && (index >= nameCount || names[index] == null))
+				names[index] = name(index);
+			
+			String name = (index < 0) ? null : names[index];
+			Element element = new Element(name, buffer.getDouble(FuzzySetCodec.HEADER_LENGTH + member * 8),
+					(buffer.get(flags + member) & FuzzySetCodec.FLAG_VALUE_AS_NAME) != 0);
+			fuzzySet.add(element, quantization.read(buffer, memberships + member * quantization.width()));
+		}
+		
+		return fuzzySet;
+	}
+	
+}
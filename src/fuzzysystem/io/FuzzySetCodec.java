@@ -0,0 +1,395 @@
+package fuzzysystem.io;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import fuzzysystem.DiscreteFuzzySet;
+import fuzzysystem.Element;
+import fuzzysystem.MemberCursor;
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+
+
+
+/**
+ * <p>
+ * FuzzySetCodec converts {@linkplain DiscreteFuzzySet} and {@linkplain Element} instances to a compact binary form
+ * and back. The encoded set is columnar, in little endian byte order:
+ * </p>
+ * 
+ * <pre>
+ * header         magic, version, quantization, flags, member count, name count, name bytes, total length (24 bytes)
+ * values         value of the element of every member (8 bytes each)
+ * memberships    membership value of every member (1 to 8 bytes each, see {@linkplain Quantization})
+ * name indices   index of the name of every member in the name table, -1 for a null name (4 bytes each)
+ * element flags  useValueAsName of every member (1 byte each)
+ * name offsets   start of every name in the name bytes and the end of the last one (4 bytes each)
+ * name bytes     UTF-8 encoded names
+ * </pre>
+ * 
+ * <p>
+ * Every distinct name is stored once, so elements sharing a name, or elements named by their value, cost 13 bytes
+ * plus the membership value. The fixed width columns allow an {@linkplain EncodedFuzzySet} to read any member
+ * directly from the buffer without decoding the others.
+ * </p>
+ * 
+ * <p>
+ * Decoded elements are new instances. As elements are compared by identity, a decoded set has the same names, values
+ * and membership values as the encoded one but not the same elements.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see EncodedFuzzySet
+ */
+public final class FuzzySetCodec {
+	
+	static final int MAGIC = 0x3153_5A46;
+	
+	static final byte VERSION = 1;
+	
+	static final int HEADER_LENGTH = 24;
+	
+	static final int FLAG_AUTO_CLEAN = 1;
+	
+	static final int FLAG_NULL_NAME = 2;
+	
+	static final int FLAG_VALUE_AS_NAME = 1;
+	
+	
+	
+	/**
+	 * <p>
+	 * Quantization determines how the membership values are stored. Values other than {@linkplain #DOUBLE} are rounded
+	 * to the nearest representable value, trading precision for size.
+	 * </p>
+	 */
+	public enum Quantization {
+		
+		/**
+		 * Raw double, 8 bytes, exact.
+		 */
+		DOUBLE(8),
+		
+		/**
+		 * Float, 4 bytes, relative error below 6E-8.
+		 */
+		FLOAT(4),
+		
+		/**
+		 * Unsigned 16 bit fixed point in steps of 1/65535, 2 bytes, error at most 7.7E-6.
+		 */
+		FIXED_16(2),
+		
+		/**
+		 * Unsigned 8 bit fixed point in steps of 1/255, 1 byte, error at most 0.002.
+		 */
+		BYTE(1);
+		
+		private final int width;
+		
+		
+		
+		private Quantization(int width) {
+			this.width = width;
+		}
+		
+		
+		
+		/**
+		 * Returns the number of bytes of a membership value.
+		 */
+		public int width() {
+			
+			return width;
+		}
+		
+		
+		
+		void write(ByteBuffer buffer, int index, double membership) {
+			
+			switch (this) {
+				case DOUBLE:
+					buffer.putDouble(index, membership);
+					break;
+				case FLOAT:
+					buffer.putFloat(index, (float) membership);
+					break;
+				case FIXED_16:
+					buffer.putShort(index, (short) Math.round(membership * 65535));
+					break;
+				default:
+					buffer.put(index, (byte) Math.round(membership * 255));
+			}
+		}
+		
+		
+		
+		double read(ByteBuffer buffer, int index) {
+			
+			switch (this) {
+				case DOUBLE:
+					return buffer.getDouble(index);
+				case FLOAT:
+					return buffer.getFloat(index);
+				case FIXED_16:
+					return (buffer.getShort(index) & 0xFFFF) / 65535.0;
+				default:
+					return (buffer.get(index) & 0xFF) / 255.0;
+			}
+		}
+	}
+	
+	
+	
+	private FuzzySetCodec() {
+	}
+	
+	
+	
+	/**
+	 * Names of the members of a set to be encoded, deduplicated.
+	 */
+	private static final class NameTable {
+		
+		final int[] nameIndices;
+		
+		final byte[][] names;
+		
+		final int nameCount;
+		
+		final int nameBytes;
+		
+		
+		
+		NameTable(DiscreteFuzzySet fuzzySet) {
+			
+			HashMap<String, Integer> indices = new HashMap<String, Integer>();
+			MemberCursor cursor = fuzzySet.cursor();
+			int member = 0, count = 0, bytes = 0;
+			
+			nameIndices = new int[fuzzySet.size()];
+			names = new byte[fuzzySet.size()][];
+			
+			while (cursor.next()) {
+				String name = cursor.element().getName();
+				
+				if (name == null) {
+					nameIndices[member++] = -1;
+					continue;
+				}
+				
+				Integer index = indices.get(name);
+				
+				if (index == null) {
+					index = count;
+					indices.put(name, index);
+					names[count] = name.getBytes(StandardCharsets.UTF_8);
+					bytes += names[count++].length;
+				}
+				
+				nameIndices[member++] = index;
+			}
+			
+			nameCount = count;
+			nameBytes = bytes;
+		}
+		
+		
+		
+		int encodedLength(int memberCount, Quantization quantization) {
+			
+			return HEADER_LENGTH + memberCount * (8 + quantization.width + 4 + 1) + (nameCount + 1) * 4 + nameBytes;
+		}
+	}
+	
+	
+	
+	/**
+	 * Returns the number of bytes of the encoded set.
+	 */
+	public static int encodedLength(DiscreteFuzzySet fuzzySet, Quantization quantization) {
+		
+		return new NameTable(fuzzySet).encodedLength(fuzzySet.size(), quantization);
+	}
+	
+	
+	
+	/**
+	 * Encodes the set into a new heap buffer.
+	 * 
+	 * @return Buffer containing the encoded set, positioned at 0
+	 */
+	public static ByteBuffer encode(DiscreteFuzzySet fuzzySet, Quantization quantization) {
+		
+		NameTable names = new NameTable(fuzzySet);
+		ByteBuffer buffer = ByteBuffer.allocate(names.encodedLength(fuzzySet.size(), quantization));
+		
+		write(fuzzySet, quantization, names, buffer);
+		buffer.flip();
+		
+		return buffer;
+	}
+	
+	
+	
+	/**
+	 * Encodes the set into the buffer at its position and advances the position past the encoded set. The byte order
+	 * of the buffer is not changed.
+	 * 
+	 * @throws java.nio.BufferOverflowException
+	 *             If the remaining space of the buffer is less than {@linkplain #encodedLength(DiscreteFuzzySet,
+	 *             Quantization)}
+	 */
+	public static void encode(DiscreteFuzzySet fuzzySet, Quantization quantization, ByteBuffer buffer) {
+		
+		write(fuzzySet, quantization, new NameTable(fuzzySet), buffer);
+	}
+	
+	
+	
+	private static void write(DiscreteFuzzySet fuzzySet, Quantization quantization, NameTable names,
+			ByteBuffer target) {
+		
+		int memberCount = fuzzySet.size();
+		int length = names.encodedLength(memberCount, quantization);
+		
+		if (target.remaining() < length)
+			throw new BufferOverflowException();
+		
+		ByteBuffer buffer = target.slice().order(ByteOrder.LITTLE_ENDIAN);
+		int values = HEADER_LENGTH;
+		int memberships = values + memberCount * 8;
+		int nameIndices = memberships + memberCount * quantization.width;
+		int flags = nameIndices + memberCount * 4;
+		int nameOffsets = flags + memberCount;
+		int nameBytes = nameOffsets + (names.nameCount + 1) * 4;
+		
+		buffer.putInt(0, MAGIC);
+		buffer.put(4, VERSION);
+		buffer.put(5, (byte) quantization.ordinal());
+		buffer.putShort(6, (short) (fuzzySet.autoCleanEnabled() ? FLAG_AUTO_CLEAN : 0));
+		buffer.putInt(8, memberCount);
+		buffer.putInt(12, names.nameCount);
+		buffer.putInt(16, names.nameBytes);
+		buffer.putInt(20, length);
+		
+		MemberCursor cursor = fuzzySet.cursor();
+		
+		for (int member = 0; cursor.next(); member++) {
+			Element element = cursor.element();
+			buffer.putDouble(values + member * 8, element.getValue());
+			quantization.write(buffer, memberships + member * quantization.width, cursor.membership());
+			buffer.putInt(nameIndices + member * 4, names.nameIndices[member]);
+			buffer.put(flags + member, (byte) (element.useValueAsName() ? FLAG_VALUE_AS_NAME : 0));
+		}
+		
+		int offset = 0;
+		
+		for (int name = 0; name < names.nameCount; name++) {
+			buffer.putInt(nameOffsets + name * 4, offset);
+			buffer.position(nameBytes + offset);
+			buffer.put(names.names[name]);
+			offset += names.names[name].length;
+		}
+		
+		buffer.putInt(nameOffsets + names.nameCount * 4, offset);
+		target.position(target.position() + length);
+	}
+	
+	
+	
+	/**
+	 * Decodes the set at the position of the buffer and advances the position past it.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the buffer does not contain an encoded set of a known version
+	 * @throws MembershipOutOfRangeException
+	 *             If a membership value of the set is beyond [0,1]
+	 */
+	public static DiscreteFuzzySet decode(ByteBuffer buffer) throws MembershipOutOfRangeException {
+		
+		EncodedFuzzySet encoded = new EncodedFuzzySet(buffer);
+		DiscreteFuzzySet fuzzySet = encoded.toFuzzySet();
+		
+		buffer.position(buffer.position() + encoded.encodedLength());
+		
+		return fuzzySet;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of bytes of the encoded element.
+	 */
+	public static int encodedLength(Element element) {
+		
+		String name = element.getName();
+		
+		return 13 + ((name == null) ? 0 : name.getBytes(StandardCharsets.UTF_8).length);
+	}
+	
+	
+	
+	/**
+	 * Encodes the element into the buffer at its position as its flags (1 byte), value (8 bytes), length of the name (4
+	 * bytes) and UTF-8 encoded name, in little endian byte order. The position is advanced past the encoded element.
+	 */
+	public static void encode(Element element, ByteBuffer target) {
+		
+		String name = element.getName();
+		byte[] bytes = (name == null) ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = target.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int flags = (element.useValueAsName() ? FLAG_VALUE_AS_NAME : 0) | ((name == null) ? FLAG_NULL_NAME : 0);
+		
+		buffer.put((byte) flags);
+		buffer.putDouble(element.getValue());
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+		target.position(buffer.position());
+	}
+	
+	
+	
+	/**
+	 * Decodes the element at the position of the buffer and advances the position past it.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the length of the name is invalid
+	 */
+	public static Element decodeElement(ByteBuffer source) {
+		
+		ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int flags = buffer.get();
+		double value = buffer.getDouble();
+		int length = buffer.getInt();
+		
+		if (length < 0 || length > buffer.remaining())
+			throw new IllegalArgumentException("Invalid length of the name of an encoded element : " + length);
+		
+		String name = ((flags & FLAG_NULL_NAME) != 0) ? null : utf8(buffer, buffer.position(), length);
+		source.position(buffer.position() + length);
+		
+		return new Element(name, value, (flags & FLAG_VALUE_AS_NAME) != 0);
+	}
+	
+	
+	
+	/**
+	 * Decodes the UTF-8 bytes of the buffer at the index, reading the backing array directly when there is one.
+	 */
+	static String utf8(ByteBuffer buffer, int index, int length) {
+		
+		if (buffer.hasArray())
+			return new String(buffer.array(), buffer.arrayOffset() + index, length, StandardCharsets.UTF_8);
+		
+		byte[] bytes = new byte[length];
+		
+		for (int i = 0; i < length; i++)
+			bytes[i] = buffer.get(index + i);
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+}
@@ -0,0 +1,525 @@
+package fuzzysystem.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import fuzzysystem.DiscreteFuzzySet;
+import fuzzysystem.Element;
+import fuzzysystem.Universe;
+import fuzzysystem.exceptions.MembershipOutOfRangeException;
+
+
+
+/**
+ * <p>
+ * FuzzySetLoader reads the members of a {@linkplain DiscreteFuzzySet} from delimited text, one
+ * <code>element,membership</code> row per line, as found in CSV and TSV files. Lines may end with "\n" or "\r\n",
+ * blank lines are skipped and spaces around the fields are ignored. The text is UTF-8, with or without a byte order
+ * mark. Fields are not quoted, so the element name must not contain the delimiter.
+ * </p>
+ * 
+ * <p>
+ * The loader is meant for files of hundreds of millions of rows. The text is read through a channel into a single
+ * buffer and parsed in place:
+ * </p>
+ * <ul>
+ * <li>Membership values are parsed directly from the bytes. Decimal values with at most 15 significant digits, which
+ * covers the usual output of programs, are converted exactly without creating a String. Other values fall back to
+ * {@linkplain Double#parseDouble(String)}.</li>
+ * <li>Elements are interned by the bytes of their name. A String and an {@linkplain Element} are created only the
+ * first time a name is seen, later rows with the same name reuse that element.</li>
+ * <li>Rows are collected in batches and the membership values of a batch are validated in a single pass before the
+ * batch is added with {@linkplain DiscreteFuzzySet#addAll(Element[], double[], int)}.</li>
+ * </ul>
+ * 
+ * <p>
+ * As elements are compared by identity, the interned elements are what makes the sets loaded by the same loader
+ * share their members. A loader created over a {@linkplain Universe} interns the elements of the universe by name and
+ * adds the new elements to it. A new element has the name read from the file and, if the name is a number, that
+ * number as its value, otherwise 0.
+ * </p>
+ * 
+ * <p>
+ * A loader is not safe for use by many threads at the same time.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ */
+public final class FuzzySetLoader {
+	
+	private static final int BUFFER_SIZE = 1 << 20;
+	
+	/**
+	 * Number of rows validated and added at a time.
+	 */
+	private static final int BATCH_SIZE = 1 << 14;
+	
+	/**
+	 * Powers of ten which are exact doubles.
+	 */
+	private static final double[] POWERS_OF_TEN = new double[23];
+	
+	static {
+		POWERS_OF_TEN[0] = 1;
+		
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+	
+	private final Universe universe;
+	
+	private byte delimiter = ',';
+	
+	private boolean skipHeader;
+	
+	/**
+	 * Interned elements, an open addressing table keyed by the bytes of the names.
+	 */
+	private int[] hashes = new int[1024];
+	
+	private byte[][] names = new byte[1024][];
+	
+	private Element[] elements = new Element[1024];
+	
+	private int internedCount;
+	
+	private final Element[] batchElements = new Element[BATCH_SIZE];
+	
+	private final double[] batchValues = new double[BATCH_SIZE];
+	
+	private final long[] batchLines = new long[BATCH_SIZE];
+	
+	private int batchSize;
+	
+	private long line;
+	
+	
+	
+	/**
+	 * Creates a loader of comma separated rows.
+	 */
+	public FuzzySetLoader() {
+		this.universe = null;
+	}
+	
+	
+	
+	/**
+	 * Creates a loader of comma separated rows whose elements are those of the universe. Names which are not in the
+	 * universe give new elements, which are added to it. If several elements of the universe have the same name, the
+	 * first one is used.
+	 */
+	public FuzzySetLoader(Universe universe) {
+		this.universe = universe;
+		
+		for (Element element : universe)
+			if (element.getName() != null) {
+				byte[] name = element.getName().getBytes(StandardCharsets.UTF_8);
+				
+				if (find(name, 0, name.length, hash(name, 0, name.length)) < 0)
+					insert(name, hash(name, 0, name.length), element);
+			}
+	}
+	
+	
+	
+	/**
+	 * Sets the delimiter between the element and the membership value, ',' by default. Use '\t' for TSV files.
+	 * 
+	 * @return The present loader
+	 * @throws IllegalArgumentException
+	 *             If the delimiter is not an ASCII character or is a line break
+	 */
+	public FuzzySetLoader setDelimiter(char delimiter) {
+		
+		if (delimiter > 127 || delimiter == '\n' || delimiter == '\r')
+			throw new IllegalArgumentException("Delimiter must be an ASCII character other than a line break : " + (int) delimiter);
+		
+		this.delimiter = (byte) delimiter;
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Sets whether the first line of every input is a header to be skipped, false by default.
+	 * 
+	 * @return The present loader
+	 */
+	public FuzzySetLoader setSkipHeader(boolean skipHeader) {
+		
+		this.skipHeader = skipHeader;
+		return this;
+	}
+	
+	
+	
+	/**
+	 * Returns the number of elements interned by this loader.
+	 */
+	public int internedCount() {
+		
+		return internedCount;
+	}
+	
+	
+	
+	/**
+	 * Loads the rows of the file into a new set.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be read or a row is malformed
+	 * @throws MembershipOutOfRangeException
+	 *             If a membership value is beyond [0,1]
+	 */
+	public DiscreteFuzzySet load(Path path) throws IOException, MembershipOutOfRangeException {
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return load(channel, new DiscreteFuzzySet());
+		}
+	}
+	
+	
+	
+	/**
+	 * Loads the rows read from the channel into a new set. The channel is not closed.
+	 * 
+	 * @throws IOException
+	 *             If the channel cannot be read or a row is malformed
+	 * @throws MembershipOutOfRangeException
+	 *             If a membership value is beyond [0,1]
+	 */
+	public DiscreteFuzzySet load(ReadableByteChannel channel) throws IOException, MembershipOutOfRangeException {
+		
+		return load(channel, new DiscreteFuzzySet());
+	}
+	
+	
+	
+	/**
+	 * Loads the rows read from the channel into the given set. The rows are added in batches, so if a row is invalid
+	 * the set keeps the members of the previous batches. The channel is not closed.
+	 * 
+	 * @return The destination
+	 * @throws IOException
+	 *             If the channel cannot be read or a row is malformed
+	 * @throws MembershipOutOfRangeException
+	 *             If a membership value is beyond [0,1]
+	 */
+	public DiscreteFuzzySet load(ReadableByteChannel channel, DiscreteFuzzySet destination) throws IOException, MembershipOutOfRangeException {
+		
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		boolean end = false;
+		
+		line = 0;
+		batchSize = 0;
+		
+		while (!end) {
+			end = channel.read(buffer) < 0;
+			
+			int length = buffer.position();
+			int consumed = parse(buffer.array(), length, end, destination);
+			
+			System.arraycopy(buffer.array(), consumed, buffer.array(), 0, length - consumed);
+			buffer.position(length - consumed);
+			
+			// a line longer than the buffer
+			if (!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+		
+		flush(destination);
+		
+		return destination;
+	}
+	
+	
+	
+	/**
+	 * Parses the complete lines of the bytes, and the last line if the end of the input is reached.
+	 * 
+	 * @return Number of bytes consumed
+	 */
+	private int parse(byte[] bytes, int length, boolean end, DiscreteFuzzySet destination) throws IOException, MembershipOutOfRangeException {
+		
+		int start = 0;
+		
+		while (start < length) {
+			int stop = start;
+			
+			while (stop < length && bytes[stop] != '\n')
+				++stop;
+			
+			if (stop == length && !end)
+				break;
+			
+			++line;
+			parseRow(bytes, start, (stop > start && bytes[stop - 1] == '\r') ? stop - 1 : stop, destination);
+			start = stop + 1;
+		}
+		
+		return Math.min(start, length);
+	}
+	
+	
+	
+	private void parseRow(byte[] bytes, int start, int stop, DiscreteFuzzySet destination) throws IOException, MembershipOutOfRangeException {
+		
+		if (line == 1 && stop - start >= 3 && bytes[start] == (byte) 0xEF && bytes[start + 1] == (byte) 0xBB && bytes[start + 2] == (byte) 0xBF)
+			start += 3;
+		
+		if ((line == 1 && skipHeader) || isBlank(bytes, start, stop))
+			return;
+		
+		int split = start;
+		
+		while (split < stop && bytes[split] != delimiter)
+			++split;
+		
+		if (split == stop)
+			throw new IOException("Missing delimiter at line " + line + ".");
+		
+		int nameStart = skipSpaces(bytes, start, split), nameStop = trimSpaces(bytes, nameStart, split);
+		int valueStart = skipSpaces(bytes, split + 1, stop), valueStop = trimSpaces(bytes, valueStart, stop);
+		double value = parseNumber(bytes, valueStart, valueStop);
+		
+		if (Double.isNaN(value))
+			throw new IOException("Malformed membership value at line " + line + " : " + new String(bytes, valueStart, valueStop - valueStart, StandardCharsets.UTF_8));
+		
+		batchElements[batchSize] = intern(bytes, nameStart, nameStop);
+		batchValues[batchSize] = value;
+		batchLines[batchSize++] = line;
+		
+		if (batchSize == BATCH_SIZE)
+			flush(destination);
+	}
+	
+	
+	
+	/**
+	 * Adds the batch to the set, which validates the membership values in a single pass. An invalid value is reported
+	 * with its line.
+	 */
+	private void flush(DiscreteFuzzySet destination) throws MembershipOutOfRangeException {
+		
+		try {
+			destination.addAll(batchElements, batchValues, batchSize);
+		}
+		catch (MembershipOutOfRangeException e) {
+			int invalid = e.getIndex();
+			
+			if (invalid < 0 || invalid >= batchSize)
+				throw e;
+			
+			throw new MembershipOutOfRangeException("Membership value " + batchValues[invalid] + " at line " + batchLines[invalid] + " is beyond [0,1].", e);
+		}
+		
+		batchSize = 0;
+	}
+	
+	
+	
+	private static boolean isBlank(byte[] bytes, int start, int stop) {
+		
+		return skipSpaces(bytes, start, stop) == stop;
+	}
+	
+	
+	
+	private static int skipSpaces(byte[] bytes, int start, int stop) {
+		
+		while (start < stop && bytes[start] == ' ')
+			++start;
+		
+		return start;
+	}
+	
+	
+	
+	private static int trimSpaces(byte[] bytes, int start, int stop) {
+		
+		while (stop > start && bytes[stop - 1] == ' ')
+			--stop;
+		
+		return stop;
+	}
+	
+	
+	
+	/**
+	 * Parses a decimal number of the form [sign] digits [. digits] [e [sign] digits].
+	 * 
+	 * @return The number or NaN if the bytes are not such a number
+	 */
+	static double parseNumber(byte[] bytes, int start, int stop) {
+		
+		int i = start;
+		boolean negative = false;
+		
+		if (i < stop && (bytes[i] == '+' || bytes[i] == '-'))
+			negative = bytes[i++] == '-';
+		
+		long mantissa = 0;
+		int significant = 0, scale = 0;
+		boolean digits = false, exact = true;
+		
+		for (; i < stop && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits = true)
+			if (significant < 15) {
+				mantissa = mantissa * 10 + (bytes[i] - '0');
+				significant += (mantissa == 0) ? 0 : 1;
+			}
+			else {
+				++scale;
+				exact &= bytes[i] == '0';
+			}
+		
+		if (i < stop && bytes[i] == '.')
+			for (++i; i < stop && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits = true)
+				if (significant < 15) {
+					mantissa = mantissa * 10 + (bytes[i] - '0');
+					significant += (mantissa == 0) ? 0 : 1;
+					--scale;
+				}
+				else
+					exact &= bytes[i] == '0';
+		
+		if (!digits)
+			return Double.NaN;
+		
+		if (i < stop && (bytes[i] == 'e' || bytes[i] == 'E')) {
+			boolean negativeExponent = false;
+			int exponent = 0;
+			
+			if (++i < stop && (bytes[i] == '+' || bytes[i] == '-'))
+				negativeExponent = bytes[i++] == '-';
+			
+			if (i == stop)
+				return Double.NaN;
+			
+			for (; i < stop && bytes[i] >= '0' && bytes[i] <= '9'; i++)
+				exponent = Math.min(exponent * 10 + (bytes[i] - '0'), 100000);
+			
+			scale += negativeExponent ? -exponent : exponent;
+		}
+		
+		if (i != stop)
+			return Double.NaN;
+		
+		double value;
+		
+		if (!exact || scale < -22 || scale > 22)
+			value = Math.abs(Double.parseDouble(new String(bytes, start, stop - start, StandardCharsets.ISO_8859_1)));
+		else
+			value = (scale < 0) ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+		
+		return negative ? -value : value;
+	}
+	
+	
+	
+	private static int hash(byte[] bytes, int start, int stop) {
+		
+		int hash = 0x811C9DC5;
+		
+		for (int i = start; i < stop; i++)
+			hash = (hash ^ bytes[i]) * 0x01000193;
+		
+		return hash ^ (hash >>> 16);
+	}
+	
+	
+	
+	/**
+	 * Returns the slot of the name in the table or -(insertion slot + 1).
+	 */
+	private int find(byte[] bytes, int start, int stop, int hash) {
+		
+		int mask = hashes.length - 1;
+		
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			byte[] name = names[slot];
+			
+			if (name == null)
+				return -(slot + 1);
+			
+			if (hashes[slot] == hash && name.length == stop - start) {
+				int i = 0;
+				
+				while (i < name.length && name[i] == bytes[start + i])
+					++i;
+				
+				if (i == name.length)
+					return slot;
+			}
+		}
+	}
+	
+	
+	
+	private void insert(byte[] name, int hash, Element element) {
+		
+		if ((internedCount + 1) * 2 > hashes.length)
+			resize();
+		
+		int slot = -(find(name, 0, name.length, hash) + 1);
+		hashes[slot] = hash;
+		names[slot] = name;
+		elements[slot] = element;
+		++internedCount;
+	}
+	
+	
+	
+	private void resize() {
+		
+		int[] oldHashes = hashes;
+		byte[][] oldNames = names;
+		Element[] oldElements = elements;
+		
+		hashes = new int[oldHashes.length * 2];
+		names = new byte[oldHashes.length * 2][];
+		elements = new Element[oldHashes.length * 2];
+		internedCount = 0;
+		
+		for (int i = 0; i < oldHashes.length; i++)
+			if (oldNames[i] != null)
+				insert(oldNames[i], oldHashes[i], oldElements[i]);
+	}
+	
+	
+	
+	/**
+	 * Returns the element having the name, creating it the first time the name is seen.
+	 */
+	private Element intern(byte[] bytes, int start, int stop) {
+		
+		int hash = hash(bytes, start, stop);
+		int slot = find(bytes, start, stop, hash);
+		
+		if (slot >= 0)
+			return elements[slot];
+		
+		byte[] name = new byte[stop - start];
+		System.arraycopy(bytes, start, name, 0, name.length);
+		
+		double value = parseNumber(bytes, start, stop);
+		Element element = new Element(new String(name, StandardCharsets.UTF_8), Double.isNaN(value) ? 0 : value);
+		
+		if (universe != null)
+			universe.add(element);
+		
+		insert(name, hash, element);
+		
+		return element;
+	}
+	
+}
@@ -0,0 +1,30 @@
+package fuzzysystem.monitoring;
+
+/**
+ * Event of a call of
+ * {@linkplain fuzzysystem.FuzzyUtility#defuzzify(fuzzysystem.FuzzyUtility.Defuzzification, fuzzysystem.AbstractFuzzySet...)}.
+ * It is started with {@linkplain #begin()} before defuzzification and completed by
+ * {@linkplain FuzzyEvents#defuzzified(DefuzzificationEvent, Enum, int)} afterwards. The duration of the recorded
+ * event is the time spent in defuzzification.
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzyEvents
+ */
+public final class DefuzzificationEvent {
+	
+	/**
+	 * Event of the recorder, or null if the defuzzification is not recorded.
+	 */
+	Object event;
+	
+	
+	
+	/**
+	 * Starts timing the defuzzification.
+	 */
+	public void begin() {
+		
+		event = FuzzyEvents.beginDefuzzification();
+	}
+	
+}
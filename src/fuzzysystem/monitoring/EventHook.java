@@ -0,0 +1,54 @@
+package fuzzysystem.monitoring;
+
+/**
+ * <p>
+ * EventHook is the connection of {@linkplain FuzzyEvents} to an event recorder. The library is compiled for Java 8, so
+ * it does not refer to Java Flight Recorder directly. The implementation recording flight recorder events is compiled
+ * separately and loaded by name when {@linkplain FuzzyEvents} is initialized. When it is absent, or the runtime does
+ * not provide the flight recorder, no hook is installed and the events are not recorded.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzyEvents
+ */
+interface EventHook {
+	
+	/**
+	 * Starts timing a defuzzification.
+	 * 
+	 * @return Recorder event to pass to {@linkplain #defuzzified(Object, Enum, int)}, or null if it is not recorded
+	 */
+	Object beginDefuzzification();
+	
+	
+	
+	/**
+	 * Completes the recorder event of a defuzzification, which may be null.
+	 */
+	void defuzzified(Object event, Enum<?> method, int setCount);
+	
+	
+	
+	/**
+	 * Starts timing a set operation.
+	 * 
+	 * @return Recorder event to pass to {@linkplain #setOperation(Object, String, int, int, int)}, or null if it is not
+	 *         recorded
+	 */
+	Object beginSetOperation();
+	
+	
+	
+	/**
+	 * Completes the recorder event of a set operation, which may be null.
+	 */
+	void setOperation(Object event, String operation, int leftSize, int rightSize, int resultSize);
+	
+	
+	
+	/**
+	 * Returns whether the periodic statistics are recorded, in which case the evaluations are counted.
+	 */
+	boolean statisticsEnabled();
+	
+}
@@ -0,0 +1,179 @@
+package fuzzysystem.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+
+/**
+ * <p>
+ * FuzzyEvents connects the library to Java Flight Recorder. The library creates an event, calls its
+ * <i>begin()</i> method before the measured work and hands the event to one of the methods of this class afterwards.
+ * </p>
+ * 
+ * <p>
+ * The library is compiled for Java 8 and does not depend on the flight recorder. The flight recorder events are
+ * recorded by an {@linkplain EventHook} compiled separately, which is loaded by name when this class is initialized.
+ * If it is not on the class path or the runtime has no flight recorder, events are not recorded and every call of this
+ * class only checks that no hook is installed. Otherwise an event which is not enabled in a recording costs one check
+ * in <i>begin()</i> and its fields are only filled when it will actually be committed.
+ * </p>
+ * 
+ * <p>
+ * While the periodic statistics event of the hook is enabled, the class also counts the evaluations. The counts use
+ * {@linkplain LongAdder} so that concurrent callers do not contend on a single counter. Evaluations are not counted
+ * while the statistics are not recorded.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see DefuzzificationEvent
+ *      SetOperationEvent
+ */
+public final class FuzzyEvents {
+	
+	/**
+	 * Name of the class of the flight recorder hook.
+	 */
+	private static final String HOOK_CLASS = "fuzzysystem.monitoring.JfrEventHook";
+	
+	private static final LongAdder	defuzzifications	= new LongAdder();
+	private static final LongAdder	setOperations		= new LongAdder();
+	private static final LongAdder	setOperationMembers	= new LongAdder();
+	
+	/**
+	 * Hook recording the events, or null if the flight recorder is not available.
+	 */
+	private static final EventHook hook = loadHook();
+	
+	
+	
+	private FuzzyEvents() {}
+	
+	
+	
+	/**
+	 * Loads the flight recorder hook. Any failure, like a missing class or a runtime without the flight recorder,
+	 * leaves the events unrecorded.
+	 */
+	private static EventHook loadHook() {
+		
+		try {
+			return (EventHook) Class.forName(HOOK_CLASS).getDeclaredConstructor().newInstance();
+		}
+		
+		catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return null;
+		}
+	}
+	
+	
+	
+	static Object beginDefuzzification() {
+		
+		return (hook == null) ? null : hook.beginDefuzzification();
+	}
+	
+	
+	
+	static Object beginSetOperation() {
+		
+		return (hook == null) ? null : hook.beginSetOperation();
+	}
+	
+	
+	
+	static long defuzzifications() {
+		
+		return defuzzifications.sum();
+	}
+	
+	
+	
+	static long setOperations() {
+		
+		return setOperations.sum();
+	}
+	
+	
+	
+	static long setOperationMembers() {
+		
+		return setOperationMembers.sum();
+	}
+	
+	
+	
+	/**
+	 * Completes a defuzzification event.
+	 * 
+	 * @param event
+	 *            Event on which {@linkplain DefuzzificationEvent#begin()} was called before defuzzification
+	 * @param method
+	 *            Defuzzification method used
+	 * @param setCount
+	 *            Number of sets defuzzified
+	 */
+	public static void defuzzified(DefuzzificationEvent event, Enum<?> method, int setCount) {
+		
+		if (hook == null)
+			return;
+		
+		if (hook.statisticsEnabled())
+			defuzzifications.increment();
+		
+		hook.defuzzified(event.event, method, setCount);
+	}
+	
+	
+	
+	/**
+	 * Completes a set operation event.
+	 * 
+	 * @param event
+	 *            Event on which {@linkplain SetOperationEvent#begin()} was called before the operation
+	 * @param operation
+	 *            Name of the operation
+	 * @param leftSize
+	 *            Size of the set on which the operation was called
+	 * @param rightSize
+	 *            Size of the other operand, -1 for unary operations
+	 * @param resultSize
+	 *            Size of the resulting set
+	 */
+	public static void setOperation(SetOperationEvent event, String operation, int leftSize, int rightSize, int resultSize) {
+		
+		if (hook == null)
+			return;
+		
+		if (hook.statisticsEnabled()) {
+			setOperations.increment();
+			setOperationMembers.add(resultSize);
+		}
+		
+		hook.setOperation(event.event, operation, leftSize, rightSize, resultSize);
+	}
+	
+	
+	
+	/**
+	 * Returns the number of defuzzifications performed while the statistics event was recorded.
+	 * 
+	 * @return Number of defuzzifications
+	 */
+	public static long getDefuzzificationCount() {
+		
+		return defuzzifications.sum();
+	}
+	
+	
+	
+	/**
+	 * Returns the number of set operations performed while the statistics event was recorded.
+	 * 
+	 * @return Number of set operations
+	 */
+	public static long getSetOperationCount() {
+		
+		return setOperations.sum();
+	}
+	
+}
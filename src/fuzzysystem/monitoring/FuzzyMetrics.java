@@ -0,0 +1,67 @@
+package fuzzysystem.monitoring;
+
+/**
+ * <p>
+ * FuzzyMetrics is the switch of the metrics collected by the library. Metrics are disabled by default. When they are
+ * disabled the instrumented code only reads one volatile field. After {@linkplain #enable()} is called every term
+ * evaluation, rule firing and defuzzification is recorded in the active {@linkplain MetricsRegistry}.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see MetricsRegistry
+ */
+public final class FuzzyMetrics {
+	
+	/**
+	 * The registry receiving the measurements. It is null while metrics are disabled.
+	 */
+	private static volatile MetricsRegistry registry;
+	
+	
+	
+	private FuzzyMetrics() {}
+	
+	
+	
+	/**
+	 * Enables metrics collection. If metrics are already enabled the active registry is kept.
+	 * 
+	 * @return The active registry
+	 */
+	public static synchronized MetricsRegistry enable() {
+		
+		if (registry == null)
+			registry = new MetricsRegistry();
+		
+		return registry;
+	}
+	
+	
+	
+	/**
+	 * Disables metrics collection. The registry which was active is returned so that its last measurements can still
+	 * be read.
+	 * 
+	 * @return The registry which was active or null if metrics were not enabled
+	 */
+	public static synchronized MetricsRegistry disable() {
+		
+		MetricsRegistry active = registry;
+		registry = null;
+		
+		return active;
+	}
+	
+	
+	
+	/**
+	 * Returns the active registry.
+	 * 
+	 * @return The active registry or null if metrics are disabled
+	 */
+	public static MetricsRegistry registry() {
+		
+		return registry;
+	}
+	
+}
@@ -0,0 +1,522 @@
+package fuzzysystem.monitoring;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import fuzzysystem.FuzzyRule;
+import fuzzysystem.LinguisticVariable;
+
+
+
+/**
+ * <p>
+ * MetricsRegistry collects the following measurements
+ * <ul>
+ * <li>number of evaluations of every term of a {@linkplain LinguisticVariable} and how many of them gave a non zero
+ * membership value,</li>
+ * <li>distribution of the firing strength of every {@linkplain FuzzyRule},</li>
+ * <li>distribution of the latency of defuzzification for every defuzzification method.</li>
+ * </ul>
+ * </p>
+ * 
+ * <p>
+ * All the counters are {@linkplain LongAdder} instances, so that threads recording at the same time do not contend on
+ * a single memory location. Variables and rules are compared by identity. A registry is obtained from
+ * {@linkplain FuzzyMetrics#enable()} and read through {@linkplain #snapshot()}.
+ * </p>
+ * 
+ * <p>
+ * Variables and rules are referenced weakly. When one of them is no longer used, for instance a rule replaced by
+ * {@linkplain fuzzysystem.WangMendelRuleGenerator} regenerating its rules, it is garbage collected and its
+ * measurements are dropped the next time a new variable or rule is recorded or a snapshot is taken.
+ * </p>
+ * 
+ * <p>
+ * Looking up the counters of a variable or rule takes a map probe, so a variable resolves its
+ * {@linkplain TermMetrics} and a rule its {@linkplain RuleMetrics} once and keeps them. Recording through them only
+ * increments the counters. They no longer belong to the registry once it is {@linkplain #reset() reset} or replaced
+ * by another one, and must then be resolved again.
+ * </p>
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzyMetrics
+ *      MetricsSnapshot
+ */
+public final class MetricsRegistry {
+	
+	/**
+	 * Number of equal width buckets of the firing strength distribution. An additional bucket counts the firings with
+	 * zero strength.
+	 */
+	static final int STRENGTH_BUCKETS = 10;
+	
+	/**
+	 * Number of buckets of the latency distribution. Bucket i counts the latencies in [2^i, 2^(i+1)) nanoseconds, the
+	 * last bucket also counts all the larger latencies.
+	 */
+	static final int LATENCY_BUCKETS = 40;
+	
+	private final Map<Object, TermMetrics>			terms		= new ConcurrentHashMap<Object, TermMetrics>();
+	private final Map<Object, RuleMetrics>			rules		= new ConcurrentHashMap<Object, RuleMetrics>();
+	private final Map<Enum<?>, LatencyHistogram>	latencies	= new ConcurrentHashMap<Enum<?>, LatencyHistogram>();
+	
+	/**
+	 * Queue receiving the keys of {@linkplain #terms} and {@linkplain #rules} whose variable or rule was collected.
+	 */
+	private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+	
+	/**
+	 * Number of times the registry was reset. Metrics resolved before a reset carry an older generation.
+	 */
+	private volatile int generation;
+	
+	
+	
+	MetricsRegistry() {}
+	
+	
+	
+	/**
+	 * Records the evaluation of a term.
+	 * 
+	 * @param variable
+	 *            Variable owning the term
+	 * @param term
+	 *            Index of the term in the variable
+	 * @param membership
+	 *            Membership value produced by the evaluation
+	 */
+	public void recordTerm(LinguisticVariable variable, int term, double membership) {
+		
+		termMetrics(variable).record(term, membership);
+	}
+	
+	
+	
+	/**
+	 * Returns the counters of the terms of a variable, creating them on the first call. The variable should keep them
+	 * while they {@linkplain TermMetrics#belongsTo(MetricsRegistry) belong} to the active registry.
+	 * 
+	 * @param variable
+	 *            Variable owning the terms
+	 * @return Counters of the terms of the variable
+	 */
+	public TermMetrics termMetrics(LinguisticVariable variable) {
+		
+		TermMetrics metrics = terms.get(new Lookup(variable));
+		
+		if (metrics == null) {
+			expungeCollected();
+			metrics = terms.computeIfAbsent(new WeakKey(variable, collected),
+					key -> new TermMetrics(this, createTermCounters(variable)));
+		}
+		
+		return metrics;
+	}
+	
+	
+	
+	private static TermCounters[] createTermCounters(LinguisticVariable variable) {
+		
+		TermCounters[] counters = new TermCounters[variable.getTermCount()];
+		
+		for (int i = 0; i < counters.length; i++)
+			counters[i] = new TermCounters();
+		
+		return counters;
+	}
+	
+	
+	
+	/**
+	 * Records the firing strength of a rule.
+	 * 
+	 * @param rule
+	 *            Rule which was fired
+	 * @param strength
+	 *            Firing strength in [0, 1]
+	 */
+	public void recordRule(FuzzyRule rule, double strength) {
+		
+		ruleMetrics(rule).record(strength);
+	}
+	
+	
+	
+	/**
+	 * Returns the distribution of the firing strength of a rule, creating it on the first call. The rule should keep it
+	 * while it {@linkplain RuleMetrics#belongsTo(MetricsRegistry) belongs} to the active registry.
+	 * 
+	 * @param rule
+	 *            Rule whose firings are recorded
+	 * @return Distribution of the firing strength of the rule
+	 */
+	public RuleMetrics ruleMetrics(FuzzyRule rule) {
+		
+		RuleMetrics metrics = rules.get(new Lookup(rule));
+		
+		if (metrics == null) {
+			expungeCollected();
+			metrics = rules.computeIfAbsent(new WeakKey(rule, collected), key -> new RuleMetrics(this));
+		}
+		
+		return metrics;
+	}
+	
+	
+	
+	/**
+	 * Records the duration of a defuzzification.
+	 * 
+	 * @param method
+	 *            Defuzzification method used
+	 * @param nanos
+	 *            Duration in nanoseconds
+	 */
+	public void recordDefuzzification(Enum<?> method, long nanos) {
+		
+		LatencyHistogram histogram = latencies.get(method);
+		
+		if (histogram == null)
+			histogram = latencies.computeIfAbsent(method, key -> new LatencyHistogram());
+		
+		histogram.record(nanos);
+	}
+	
+	
+	
+	/**
+	 * Removes the measurements of the variables and rules which were garbage collected.
+	 */
+	private void expungeCollected() {
+		
+		for (Reference<?> key; (key = collected.poll()) != null;) {
+			terms.remove(key);
+			rules.remove(key);
+		}
+	}
+	
+	
+	
+	/**
+	 * Removes all the recorded measurements. The metrics resolved before no longer belong to this registry.
+	 */
+	public void reset() {
+		
+		generation++;
+		terms.clear();
+		rules.clear();
+		latencies.clear();
+	}
+	
+	
+	
+	/**
+	 * Creates a snapshot of the measurements. The counters are read one after another while recording may continue, so
+	 * the snapshot is not an atomic view of the registry.
+	 * 
+	 * @return Snapshot of the measurements
+	 */
+	public MetricsSnapshot snapshot() {
+		
+		List<MetricsSnapshot.TermSnapshot> termSnapshots = new ArrayList<MetricsSnapshot.TermSnapshot>();
+		List<MetricsSnapshot.RuleSnapshot> ruleSnapshots = new ArrayList<MetricsSnapshot.RuleSnapshot>(rules.size());
+		List<MetricsSnapshot.LatencySnapshot> latencySnapshots = new ArrayList<MetricsSnapshot.LatencySnapshot>(latencies.size());
+		
+		expungeCollected();
+		
+		for (Map.Entry<Object, TermMetrics> entry : terms.entrySet()) {
+			LinguisticVariable variable = (LinguisticVariable) ((WeakKey) entry.getKey()).get();
+			TermCounters[] counters = entry.getValue().counters;
+			
+			if (variable == null)
+				continue;
+			
+			for (int term = 0; term < counters.length; term++)
+				termSnapshots.add(new MetricsSnapshot.TermSnapshot(variable, term, counters[term].evaluations.sum(),
+						counters[term].nonZero.sum()));
+		}
+		
+		for (Map.Entry<Object, RuleMetrics> entry : rules.entrySet()) {
+			FuzzyRule rule = (FuzzyRule) ((WeakKey) entry.getKey()).get();
+			StrengthHistogram histogram = entry.getValue().histogram;
+			
+			if (rule != null)
+				ruleSnapshots.add(new MetricsSnapshot.RuleSnapshot(rule, histogram.sum.sum(), sums(histogram.buckets)));
+		}
+		
+		for (Map.Entry<Enum<?>, LatencyHistogram> entry : latencies.entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			latencySnapshots.add(new MetricsSnapshot.LatencySnapshot(entry.getKey(), histogram.totalNanos.sum(),
+					histogram.maxNanos.get(), sums(histogram.buckets)));
+		}
+		
+		return new MetricsSnapshot(termSnapshots, ruleSnapshots, latencySnapshots);
+	}
+	
+	
+	
+	private static long[] sums(LongAdder[] adders) {
+		
+		long[] counts = new long[adders.length];
+		
+		for (int i = 0; i < adders.length; i++)
+			counts[i] = adders[i].sum();
+		
+		return counts;
+	}
+	
+	
+	
+	private static LongAdder[] createAdders(int count) {
+		
+		LongAdder[] adders = new LongAdder[count];
+		
+		for (int i = 0; i < count; i++)
+			adders[i] = new LongAdder();
+		
+		return adders;
+	}
+	
+	
+	
+	/**
+	 * Key of a variable or rule stored in the maps. It refers weakly to the object and is compared by the identity of
+	 * the object. Once the object is collected the key is only equal to itself, so it can still be removed.
+	 */
+	private static final class WeakKey extends WeakReference<Object> {
+		
+		private final int hash;
+		
+		
+		
+		WeakKey(Object referent, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			hash = System.identityHashCode(referent);
+		}
+		
+		
+		
+		@Override
+		public int hashCode() {
+			
+			return hash;
+		}
+		
+		
+		
+		@Override
+		public boolean equals(Object object) {
+			
+			if (object == this)
+				return true;
+			
+			Object referent = get();
+			
+			if (object instanceof Lookup)
+				return referent != null && referent == ((Lookup) object).referent;
+			
+			return object instanceof WeakKey && referent != null && referent == ((WeakKey) object).get();
+		}
+		
+	}
+	
+	
+	
+	/**
+	 * Key used to look up a variable or rule in the maps without creating a weak reference.
+	 */
+	private static final class Lookup {
+		
+		private final Object referent;
+		
+		
+		
+		Lookup(Object referent) {
+			this.referent = referent;
+		}
+		
+		
+		
+		@Override
+		public int hashCode() {
+			
+			return System.identityHashCode(referent);
+		}
+		
+		
+		
+		@Override
+		public boolean equals(Object object) {
+			
+			return object instanceof WeakKey && ((WeakKey) object).get() == referent;
+		}
+		
+	}
+	
+	
+	
+	/**
+	 * Counters of the terms of a variable in a registry. They do not refer to the variable, so keeping them in the
+	 * variable does not prevent it from being collected.
+	 */
+	public static final class TermMetrics {
+		
+		private final MetricsRegistry	registry;
+		private final int				generation;
+		private final TermCounters[]	counters;
+		
+		
+		
+		TermMetrics(MetricsRegistry registry, TermCounters[] counters) {
+			this.registry = registry;
+			this.generation = registry.generation;
+			this.counters = counters;
+		}
+		
+		
+		
+		/**
+		 * Determines whether these counters are the ones the registry records into.
+		 * 
+		 * @param registry
+		 *            Active registry
+		 * @return false if the counters belong to another registry or the registry was reset since they were resolved
+		 */
+		public boolean belongsTo(MetricsRegistry registry) {
+			
+			return this.registry == registry && generation == registry.generation;
+		}
+		
+		
+		
+		/**
+		 * Records the evaluation of a term.
+		 * 
+		 * @param term
+		 *            Index of the term in the variable
+		 * @param membership
+		 *            Membership value produced by the evaluation
+		 */
+		public void record(int term, double membership) {
+			
+			TermCounters counter = counters[term];
+			counter.evaluations.increment();
+			
+			if (membership > 0)
+				counter.nonZero.increment();
+		}
+		
+	}
+	
+	
+	
+	/**
+	 * Distribution of the firing strength of a rule in a registry. It does not refer to the rule, so keeping it in the
+	 * rule does not prevent it from being collected.
+	 */
+	public static final class RuleMetrics {
+		
+		private final MetricsRegistry	registry;
+		private final int				generation;
+		private final StrengthHistogram	histogram	= new StrengthHistogram();
+		
+		
+		
+		RuleMetrics(MetricsRegistry registry) {
+			this.registry = registry;
+			this.generation = registry.generation;
+		}
+		
+		
+		
+		/**
+		 * Determines whether this distribution is the one the registry records into.
+		 * 
+		 * @param registry
+		 *            Active registry
+		 * @return false if the distribution belongs to another registry or the registry was reset since it was resolved
+		 */
+		public boolean belongsTo(MetricsRegistry registry) {
+			
+			return this.registry == registry && generation == registry.generation;
+		}
+		
+		
+		
+		/**
+		 * Records the firing strength of the rule.
+		 * 
+		 * @param strength
+		 *            Firing strength in [0, 1]
+		 */
+		public void record(double strength) {
+			
+			histogram.record(strength);
+		}
+		
+	}
+	
+	
+	
+	private static final class TermCounters {
+		
+		final LongAdder	evaluations	= new LongAdder();
+		final LongAdder	nonZero		= new LongAdder();
+		
+	}
+	
+	
+	
+	private static final class StrengthHistogram {
+		
+		/**
+		 * Bucket 0 counts zero strengths, bucket i counts the strengths in ((i-1)/10, i/10].
+		 */
+		final LongAdder[]	buckets	= createAdders(STRENGTH_BUCKETS + 1);
+		final DoubleAdder	sum		= new DoubleAdder();
+		
+		
+		
+		void record(double strength) {
+			
+			int bucket = (strength > 0) ? (int) Math.ceil(strength * STRENGTH_BUCKETS) : 0;
+			buckets[Math.min(bucket, STRENGTH_BUCKETS)].increment();
+			sum.add(strength);
+		}
+		
+	}
+	
+	
+	
+	private static final class LatencyHistogram {
+		
+		final LongAdder[]	buckets		= createAdders(LATENCY_BUCKETS);
+		final LongAdder		totalNanos	= new LongAdder();
+		final AtomicLong	maxNanos	= new AtomicLong();
+		
+		
+		
+		void record(long nanos) {
+			
+			int bucket = 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1));
+			buckets[Math.min(bucket, LATENCY_BUCKETS - 1)].increment();
+			totalNanos.add(nanos);
+			
+			long max = maxNanos.get();
+			
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+				max = maxNanos.get();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,322 @@
+package fuzzysystem.monitoring;
+
+import java.util.Collections;
+import java.util.List;
+
+import fuzzysystem.FuzzyRule;
+import fuzzysystem.LinguisticVariable;
+
+
+
+/**
+ * MetricsSnapshot is an immutable copy of the measurements of a {@linkplain MetricsRegistry} at some point of time.
+ * Terms which are never evaluated with a non zero value and rules which always fire with zero strength are the
+ * candidates for pruning.
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see MetricsRegistry#snapshot()
+ */
+public final class MetricsSnapshot {
+	
+	private final List<TermSnapshot>	terms;
+	private final List<RuleSnapshot>	rules;
+	private final List<LatencySnapshot>	latencies;
+	
+	
+	
+	MetricsSnapshot(List<TermSnapshot> terms, List<RuleSnapshot> rules, List<LatencySnapshot> latencies) {
+		this.terms = Collections.unmodifiableList(terms);
+		this.rules = Collections.unmodifiableList(rules);
+		this.latencies = Collections.unmodifiableList(latencies);
+	}
+	
+	
+	
+	/**
+	 * Returns the measurements of every evaluated term.
+	 * 
+	 * @return Unmodifiable list of term measurements
+	 */
+	public List<TermSnapshot> getTerms() {
+		
+		return terms;
+	}
+	
+	
+	
+	/**
+	 * Returns the measurements of every fired rule.
+	 * 
+	 * @return Unmodifiable list of rule measurements
+	 */
+	public List<RuleSnapshot> getRules() {
+		
+		return rules;
+	}
+	
+	
+	
+	/**
+	 * Returns the latency measurements of every defuzzification method used.
+	 * 
+	 * @return Unmodifiable list of latency measurements
+	 */
+	public List<LatencySnapshot> getLatencies() {
+		
+		return latencies;
+	}
+	
+	
+	
+	/**
+	 * Evaluation counts of a single term of a {@linkplain LinguisticVariable}.
+	 */
+	public static final class TermSnapshot {
+		
+		private final LinguisticVariable	variable;
+		private final int					term;
+		private final long					evaluations;
+		private final long					nonZeroEvaluations;
+		
+		
+		
+		TermSnapshot(LinguisticVariable variable, int term, long evaluations, long nonZeroEvaluations) {
+			this.variable = variable;
+			this.term = term;
+			this.evaluations = evaluations;
+			this.nonZeroEvaluations = nonZeroEvaluations;
+		}
+		
+		
+		
+		public LinguisticVariable getVariable() {
+			
+			return variable;
+		}
+		
+		
+		
+		public int getTerm() {
+			
+			return term;
+		}
+		
+		
+		
+		public String getTermName() {
+			
+			return variable.getTermName(term);
+		}
+		
+		
+		
+		public long getEvaluations() {
+			
+			return evaluations;
+		}
+		
+		
+		
+		public long getNonZeroEvaluations() {
+			
+			return nonZeroEvaluations;
+		}
+		
+		
+		
+		@Override
+		public String toString() {
+			
+			return variable.getName() + "." + getTermName() + " " + nonZeroEvaluations + "/" + evaluations;
+		}
+		
+	}
+	
+	
+	
+	/**
+	 * Firing strength distribution of a single {@linkplain FuzzyRule}. Bucket 0 counts the firings with zero strength,
+	 * bucket i counts the firings with strength in ((i - 1) / 10, i / 10].
+	 */
+	public static final class RuleSnapshot {
+		
+		private final FuzzyRule	rule;
+		private final double	strengthSum;
+		private final long[]	buckets;
+		private final long		firings;
+		
+		
+		
+		RuleSnapshot(FuzzyRule rule, double strengthSum, long[] buckets) {
+			this.rule = rule;
+			this.strengthSum = strengthSum;
+			this.buckets = buckets;
+			
+			long count = 0;
+			
+			for (long bucket : buckets)
+				count += bucket;
+			
+			this.firings = count;
+		}
+		
+		
+		
+		public FuzzyRule getRule() {
+			
+			return rule;
+		}
+		
+		
+		
+		public long getFirings() {
+			
+			return firings;
+		}
+		
+		
+		
+		/**
+		 * Returns the number of firings with strength greater than zero.
+		 */
+		public long getNonZeroFirings() {
+			
+			return firings - buckets[0];
+		}
+		
+		
+		
+		public double getMeanStrength() {
+			
+			return (firings == 0) ? 0 : strengthSum / firings;
+		}
+		
+		
+		
+		/**
+		 * Returns a copy of the bucket counts.
+		 */
+		public long[] getBuckets() {
+			
+			return buckets.clone();
+		}
+		
+		
+		
+		@Override
+		public String toString() {
+			
+			return rule + " fired " + firings + " mean " + getMeanStrength();
+		}
+		
+	}
+	
+	
+	
+	/**
+	 * Latency distribution of a defuzzification method. Bucket i counts the latencies in [2^i, 2^(i+1)) nanoseconds.
+	 */
+	public static final class LatencySnapshot {
+		
+		private final Enum<?>	method;
+		private final long		totalNanos;
+		private final long		maxNanos;
+		private final long[]	buckets;
+		private final long		count;
+		
+		
+		
+		LatencySnapshot(Enum<?> method, long totalNanos, long maxNanos, long[] buckets) {
+			this.method = method;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.buckets = buckets;
+			
+			long sum = 0;
+			
+			for (long bucket : buckets)
+				sum += bucket;
+			
+			this.count = sum;
+		}
+		
+		
+		
+		public Enum<?> getMethod() {
+			
+			return method;
+		}
+		
+		
+		
+		public long getCount() {
+			
+			return count;
+		}
+		
+		
+		
+		public long getTotalNanos() {
+			
+			return totalNanos;
+		}
+		
+		
+		
+		public long getMaxNanos() {
+			
+			return maxNanos;
+		}
+		
+		
+		
+		public double getMeanNanos() {
+			
+			return (count == 0) ? 0 : (double) totalNanos / count;
+		}
+		
+		
+		
+		/**
+		 * Returns an upper bound of the latency below which the given fraction of the defuzzifications completed. The
+		 * bound is the upper limit of the bucket containing the percentile.
+		 * 
+		 * @param fraction
+		 *            Fraction in [0, 1], for example 0.99
+		 * @return Upper bound of the percentile in nanoseconds
+		 */
+		public long getPercentileNanos(double fraction) {
+			
+			long rank = (long) Math.ceil(fraction * count), seen = 0;
+			
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				
+				if (seen >= rank && seen > 0)
+					return Math.min(maxNanos, (i == buckets.length - 1) ? Long.MAX_VALUE : (2L << i) - 1);
+			}
+			
+			return maxNanos;
+		}
+		
+		
+		
+		/**
+		 * Returns a copy of the bucket counts.
+		 */
+		public long[] getBuckets() {
+			
+			return buckets.clone();
+		}
+		
+		
+		
+		@Override
+		public String toString() {
+			
+			return method.name() + " count " + count + " mean " + getMeanNanos() + "ns max " + maxNanos + "ns";
+		}
+		
+	}
+	
+}
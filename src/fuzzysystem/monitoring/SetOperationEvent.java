@@ -0,0 +1,29 @@
+package fuzzysystem.monitoring;
+
+/**
+ * Event of a set algebra operation of {@linkplain fuzzysystem.DiscreteFuzzySet}. It is started with
+ * {@linkplain #begin()} before the operation and completed by
+ * {@linkplain FuzzyEvents#setOperation(SetOperationEvent, String, int, int, int)} afterwards. The duration of the
+ * recorded event is the time spent in the operation. Unary operations record -1 as the size of the right operand.
+ * 
+ * @author Aniket Kumar Tripathi
+ * @see FuzzyEvents
+ */
+public final class SetOperationEvent {
+	
+	/**
+	 * Event of the recorder, or null if the operation is not recorded.
+	 */
+	Object event;
+	
+	
+	
+	/**
+	 * Starts timing the operation.
+	 */
+	public void begin() {
+		
+		event = FuzzyEvents.beginSetOperation();
+	}
+	
+}